@@ -35,6 +35,8 @@ public class SdkInstallAndVerifyTest extends TafTestBase {
 
     private static final String REMOTE_SDK_DIR = "/var/tmp/taf-sdk";
 
+    private SdkEnmCliOperator enmCli;
+
     private static void tearDown() throws IOException {
         if (Flags.canCleanBuildDir()) {
             final File tafBuildDir = SDK_BUILD_DIR.toFile();
@@ -95,7 +97,23 @@ public class SdkInstallAndVerifyTest extends TafTestBase {
         } catch (Throwable error) {
             AssertLog.fail("TestCase:" + TEST_NAME + " OPERATOR-FAILED", error);
             throw new AssertionError(error);
+        } finally {
+            EnmClientPool.closeShared();
+            RemoteAccessOperator.closeShared();
+            NetSimCommandSession.closeAll();
+        }
+    }
+
+    /**
+     * Get the ENM CLI operator, all verification steps share it and its ENM session
+     *
+     * @return operator
+     */
+    private SdkEnmCliOperator getEnmCli() {
+        if (enmCli == null) {
+            enmCli = new SdkEnmCliOperator();
         }
+        return enmCli;
     }
 
     private String getMonitoringImage(final Path integrationValues) throws OperatorException {
@@ -146,8 +164,8 @@ public class SdkInstallAndVerifyTest extends TafTestBase {
         try (final RemoteAccessOperator remote = new RemoteAccessOperator()) {
             final StringBuilder stdout = new StringBuilder();
             remote.execute("ls " + helmPkgDir + "/*.tgz", 5, stdout, null);
-            for (String tgzFile : stdout.toString().split("\n")) {
-                final String template = HelmExecutorOperator.templateRemote(tgzFile);
+            final List<String> tgzFiles = Arrays.asList(stdout.toString().split("\n"));
+            for (String template : HelmExecutorOperator.templateRemote(tgzFiles)) {
                 final Yaml yaml = new Yaml();
                 for (Object object : yaml.loadAll(template)) {
 
@@ -233,8 +251,7 @@ public class SdkInstallAndVerifyTest extends TafTestBase {
      * @throws OperatorException Ant errors
      */
     private void verifyModels(final SdkType sdkType) throws OperatorException {
-        final SdkEnmCliOperator enmCli = new SdkEnmCliOperator();
-        enmCli.verifyModels(sdkType);
+        getEnmCli().verifyModels(sdkType);
     }
 
     /**
@@ -243,13 +260,11 @@ public class SdkInstallAndVerifyTest extends TafTestBase {
      * @throws OperatorException On Error
      */
     private String[] configureNetSims(String fmvipAddress) throws OperatorException {
-        SdkEnmCliOperator enmCli = new SdkEnmCliOperator();
-        return enmCli.configureNetsims(fmvipAddress);
+        return getEnmCli().configureNetsims(fmvipAddress);
     }
 
     private void createNetworkElementAndSendAlarm(final SdkType sdkType, String[] neNameAndIp) throws OperatorException {
-        SdkEnmCliOperator enmCli = new SdkEnmCliOperator();
-        enmCli.createNE(neNameAndIp[0], sdkType, neNameAndIp[1], neNameAndIp[2]);
+        getEnmCli().createNE(neNameAndIp[0], sdkType, neNameAndIp[1], neNameAndIp[2]);
     }
 
     /**
@@ -454,7 +469,6 @@ public class SdkInstallAndVerifyTest extends TafTestBase {
     }
 
     private void verifyPMFunctionality(final SdkType sdkType) throws OperatorException {
-        SdkEnmCliOperator enmCli = new SdkEnmCliOperator();
-        enmCli.createNetworkelementForPM(sdkType);
+        getEnmCli().createNetworkelementForPM(sdkType);
     }
 }
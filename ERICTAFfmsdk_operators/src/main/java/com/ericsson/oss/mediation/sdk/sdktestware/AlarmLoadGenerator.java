@@ -0,0 +1,280 @@
+package com.ericsson.oss.mediation.sdk.sdktestware;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Sends alarms from many NetSim NEs at a fixed rate and checks they all arrive in ENM.
+ * <p>
+ * Every alarm gets a unique specific problem so it can be found on its own with 'alarm get'. Alarms due in the same
+ * send window are grouped per host and simulation, and each group is sent in one NetSim round trip, in parallel
+ * across groups, so the NEs can be spread over every NetSim host. Once all alarms are sent they are looked for with
+ * one {@link AlarmWaiter} query for the whole run, repeated until all are found or the waiter deadline passes; the
+ * trap-to-ENM latency of each alarm is worked out from the time ENM inserted it, and alarms not found are counted as
+ * lost.
+ */
+public class AlarmLoadGenerator {
+    private final static Logger LOGGER = LoggerFactory.getLogger(AlarmLoadGenerator.class);
+
+    private static final long SEND_WINDOW_MILLIS = 250;
+
+    private final NetSimAllocator allocator;
+    private final AlarmWaiter alarmWaiter;
+
+    /**
+     * @param allocator   Gives the NetSim host of each NE
+     * @param alarmWaiter Used to find the alarms in ENM
+     */
+    AlarmLoadGenerator(final NetSimAllocator allocator, final AlarmWaiter alarmWaiter) {
+        this.allocator = allocator;
+        this.alarmWaiter = alarmWaiter;
+    }
+
+    /**
+     * Send alarms round-robin across the NEs
+     *
+     * @param nes            NEs to send alarms from, they must have a default destination pointing to ENM
+     * @param ratePerSecond  Alarms to send per second, across all NEs
+     * @param durationMillis How long to send alarms for
+     * @return Throughput, loss and latency of the alarms
+     * @throws OperatorException Errors sending alarms
+     */
+    public AlarmLoadReport run(final List<NetSimNe> nes, final double ratePerSecond, final long durationMillis) throws OperatorException {
+        if (nes.isEmpty() || ratePerSecond <= 0) {
+            throw new OperatorException("Alarm load needs at least one NE and a positive rate");
+        }
+        final String runId = Long.toString(System.currentTimeMillis(), 36);
+        final int total = (int) Math.max(1, Math.round(ratePerSecond * durationMillis / 1000.0));
+        final double intervalMillis = 1000.0 / ratePerSecond;
+        LOGGER.info("Alarm load " + runId + ": " + total + " alarms at " + ratePerSecond + "/s from " + nes.size() + " NEs");
+
+        final String specificProblemPrefix = "TAF load " + runId + " ";
+        final ExecutorService senders = Executors.newCachedThreadPool();
+        final Map<String, NetSimBackend> sessions = new LinkedHashMap<>();
+        final AlarmLoadReport report = new AlarmLoadReport(runId);
+        final List<PendingAlarm> pending = new ArrayList<>(total);
+        try {
+            final long start = System.currentTimeMillis();
+            int next = 0;
+            while (next < total) {
+                final long windowEnd = System.currentTimeMillis() + SEND_WINDOW_MILLIS;
+                final Map<String, List<PendingAlarm>> batches = new LinkedHashMap<>();
+                while (next < total && start + (long) (next * intervalMillis) <= windowEnd) {
+                    final NetSimNe ne = nes.get(next % nes.size());
+                    final PendingAlarm alarm = new PendingAlarm(ne, specificProblemPrefix + next);
+                    batches.computeIfAbsent(ne.getHostname() + "/" + ne.getSimulation(), group -> new ArrayList<>()).add(alarm);
+                    next++;
+                }
+                sendBatches(batches, sessions, senders);
+                for (List<PendingAlarm> batch : batches.values()) {
+                    for (PendingAlarm alarm : batch) {
+                        report.sent(alarm.sentAt);
+                        pending.add(alarm);
+                    }
+                }
+                final long sleep = start + (long) (next * intervalMillis) - System.currentTimeMillis();
+                if (sleep > 0) {
+                    Thread.sleep(sleep);
+                }
+            }
+            LOGGER.info("Alarm load " + runId + ": all " + total + " alarms sent, waiting for them in ENM");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OperatorException("Interrupted running alarm load", e);
+        } catch (ExecutionException e) {
+            throw new OperatorException("Alarm load failed", e.getCause());
+        } finally {
+            senders.shutdownNow();
+            for (NetSimBackend session : sessions.values()) {
+                session.close();
+            }
+        }
+        reconcile(specificProblemPrefix, pending, report);
+        LOGGER.info("Alarm load result " + report);
+        return report;
+    }
+
+    /**
+     * Send each simulations alarms in one NetSim exec, simulations are sent in parallel on their own sessions.
+     * <p>
+     * NetSim runs the commands of an exec one after the other and only reports when all are done, so each alarm is
+     * taken to be sent at its own position in the exec, assuming the commands take the same time. Stamping the whole
+     * batch with the start of the exec would count the time NetSim spent on the alarms before it as ENM latency.
+     */
+    private void sendBatches(final Map<String, List<PendingAlarm>> batches, final Map<String, NetSimBackend> sessions,
+                             final ExecutorService senders) throws InterruptedException, ExecutionException, OperatorException {
+        final List<Future<?>> sends = new ArrayList<>();
+        for (Map.Entry<String, List<PendingAlarm>> batch : batches.entrySet()) {
+            final NetSimNe first = batch.getValue().get(0).ne;
+            NetSimBackend session = sessions.get(batch.getKey());
+            if (session == null) {
+                session = allocator.getSession(first.getHostname()).openBackend();
+                sessions.put(batch.getKey(), session);
+            }
+            final NetSimBackend groupSession = session;
+            sends.add(senders.submit(() -> {
+                final List<NetSimStep> commands = new ArrayList<>();
+                final List<Integer> positions = new ArrayList<>();
+                commands.add(NetSimStep.open(first.getSimulation()));
+                for (PendingAlarm alarm : batch.getValue()) {
+                    commands.add(NetSimStep.select(alarm.ne.getName()));
+                    commands.add(NetSimStep.sendAlarm(alarm.specificProblem));
+                    positions.add(commands.size());
+                }
+                final long start = System.currentTimeMillis();
+                groupSession.exec(commands);
+                final long elapsed = System.currentTimeMillis() - start;
+                for (int index = 0; index < positions.size(); index++) {
+                    batch.getValue().get(index).sentAt = start + elapsed * positions.get(index) / commands.size();
+                }
+                return null;
+            }));
+        }
+        for (Future<?> send : sends) {
+            send.get();
+        }
+    }
+
+    private void reconcile(final String specificProblemPrefix, final List<PendingAlarm> pending,
+                           final AlarmLoadReport report) throws OperatorException {
+        final Map<String, Long> sentAt = new LinkedHashMap<>();
+        for (PendingAlarm alarm : pending) {
+            sentAt.put(alarm.specificProblem, alarm.sentAt);
+        }
+        final Map<String, AlarmWaiter.AlarmArrival> arrivals = alarmWaiter.awaitAll(specificProblemPrefix, sentAt);
+        for (PendingAlarm alarm : pending) {
+            final AlarmWaiter.AlarmArrival arrival = arrivals.get(alarm.specificProblem);
+            if (arrival != null) {
+                if (arrival.getLatencyMillis() < 0) {
+                    LOGGER.warn("Alarm '" + alarm.specificProblem + "' from " + alarm.ne.getName() + " inserted " +
+                            -arrival.getLatencyMillis() + "mSec before it was sent, left out of the latency");
+                }
+                report.received(arrival.getLatencyMillis(), alarm.sentAt + arrival.getLatencyMillis());
+            } else {
+                LOGGER.warn("Alarm '" + alarm.specificProblem + "' from " + alarm.ne.getName() + " lost");
+                report.lost(alarm.ne.getName() + ":" + alarm.specificProblem);
+            }
+        }
+    }
+
+    private static final class PendingAlarm {
+        private final NetSimNe ne;
+        private final String specificProblem;
+        private volatile long sentAt;
+
+        private PendingAlarm(final NetSimNe ne, final String specificProblem) {
+            this.ne = ne;
+            this.specificProblem = specificProblem;
+        }
+    }
+
+    /**
+     * Outcome of an alarm load run
+     */
+    public static class AlarmLoadReport {
+        private final String runId;
+        private final LatencyStats latency = new LatencyStats();
+        private final List<String> lostAlarms = new ArrayList<>();
+        private int sent;
+        private int received;
+        private int negativeLatencies;
+        private long firstSent = Long.MAX_VALUE;
+        private long lastSent;
+        private long lastReceived;
+
+        AlarmLoadReport(final String runId) {
+            this.runId = runId;
+        }
+
+        synchronized void sent(final long sentAt) {
+            sent++;
+            firstSent = Math.min(firstSent, sentAt);
+            lastSent = Math.max(lastSent, sentAt);
+        }
+
+        /**
+         * @param latencyMillis Latency of the alarm, a negative one is only counted since it can only come from clock
+         *                      skew and would skew the percentiles
+         * @param receivedAt    When ENM inserted the alarm, by the local clock
+         */
+        synchronized void received(final long latencyMillis, final long receivedAt) {
+            received++;
+            if (latencyMillis < 0) {
+                negativeLatencies++;
+            } else {
+                latency.add(latencyMillis);
+            }
+            lastReceived = Math.max(lastReceived, receivedAt);
+        }
+
+        synchronized void lost(final String alarm) {
+            lostAlarms.add(alarm);
+        }
+
+        public String getRunId() {
+            return runId;
+        }
+
+        public synchronized int getSent() {
+            return sent;
+        }
+
+        public synchronized int getReceived() {
+            return received;
+        }
+
+        /**
+         * @return Alarms received with a negative latency, left out of {@link #getLatency()}
+         */
+        public synchronized int getNegativeLatencies() {
+            return negativeLatencies;
+        }
+
+        public synchronized List<String> getLostAlarms() {
+            return new ArrayList<>(lostAlarms);
+        }
+
+        /**
+         * @return Fraction (0..1) of sent alarms not found in ENM
+         */
+        public synchronized double getLossRatio() {
+            return sent == 0 ? 0 : lostAlarms.size() / (double) sent;
+        }
+
+        /**
+         * @return Alarms sent per second
+         */
+        public synchronized double getSendRate() {
+            final long window = lastSent - firstSent;
+            return window <= 0 ? sent : sent * 1000.0 / window;
+        }
+
+        /**
+         * @return Alarms found in ENM per second, from the first alarm sent to the last one found
+         */
+        public synchronized double getReceiveRate() {
+            final long window = lastReceived - firstSent;
+            return window <= 0 ? received : received * 1000.0 / window;
+        }
+
+        public LatencyStats getLatency() {
+            return latency;
+        }
+
+        @Override
+        public synchronized String toString() {
+            return String.format("run=%s sent=%d received=%d lost=%d (%.2f%%) send-rate=%.1f/s receive-rate=%.1f/s latency[%s] negative-latency=%d",
+                    runId, sent, received, lostAlarms.size(), getLossRatio() * 100, getSendRate(), getReceiveRate(), latency,
+                    negativeLatencies);
+        }
+    }
+}
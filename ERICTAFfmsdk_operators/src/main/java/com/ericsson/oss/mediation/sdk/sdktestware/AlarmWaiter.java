@@ -0,0 +1,342 @@
+package com.ericsson.oss.mediation.sdk.sdktestware;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Waits for an alarm sent from a NetSim node to show up in ENM.
+ * <p>
+ * The 'alarm get' query is re-sent on a backoff schedule until the expected number of alarms are found or the
+ * deadline passes. The latency of an alarm is taken from the time ENM inserted it (or, failing that, its event time)
+ * as listed by the query, so it doesn't depend on how often or how late the query is sent; only when the output gives
+ * neither is the time the alarm was found used instead. ENM times are moved to the local clock with the offset
+ * estimated by {@link EnmClock}, so skew between ENM and the test host doesn't end up in the latency.
+ */
+public class AlarmWaiter {
+    private final static Logger LOGGER = LoggerFactory.getLogger(AlarmWaiter.class);
+
+    static final String TOTAL_ALARMS_PREFIX = "Total number of alarms fetched for the given query is :";
+
+    private static final String ATTRIBUTE_SEPARATOR = " : ";
+    private static final String NODE_NAME = "nodename";
+    private static final String SPECIFIC_PROBLEM = "specificproblem";
+    private static final String INSERT_TIME = "inserttime";
+    private static final String EVENT_TIME = "eventtime";
+    private static final DateTimeFormatter LOCAL_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss[.SSS]");
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("EEE MMM dd HH:mm:ss zzz yyyy", Locale.ENGLISH);
+
+    private final CommandPipeline.CommandRunner queryRunner;
+    private final EnmClock enmClock;
+    private final long timeoutMillis;
+    private final Backoff backoff;
+
+    /**
+     * @param queryRunner   Runs an 'alarm get' command and returns its JSON output
+     * @param enmClock      Offset of the ENM clock, kept up to date by the query responses
+     * @param timeoutMillis How long to wait for an alarm
+     * @param backoff       Delays between queries
+     */
+    AlarmWaiter(final CommandPipeline.CommandRunner queryRunner, final EnmClock enmClock, final long timeoutMillis,
+                final Backoff backoff) {
+        this.queryRunner = queryRunner;
+        this.enmClock = enmClock;
+        this.timeoutMillis = timeoutMillis;
+        this.backoff = backoff;
+    }
+
+    /**
+     * Get the 'alarm get' command for alarms with a specific problem on a node
+     *
+     * @param neName          Node name
+     * @param specificProblem Specific problem of the alarm
+     * @return command
+     */
+    static String alarmQuery(final String neName, final String specificProblem) {
+        return "alarm get " + neName + " -sp \"" + specificProblem + "\"";
+    }
+
+    /**
+     * Get the 'alarm get' command for alarms on any node whose specific problem starts with a prefix
+     *
+     * @param specificProblemPrefix Start of the specific problem
+     * @return command
+     */
+    static String alarmPrefixQuery(final String specificProblemPrefix) {
+        return "alarm get * -sp \"" + specificProblemPrefix + "*\"";
+    }
+
+    /**
+     * Get the number of alarms reported by 'alarm get' output
+     *
+     * @param response 'alarm get' JSON output
+     * @return number of alarms, 0 if the output has no total
+     * @throws OperatorException The output could not be parsed
+     */
+    static int alarmCount(final String response) throws OperatorException {
+        final String total = ScriptEngineResponseReader.lastLineStartingWith(response, "Total number");
+        final int separator = total.lastIndexOf(':');
+        if (separator < 0) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(total.substring(separator + 1).trim());
+        } catch (NumberFormatException e) {
+            throw new OperatorException("Unexpected alarm total '" + total + "'", e);
+        }
+    }
+
+    /**
+     * Get the alarms listed by 'alarm get' output, each alarm is a run of "attribute : value" lines
+     *
+     * @param response 'alarm get' JSON output
+     * @return alarms with a specific problem, in the order listed
+     * @throws OperatorException The output could not be parsed
+     */
+    static List<RaisedAlarm> alarms(final String response) throws OperatorException {
+        final List<RaisedAlarm> alarms = new ArrayList<>();
+        final Map<String, String> attributes = new LinkedHashMap<>();
+        ScriptEngineResponseReader.readLines(response, (dtoType, value) -> {
+            final int separator = value == null ? -1 : value.indexOf(ATTRIBUTE_SEPARATOR);
+            if (!"line".equalsIgnoreCase(dtoType) || separator < 0 || value.startsWith(TOTAL_ALARMS_PREFIX)) {
+                return true;
+            }
+            final String name = value.substring(0, separator).replace(" ", "").toLowerCase(Locale.ROOT);
+            if (attributes.containsKey(name)) {
+                addAlarm(alarms, attributes);
+            }
+            attributes.put(name, value.substring(separator + ATTRIBUTE_SEPARATOR.length()).trim());
+            return true;
+        });
+        addAlarm(alarms, attributes);
+        return alarms;
+    }
+
+    private static void addAlarm(final List<RaisedAlarm> alarms, final Map<String, String> attributes) {
+        final String specificProblem = attributes.get(SPECIFIC_PROBLEM);
+        if (specificProblem != null) {
+            Long enmTime = toMillis(attributes.get(INSERT_TIME));
+            if (enmTime == null) {
+                enmTime = toMillis(attributes.get(EVENT_TIME));
+            }
+            alarms.add(new RaisedAlarm(attributes.get(NODE_NAME), specificProblem, enmTime));
+        }
+        attributes.clear();
+    }
+
+    /**
+     * Read an alarm time: epoch milliseconds, ISO-8601, "yyyy-MM-dd HH:mm:ss[.SSS]" in the fm.alarm.timeZone zone
+     * or the "EEE MMM dd HH:mm:ss zzz yyyy" layout of java.util.Date
+     */
+    private static Long toMillis(final String time) {
+        if (time == null || time.isEmpty()) {
+            return null;
+        }
+        try {
+            return Long.parseLong(time);
+        } catch (NumberFormatException e) {
+            // not epoch milliseconds
+        }
+        try {
+            return OffsetDateTime.parse(time).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            // not ISO-8601 with an offset
+        }
+        try {
+            return LocalDateTime.parse(time, LOCAL_TIME).atZone(ZoneId.of(Flags.fmAlarmTimeZone())).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            // not a local time
+        }
+        try {
+            return ZonedDateTime.parse(time, DATE_TIME).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            LOGGER.debug("Unknown alarm time format '{}'", time);
+            return null;
+        }
+    }
+
+    /**
+     * Wait until at least {@code expectedCount} alarms with a specific problem exist on a node
+     *
+     * @param neName          Node name
+     * @param specificProblem Alarm specific problem
+     * @param expectedCount   Number of alarms to wait for
+     * @param sentAtMillis    When the alarm was sent, used to work out the latency
+     * @return Details on when the alarm arrived
+     * @throws OperatorException The alarm did not arrive before the deadline, or the query failed
+     */
+    public AlarmArrival await(final String neName, final String specificProblem, final int expectedCount,
+                              final long sentAtMillis) throws OperatorException {
+        final String query = alarmQuery(neName, specificProblem);
+        final Poller.PollResult<String> result = Poller.poll("alarm '" + specificProblem + "' on " + neName,
+                timeoutMillis, backoff.copy(), () -> {
+                    final String response = queryRunner.run(query);
+                    return alarmCount(response) >= expectedCount ? response : null;
+                });
+        final long foundAt = System.currentTimeMillis();
+        Long arrivedAt = null;
+        for (RaisedAlarm alarm : alarms(result.getValue())) {
+            if (specificProblem.equals(alarm.getSpecificProblem()) && alarm.getEnmTimeMillis() != null) {
+                arrivedAt = arrivedAt == null ? alarm.getEnmTimeMillis() : Math.max(arrivedAt, alarm.getEnmTimeMillis());
+            }
+        }
+        final AlarmArrival arrival = new AlarmArrival(neName, specificProblem, alarmCount(result.getValue()),
+                result.getPolls(), (arrivedAt == null ? foundAt : enmClock.toLocal(arrivedAt)) - sentAtMillis);
+        if (arrival.getLatencyMillis() < 0) {
+            LOGGER.warn("Alarm arrived before it was sent {}, ENM clock {}", arrival, enmClock);
+        } else {
+            LOGGER.info("Alarm arrived {}", arrival);
+        }
+        return arrival;
+    }
+
+    /**
+     * Wait for many alarms with a single query, e.g. every alarm of a load run, rather than one query per alarm
+     *
+     * @param specificProblemPrefix Start shared by the specific problems of all the alarms, and no other alarms
+     * @param sentAtMillis          When each alarm was sent, by specific problem
+     * @return Arrival of each alarm found before the deadline, by specific problem, the others were lost
+     * @throws OperatorException The query failed or the wait was interrupted
+     */
+    public Map<String, AlarmArrival> awaitAll(final String specificProblemPrefix, final Map<String, Long> sentAtMillis)
+            throws OperatorException {
+        final String query = alarmPrefixQuery(specificProblemPrefix);
+        final Backoff delays = backoff.copy();
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        final Map<String, AlarmArrival> arrivals = new LinkedHashMap<>();
+        int polls = 0;
+        while (arrivals.size() < sentAtMillis.size()) {
+            polls++;
+            final List<RaisedAlarm> alarms = alarms(queryRunner.run(query));
+            final long foundAt = System.currentTimeMillis();
+            for (RaisedAlarm alarm : alarms) {
+                final Long sentAt = sentAtMillis.get(alarm.getSpecificProblem());
+                if (sentAt != null && !arrivals.containsKey(alarm.getSpecificProblem())) {
+                    final long arrivedAt = alarm.getEnmTimeMillis() == null ? foundAt : enmClock.toLocal(alarm.getEnmTimeMillis());
+                    arrivals.put(alarm.getSpecificProblem(),
+                            new AlarmArrival(alarm.getNeName(), alarm.getSpecificProblem(), 1, polls, arrivedAt - sentAt));
+                }
+            }
+            final long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (arrivals.size() == sentAtMillis.size() || remainingMillis <= 0) {
+                break;
+            }
+            try {
+                Thread.sleep(Math.min(remainingMillis, delays.nextDelayMillis()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new OperatorException("Interrupted waiting for alarms '" + specificProblemPrefix + "'", e);
+            }
+        }
+        LOGGER.info("Found {} of {} alarms '{}' after {} queries, ENM clock {}", arrivals.size(), sentAtMillis.size(),
+                specificProblemPrefix, polls, enmClock);
+        return arrivals;
+    }
+
+    /**
+     * An alarm listed by 'alarm get'
+     */
+    public static class RaisedAlarm {
+        private final String neName;
+        private final String specificProblem;
+        private final Long enmTimeMillis;
+
+        RaisedAlarm(final String neName, final String specificProblem, final Long enmTimeMillis) {
+            this.neName = neName;
+            this.specificProblem = specificProblem;
+            this.enmTimeMillis = enmTimeMillis;
+        }
+
+        public String getNeName() {
+            return neName;
+        }
+
+        public String getSpecificProblem() {
+            return specificProblem;
+        }
+
+        /**
+         * @return When ENM inserted the alarm, or its event time, {@code null} if the output gave neither
+         */
+        public Long getEnmTimeMillis() {
+            return enmTimeMillis;
+        }
+
+        @Override
+        public String toString() {
+            return neName + " '" + specificProblem + "' at " + (enmTimeMillis == null ? "?" : Instant.ofEpochMilli(enmTimeMillis));
+        }
+    }
+
+    /**
+     * When an alarm was found in ENM
+     */
+    public static class AlarmArrival {
+        private final String neName;
+        private final String specificProblem;
+        private final int count;
+        private final int polls;
+        private final long latencyMillis;
+
+        AlarmArrival(final String neName, final String specificProblem, final int count, final int polls, final long latencyMillis) {
+            this.neName = neName;
+            this.specificProblem = specificProblem;
+            this.count = count;
+            this.polls = polls;
+            this.latencyMillis = latencyMillis;
+        }
+
+        public String getNeName() {
+            return neName;
+        }
+
+        public String getSpecificProblem() {
+            return specificProblem;
+        }
+
+        /**
+         * @return Number of alarms found by the last query
+         */
+        public int getCount() {
+            return count;
+        }
+
+        public int getPolls() {
+            return polls;
+        }
+
+        /**
+         * @return Time from the alarm being sent to ENM inserting it, by the test host clock; accurate to the ENM clock
+         * offset estimate, or to the delay between queries when the output has no alarm times. Can be negative when the
+         * offset estimate is off by more than the latency.
+         */
+        public long getLatencyMillis() {
+            return latencyMillis;
+        }
+
+        /**
+         * @return The query total line, as reported by 'alarm get'
+         */
+        public String getTotalLine() {
+            return TOTAL_ALARMS_PREFIX + count;
+        }
+
+        @Override
+        public String toString() {
+            return neName + " '" + specificProblem + "' count=" + count + " polls=" + polls + " latency=" + latencyMillis + "mSec";
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.ericsson.oss.mediation.sdk.sdktestware;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Exponential backoff with jitter, used to space out repeated polls of a remote service.
+ */
+public class Backoff {
+    private final long initialDelayMillis;
+    private final long maxDelayMillis;
+    private final double multiplier;
+    private final double jitter;
+
+    private long nextDelayMillis;
+
+    /**
+     * @param initialDelayMillis Delay before the second attempt
+     * @param maxDelayMillis     Upper limit of the delay between attempts
+     * @param multiplier         Factor the delay grows by after each attempt
+     * @param jitter             Random fraction (0..1) the delay is varied by, spreads out concurrent pollers
+     */
+    public Backoff(final long initialDelayMillis, final long maxDelayMillis, final double multiplier, final double jitter) {
+        this.initialDelayMillis = Math.max(1, initialDelayMillis);
+        this.maxDelayMillis = Math.max(this.initialDelayMillis, maxDelayMillis);
+        this.multiplier = Math.max(1.0, multiplier);
+        this.jitter = Math.min(1.0, Math.max(0.0, jitter));
+        this.nextDelayMillis = this.initialDelayMillis;
+    }
+
+    /**
+     * Get a new Backoff with the same settings, starting from the initial delay
+     *
+     * @return Backoff
+     */
+    public Backoff copy() {
+        return new Backoff(initialDelayMillis, maxDelayMillis, multiplier, jitter);
+    }
+
+    /**
+     * Get the delay to wait before the next attempt and grow the delay for the one after.
+     *
+     * @return delay in milliseconds
+     */
+    public long nextDelayMillis() {
+        final long base = nextDelayMillis;
+        nextDelayMillis = Math.min(maxDelayMillis, (long) (nextDelayMillis * multiplier));
+        if (jitter == 0) {
+            return base;
+        }
+        final double factor = 1.0 - jitter + ThreadLocalRandom.current().nextDouble() * 2 * jitter;
+        return Math.max(1, (long) (base * factor));
+    }
+}
@@ -0,0 +1,182 @@
+package com.ericsson.oss.mediation.sdk.sdktestware;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A 3GPP bulk CM import file that creates nodes: the SubNetwork, the NetworkElement and its
+ * GenericSnmpNodeConnectivityInformation, the same MOs the per node 'cmedit create' commands set up.
+ * <p>
+ * The file is written element by element with an {@link XMLStreamWriter}, no document is built in memory, so files
+ * for thousands of nodes cost little more than the text itself.
+ */
+public class BulkCmImportFile {
+    private static final String CONFIG_DATA_NS = "configData.xsd";
+    private static final String GENERIC_NRM_NS = "genericNrm.xsd";
+    private static final String ERICSSON_NS = "EricssonSpecificAttributes.xsd";
+    private static final String NE_DEF_VERSION = "OSS_NE_DEF.2.0.0";
+    private static final String SNMP_MED_NAMESPACE = "GEN_SNMP_MED.";
+    private static final String SNMP_COMMUNITY = "public";
+
+    private final List<Node> nodes = new ArrayList<>();
+
+    /**
+     * Add a node
+     *
+     * @param neName          NetworkElement name
+     * @param neType          NetworkElement type
+     * @param neVersion       GEN_SNMP_MED model version of the connectivity information
+     * @param ip              Node address
+     * @param withSubNetwork  Also create a SubNetwork named after the node and use it as the OSS prefix, as FM nodes do
+     * @param snmpAgentPort   SNMP agent port, {@code null} to leave the default
+     * @return this file
+     */
+    public BulkCmImportFile addNode(final String neName, final String neType, final String neVersion, final String ip,
+                                    final boolean withSubNetwork, final Integer snmpAgentPort) {
+        nodes.add(new Node(neName, neType, neVersion, ip, withSubNetwork, snmpAgentPort));
+        return this;
+    }
+
+    /**
+     * @return Number of nodes in the file
+     */
+    public int size() {
+        return nodes.size();
+    }
+
+    /**
+     * Write the file
+     *
+     * @param writer Where to write it, not closed
+     * @throws OperatorException The XML could not be written
+     */
+    public void writeTo(final Writer writer) throws OperatorException {
+        try {
+            final XMLStreamWriter xml = XMLOutputFactory.newInstance().createXMLStreamWriter(writer);
+            xml.setDefaultNamespace(CONFIG_DATA_NS);
+            xml.setPrefix("xn", GENERIC_NRM_NS);
+            xml.setPrefix("es", ERICSSON_NS);
+            xml.writeStartDocument("UTF-8", "1.0");
+            xml.writeStartElement("bulkCmConfigDataFile");
+            xml.writeDefaultNamespace(CONFIG_DATA_NS);
+            xml.writeNamespace("xn", GENERIC_NRM_NS);
+            xml.writeNamespace("es", ERICSSON_NS);
+            xml.writeEmptyElement("fileHeader");
+            xml.writeAttribute("fileFormatVersion", "32.615 V4.5");
+            xml.writeAttribute("vendorName", "Ericsson");
+            xml.writeStartElement("configData");
+            xml.writeAttribute("dnPrefix", "");
+            for (Node node : nodes) {
+                writeNode(xml, node);
+            }
+            xml.writeEndElement();
+            xml.writeEndElement();
+            xml.writeEndDocument();
+            xml.flush();
+            xml.close();
+        } catch (XMLStreamException e) {
+            throw new OperatorException("Error writing bulk CM import file for " + nodes.size() + " nodes", e);
+        }
+    }
+
+    /**
+     * Write the file to a string, for request bodies
+     *
+     * @return file content
+     * @throws OperatorException The XML could not be written
+     */
+    public String toXml() throws OperatorException {
+        // about 1100 characters per node, saves the writer growing its buffer for large node sets
+        final StringWriter writer = new StringWriter(512 + nodes.size() * 1200);
+        writeTo(writer);
+        return writer.toString();
+    }
+
+    private static void writeNode(final XMLStreamWriter xml, final Node node) throws XMLStreamException {
+        if (node.withSubNetwork) {
+            xml.writeStartElement(GENERIC_NRM_NS, "SubNetwork");
+            xml.writeAttribute("id", node.neName);
+            xml.writeAttribute("modifier", "create");
+            xml.writeEmptyElement(GENERIC_NRM_NS, "attributes");
+            xml.writeEndElement();
+        }
+
+        startVsData(xml, node.neName, "NetworkElement", NE_DEF_VERSION);
+        element(xml, "networkElementId", node.neName);
+        element(xml, "neType", node.neType);
+        if (node.withSubNetwork) {
+            element(xml, "ossPrefix", "SubNetwork=" + node.neName + ",MeContext=" + node.neName);
+        }
+        endVsDataAttributes(xml);
+
+        startVsData(xml, "1", "GenericSnmpNodeConnectivityInformation", SNMP_MED_NAMESPACE + node.neVersion);
+        element(xml, "genericSnmpNodeConnectivityInformationId", "1");
+        element(xml, "ipAddress", node.ip);
+        element(xml, "snmpVersion", "SNMP_V2C");
+        if (node.snmpAgentPort != null) {
+            element(xml, "snmpAgentPort", node.snmpAgentPort.toString());
+        }
+        element(xml, "snmpWriteCommunity", SNMP_COMMUNITY);
+        element(xml, "snmpReadCommunity", SNMP_COMMUNITY);
+        endVsDataAttributes(xml);
+        xml.writeEndElement();
+
+        xml.writeEndElement();
+    }
+
+    /**
+     * Open a VsDataContainer and its attributes, the caller writes the MO attributes
+     */
+    private static void startVsData(final XMLStreamWriter xml, final String id, final String type, final String formatVersion)
+            throws XMLStreamException {
+        xml.writeStartElement(GENERIC_NRM_NS, "VsDataContainer");
+        xml.writeAttribute("id", id);
+        xml.writeAttribute("modifier", "create");
+        xml.writeStartElement(GENERIC_NRM_NS, "attributes");
+        xml.writeStartElement(GENERIC_NRM_NS, "vsDataType");
+        xml.writeCharacters("vsData" + type);
+        xml.writeEndElement();
+        xml.writeStartElement(GENERIC_NRM_NS, "vsDataFormatVersion");
+        xml.writeCharacters(formatVersion);
+        xml.writeEndElement();
+        xml.writeStartElement(ERICSSON_NS, "vsData" + type);
+    }
+
+    /**
+     * Close the MO attributes opened by {@link #startVsData}, leaving the container open for children
+     */
+    private static void endVsDataAttributes(final XMLStreamWriter xml) throws XMLStreamException {
+        xml.writeEndElement();
+        xml.writeEndElement();
+    }
+
+    private static void element(final XMLStreamWriter xml, final String name, final String value) throws XMLStreamException {
+        xml.writeStartElement(ERICSSON_NS, name);
+        xml.writeCharacters(value);
+        xml.writeEndElement();
+    }
+
+    private static final class Node {
+        private final String neName;
+        private final String neType;
+        private final String neVersion;
+        private final String ip;
+        private final boolean withSubNetwork;
+        private final Integer snmpAgentPort;
+
+        private Node(final String neName, final String neType, final String neVersion, final String ip,
+                     final boolean withSubNetwork, final Integer snmpAgentPort) {
+            this.neName = neName;
+            this.neType = neType;
+            this.neVersion = neVersion;
+            this.ip = ip;
+            this.withSubNetwork = withSubNetwork;
+            this.snmpAgentPort = snmpAgentPort;
+        }
+    }
+}
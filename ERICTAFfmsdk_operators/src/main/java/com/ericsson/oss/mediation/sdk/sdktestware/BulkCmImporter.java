@@ -0,0 +1,221 @@
+package com.ericsson.oss.mediation.sdk.sdktestware;
+
+import com.ericsson.cifwk.taf.tools.http.HttpResponse;
+import com.ericsson.cifwk.taf.tools.http.constants.ContentType;
+import com.ericsson.cifwk.taf.tools.http.constants.HttpStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Runs a bulk CM import job through the ENM bulk configuration REST API.
+ * <p>
+ * The job is created, the file uploaded and the job invoked with one request each, then the job is polled on a
+ * backoff schedule until it has executed, logging how many operations are done at each poll.
+ */
+public class BulkCmImporter {
+    private final static Logger LOGGER = LoggerFactory.getLogger(BulkCmImporter.class);
+
+    static final String JOBS_URI = "/bulk-configuration/v1/import-jobs/jobs";
+
+    private final EnmClient enm;
+    private final long timeoutMillis;
+    private final Backoff backoff;
+
+    /**
+     * @param enm           ENM client to send the requests on
+     * @param timeoutMillis How long to wait for the job to execute
+     * @param backoff       Delays between job status polls
+     */
+    BulkCmImporter(final EnmClient enm, final long timeoutMillis, final Backoff backoff) {
+        this.enm = enm;
+        this.timeoutMillis = timeoutMillis;
+        this.backoff = backoff;
+    }
+
+    /**
+     * Import a file and wait for the job to finish
+     *
+     * @param jobName Job name, shown in the ENM import job list
+     * @param file    File to import
+     * @return The finished job
+     * @throws OperatorException A request failed, the job failed or it did not finish in time
+     */
+    public ImportJob importFile(final String jobName, final BulkCmImportFile file) throws OperatorException {
+        final long start = System.currentTimeMillis();
+        final Map<String, Object> job = new LinkedHashMap<>();
+        job.put("name", jobName);
+        job.put("configuration", "Live");
+        final String id = String.valueOf(post(JOBS_URI, toJson(job)).get("id"));
+        LOGGER.info("Created import job {} ({}) for {} nodes", jobName, id, file.size());
+
+        final String xml = file.toXml();
+        final HttpResponse upload = enm.execute(httpTool -> httpTool.request().
+                contentType(ContentType.MULTIPART_FORM_DATA).
+                body("filename", jobName + ".xml").
+                body("file", xml).
+                post(JOBS_URI + "/" + id + "/files"));
+        check(upload, "upload file to import job " + id);
+
+        post(JOBS_URI + "/" + id + "/invocations", "{\"invocationFlow\":\"validate-and-execute\"}");
+
+        final Poller.PollResult<ImportJob> result = Poller.poll("import job " + id, timeoutMillis, backoff.copy(), () -> {
+            final ImportJob status = status(id);
+            LOGGER.info("Import job {} {}: {} of {} operations executed, {} errors", id, status.getStatus(),
+                    status.getExecuted(), status.getTotal(), status.getErrors());
+            return status.isFinished() ? status : null;
+        });
+        final ImportJob finished = result.getValue();
+        finished.elapsedMillis = System.currentTimeMillis() - start;
+        finished.polls = result.getPolls();
+        if (!finished.isSuccess()) {
+            throw new OperatorException("Import job " + id + " ended " + finished);
+        }
+        LOGGER.info("Import job {} done: {}", id, finished);
+        return finished;
+    }
+
+    /**
+     * Get the current state of an import job
+     *
+     * @param id Job id
+     * @return job state
+     * @throws OperatorException The job could not be read
+     */
+    public ImportJob status(final String id) throws OperatorException {
+        final HttpResponse response = enm.execute(httpTool -> httpTool.request().get(JOBS_URI + "/" + id));
+        check(response, "read import job " + id);
+        final Map<String, Object> job = fromJson(response.getBody());
+        final Map<String, Object> total = totals(job);
+        return new ImportJob(id, String.valueOf(job.get("status")), number(total.get("parsed")),
+                number(total.get("executed")), number(total.get("executionErrors")) + number(total.get("invalid")));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> totals(final Map<String, Object> job) {
+        final Object summary = job.get("summary");
+        if (summary instanceof Map && ((Map<String, Object>) summary).get("total") instanceof Map) {
+            return (Map<String, Object>) ((Map<String, Object>) summary).get("total");
+        }
+        return new LinkedHashMap<>();
+    }
+
+    private static int number(final Object value) {
+        return value instanceof Number ? ((Number) value).intValue() : 0;
+    }
+
+    private Map<String, Object> post(final String uri, final String json) throws OperatorException {
+        final HttpResponse response = enm.execute(httpTool -> httpTool.request().
+                contentType(ContentType.APPLICATION_JSON).body(json).post(uri));
+        check(response, "POST " + uri);
+        final String body = response.getBody();
+        return body == null || body.isEmpty() ? new LinkedHashMap<>() : fromJson(body);
+    }
+
+    private static void check(final HttpResponse response, final String action) throws OperatorException {
+        final HttpStatus status = response.getResponseCode();
+        if (status != HttpStatus.OK && status != HttpStatus.CREATED && status != HttpStatus.ACCEPTED) {
+            throw new OperatorException("Failed to " + action + " : " + response.getStatusLine() + " " + response.getBody());
+        }
+    }
+
+    private static String toJson(final Object value) throws OperatorException {
+        try {
+            return ScriptEngineResponseReader.getMapper().writeValueAsString(value);
+        } catch (IOException e) {
+            throw new OperatorException("Error writing import job request", e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> fromJson(final String json) throws OperatorException {
+        try {
+            return ScriptEngineResponseReader.getMapper().readValue(json, Map.class);
+        } catch (IOException e) {
+            throw new OperatorException("Unexpected import job response " + json, e);
+        }
+    }
+
+    /**
+     * State of an import job
+     */
+    public static class ImportJob {
+        private final String id;
+        private final String status;
+        private final int total;
+        private final int executed;
+        private final int errors;
+        private long elapsedMillis;
+        private int polls;
+
+        ImportJob(final String id, final String status, final int total, final int executed, final int errors) {
+            this.id = id;
+            this.status = status;
+            this.total = total;
+            this.executed = executed;
+            this.errors = errors;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+
+        /**
+         * @return Operations parsed from the file
+         */
+        public int getTotal() {
+            return total;
+        }
+
+        public int getExecuted() {
+            return executed;
+        }
+
+        /**
+         * @return Operations that were invalid or failed to execute
+         */
+        public int getErrors() {
+            return errors;
+        }
+
+        /**
+         * @return Time from creating the job until it finished, 0 for a job that is still running
+         */
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        public int getPolls() {
+            return polls;
+        }
+
+        /**
+         * @return {@code true} once the job has stopped, whatever the outcome
+         */
+        public boolean isFinished() {
+            final String upper = status.toUpperCase(Locale.ROOT);
+            return upper.equals("EXECUTED") || upper.equals("CANCELLED") || upper.contains("FAIL") || upper.contains("ERROR");
+        }
+
+        /**
+         * @return {@code true} if the job executed every operation without errors
+         */
+        public boolean isSuccess() {
+            return status.equalsIgnoreCase("EXECUTED") && errors == 0;
+        }
+
+        @Override
+        public String toString() {
+            return status + ", " + executed + " of " + total + " operations executed, " + errors + " errors" +
+                    (elapsedMillis > 0 ? " in " + elapsedMillis + "mSec (" + polls + " polls)" : "");
+        }
+    }
+}
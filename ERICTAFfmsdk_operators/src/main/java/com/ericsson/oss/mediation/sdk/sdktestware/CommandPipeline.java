@@ -0,0 +1,163 @@
+package com.ericsson.oss.mediation.sdk.sdktestware;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Runs script-engine commands in ordered stages.
+ * <p>
+ * Commands in the same stage don't depend on each other and are sent, polled and fetched concurrently. A stage is
+ * only started once every command in the previous stage has completed without error, so dependencies (e.g. the
+ * NetworkElement must exist before its connectivity information is created) are kept by putting the dependent
+ * command in a later stage.
+ */
+public class CommandPipeline {
+    private final static Logger LOGGER = LoggerFactory.getLogger(CommandPipeline.class);
+
+    private final CommandRunner runner;
+    private final ExecutorService executor;
+    private final List<List<Step>> stages = new ArrayList<>();
+
+    CommandPipeline(final CommandRunner runner, final ExecutorService executor) {
+        this.runner = runner;
+        this.executor = executor;
+    }
+
+    /**
+     * Create a pipeline step
+     *
+     * @param description What the command does, used in error messages
+     * @param command     The command to execute
+     * @return Step
+     */
+    public static Step step(final String description, final String command) {
+        return new Step(description, command);
+    }
+
+    /**
+     * Add a stage of independent commands, run after all previously added stages
+     *
+     * @param steps Commands to run concurrently
+     * @return this pipeline
+     */
+    public CommandPipeline stage(final Step... steps) {
+        if (steps.length > 0) {
+            stages.add(Arrays.asList(steps));
+        }
+        return this;
+    }
+
+    /**
+     * Add all the stages of another pipeline after the stages of this one
+     *
+     * @param pipeline Stages to add
+     * @return this pipeline
+     */
+    public CommandPipeline then(final CommandPipeline pipeline) {
+        stages.addAll(pipeline.stages);
+        return this;
+    }
+
+    /**
+     * Run the stages in order
+     *
+     * @return Result line of each command, in the order they were added
+     * @throws OperatorException If any command fails, the remaining stages are not run
+     */
+    public Map<Step, String> execute() throws OperatorException {
+        final Map<Step, String> results = new LinkedHashMap<>();
+        for (List<Step> stage : stages) {
+            final Map<Step, Future<String>> futures = new LinkedHashMap<>();
+            for (Step step : stage) {
+                futures.put(step, executor.submit(() -> {
+                    try {
+                        return runner.run(step.getCommand());
+                    } finally {
+                        step.completed();
+                    }
+                }));
+            }
+
+            final List<String> errors = new ArrayList<>();
+            Throwable failure = null;
+            for (Map.Entry<Step, Future<String>> entry : futures.entrySet()) {
+                final Step step = entry.getKey();
+                try {
+                    final String response = entry.getValue().get();
+                    results.put(step, response);
+                    if (response.contains("Error")) {
+                        LOGGER.error("Error in " + step.getDescription() + " : " + response);
+                        errors.add("Error in " + step.getDescription() + " Error:" + response);
+                    }
+                } catch (ExecutionException e) {
+                    LOGGER.error("Error in " + step.getDescription(), e.getCause());
+                    errors.add("Error in " + step.getDescription() + " Error:" + e.getCause().getMessage());
+                    failure = e.getCause();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new OperatorException("Interrupted waiting for " + step.getDescription(), e);
+                }
+            }
+            if (!errors.isEmpty()) {
+                throw new OperatorException(String.join("; ", errors), failure);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Executes a command and returns its result line
+     */
+    interface CommandRunner {
+        String run(String command) throws OperatorException;
+    }
+
+    public static class Step {
+        private final String description;
+        private final String command;
+        private Runnable onCompletion;
+
+        Step(final String description, final String command) {
+            this.description = description;
+            this.command = command;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        public String getCommand() {
+            return command;
+        }
+
+        /**
+         * @param action Run once the command has been sent, whatever its result, also if it failed or timed out since
+         *               it may still have been executed, e.g. to drop cached state
+         * @return this step
+         */
+        public Step onCompletion(final Runnable action) {
+            this.onCompletion = action;
+            return this;
+        }
+
+        private void completed() {
+            if (onCompletion != null) {
+                onCompletion.run();
+            }
+        }
+
+        @Override
+        public String toString() {
+            return description + " -> " + command;
+        }
+    }
+}
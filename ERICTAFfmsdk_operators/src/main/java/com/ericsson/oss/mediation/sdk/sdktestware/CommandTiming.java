@@ -0,0 +1,61 @@
+package com.ericsson.oss.mediation.sdk.sdktestware;
+
+/**
+ * How a script-engine command was processed by ENM: number of status polls and time spent queued and running.
+ */
+public class CommandTiming {
+    private final String command;
+    private final String requestId;
+    private final long submitTime = System.currentTimeMillis();
+    private int polls;
+    private long queuedMillis;
+    private long runningMillis;
+
+    CommandTiming(final String command, final String requestId) {
+        this.command = command;
+        this.requestId = requestId;
+    }
+
+    void completed(final int polls, final long queuedMillis, final long totalMillis) {
+        this.polls = polls;
+        this.queuedMillis = queuedMillis;
+        this.runningMillis = Math.max(0, totalMillis - queuedMillis);
+    }
+
+    public String getCommand() {
+        return command;
+    }
+
+    public String getRequestId() {
+        return requestId;
+    }
+
+    long getSubmitTime() {
+        return submitTime;
+    }
+
+    public int getPolls() {
+        return polls;
+    }
+
+    /**
+     * @return Time until the last poll that saw the command still waiting to be executed
+     */
+    public long getQueuedMillis() {
+        return queuedMillis;
+    }
+
+    public long getRunningMillis() {
+        return runningMillis;
+    }
+
+    public long getTotalMillis() {
+        return queuedMillis + runningMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "'" + command + "' [" + requestId + "] polls=" + polls + " queued=" + queuedMillis +
+                "mSec running=" + runningMillis + "mSec";
+    }
+}
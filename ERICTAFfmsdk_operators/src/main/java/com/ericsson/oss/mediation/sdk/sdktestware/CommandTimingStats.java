@@ -0,0 +1,94 @@
+package com.ericsson.oss.mediation.sdk.sdktestware;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Timings of script-engine commands: totals over every command, and the most recent commands one by one.
+ * <p>
+ * Only a fixed number of individual timings is kept, so bulk provisioning of thousands of nodes doesn't grow the
+ * history without limit. Safe to add timings from several threads.
+ */
+public class CommandTimingStats {
+    private final int capacity;
+    private final Deque<CommandTiming> recent;
+    private long count;
+    private long polls;
+    private long queuedMillis;
+    private long runningMillis;
+    private long maxTotalMillis;
+
+    /**
+     * @param capacity Number of individual timings to keep
+     */
+    CommandTimingStats(final int capacity) {
+        this.capacity = Math.max(1, capacity);
+        this.recent = new ArrayDeque<>(this.capacity);
+    }
+
+    synchronized void add(final CommandTiming timing) {
+        if (recent.size() == capacity) {
+            recent.removeFirst();
+        }
+        recent.addLast(timing);
+        count++;
+        polls += timing.getPolls();
+        queuedMillis += timing.getQueuedMillis();
+        runningMillis += timing.getRunningMillis();
+        maxTotalMillis = Math.max(maxTotalMillis, timing.getTotalMillis());
+    }
+
+    /**
+     * @return The most recent timings, oldest first, a copy that isn't updated
+     */
+    public synchronized List<CommandTiming> getRecent() {
+        return Collections.unmodifiableList(new ArrayList<>(recent));
+    }
+
+    /**
+     * @return Number of commands completed
+     */
+    public synchronized long getCount() {
+        return count;
+    }
+
+    /**
+     * @return Status polls of all commands
+     */
+    public synchronized long getPolls() {
+        return polls;
+    }
+
+    /**
+     * @return Time all commands spent queued
+     */
+    public synchronized long getQueuedMillis() {
+        return queuedMillis;
+    }
+
+    /**
+     * @return Time all commands spent running
+     */
+    public synchronized long getRunningMillis() {
+        return runningMillis;
+    }
+
+    /**
+     * @return Longest time any one command took to complete
+     */
+    public synchronized long getMaxTotalMillis() {
+        return maxTotalMillis;
+    }
+
+    @Override
+    public synchronized String toString() {
+        if (count == 0) {
+            return "no commands";
+        }
+        return count + " commands, polls=" + polls + " mean queued=" + queuedMillis / count + "mSec mean running=" +
+                runningMillis / count + "mSec max=" + maxTotalMillis + "mSec";
+    }
+}
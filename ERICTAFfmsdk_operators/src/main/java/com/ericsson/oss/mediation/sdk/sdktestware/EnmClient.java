@@ -0,0 +1,55 @@
+package com.ericsson.oss.mediation.sdk.sdktestware;
+
+import com.ericsson.cifwk.taf.tools.http.HttpResponse;
+
+/**
+ * Sends requests to ENM as one or more logged in users.
+ */
+public interface EnmClient extends AutoCloseable {
+
+    /**
+     * Make sure the client can log in, fails early if the credentials are wrong.
+     *
+     * @throws OperatorException Login failed
+     */
+    void connect() throws OperatorException;
+
+    /**
+     * Send a request as any of the client's users
+     *
+     * @param request The request to send
+     * @return The response
+     * @throws OperatorException Any errors getting a connection or logging in
+     */
+    HttpResponse execute(EnmSession.EnmRequest request) throws OperatorException;
+
+    /**
+     * Run requests that must all be sent as the same user, e.g. a script-engine command and the polls for its output
+     *
+     * @param work The requests, sent on the session given to it
+     * @param <T>  Result type
+     * @return What the work returned
+     * @throws OperatorException Any errors from the work
+     */
+    <T> T withUser(UserWork<T> work) throws OperatorException;
+
+    String getAddress();
+
+    /**
+     * @return Maximum number of requests the client sends at once
+     */
+    int getConcurrency();
+
+    /**
+     * Log out all users
+     */
+    @Override
+    void close();
+
+    /**
+     * Requests sent as one user
+     */
+    interface UserWork<T> {
+        T run(EnmSession session) throws OperatorException;
+    }
+}
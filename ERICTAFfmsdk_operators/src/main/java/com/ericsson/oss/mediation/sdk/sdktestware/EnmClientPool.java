@@ -0,0 +1,278 @@
+package com.ericsson.oss.mediation.sdk.sdktestware;
+
+import com.ericsson.cifwk.taf.tools.http.HttpResponse;
+import com.ericsson.oss.testware.hostconfigurator.HostConfigurator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ENM client that spreads requests across several logged in test users.
+ * <p>
+ * ENM throttles script-engine commands per user, so parallel work sent as one user queues behind itself. Each user
+ * here has its own {@link EnmSession} and may have a limited number of requests in flight; a request goes to the next
+ * user in turn that has room, and waits for its turn user only when every user is busy. Requests, failures and busy
+ * time are counted per user so the throughput each one got can be reported.
+ */
+public class EnmClientPool implements EnmClient {
+    private final static Logger LOGGER = LoggerFactory.getLogger(EnmClientPool.class);
+
+    private static final long ACQUIRE_TIMEOUT_SECONDS = 300;
+
+    private static EnmClientPool shared;
+
+    private final List<User> users = new ArrayList<>();
+    private final int perUserConcurrency;
+    private final AtomicInteger next = new AtomicInteger();
+
+    /**
+     * @param sessions           One session per user, each able to send at least {@code perUserConcurrency} requests
+     * @param perUserConcurrency Maximum number of requests in flight per user
+     */
+    public EnmClientPool(final List<EnmSession> sessions, final int perUserConcurrency) {
+        if (sessions.isEmpty()) {
+            throw new IllegalArgumentException("No ENM users");
+        }
+        this.perUserConcurrency = Math.max(1, perUserConcurrency);
+        for (EnmSession session : sessions) {
+            users.add(new User(session, this.perUserConcurrency));
+        }
+    }
+
+    /**
+     * Get the ENM client shared by all operators: a pool of the enm.users test users if any are set, otherwise the
+     * shared single user {@link EnmSession}.
+     *
+     * @return shared client
+     */
+    public static synchronized EnmClient shared() {
+        final List<String> entries = Flags.enmUsers();
+        if (entries.isEmpty()) {
+            return EnmSession.shared();
+        }
+        if (shared == null) {
+            final int concurrency = Flags.enmUserConcurrency();
+            final List<EnmSession> sessions = new ArrayList<>();
+            for (String entry : entries) {
+                final int colon = entry.indexOf(':');
+                final String user = colon < 0 ? entry : entry.substring(0, colon);
+                final String password = colon < 0 ? Flags.enmPassword() : entry.substring(colon + 1);
+                sessions.add(new EnmSession(HostConfigurator.getApache(), user, password, concurrency));
+            }
+            shared = new EnmClientPool(sessions, concurrency);
+        }
+        return shared;
+    }
+
+    /**
+     * Log out and close the shared client, whichever kind was created.
+     */
+    public static synchronized void closeShared() {
+        if (shared != null) {
+            shared.close();
+            shared = null;
+        }
+        EnmSession.closeShared();
+    }
+
+    /**
+     * Log in every user, fails early if any credentials are wrong.
+     *
+     * @throws OperatorException Login failed
+     */
+    @Override
+    public void connect() throws OperatorException {
+        for (User user : users) {
+            user.session.connect();
+        }
+    }
+
+    @Override
+    public HttpResponse execute(final EnmSession.EnmRequest request) throws OperatorException {
+        return withUser(session -> session.execute(request));
+    }
+
+    /**
+     * Run the work as the next user with room for another request, counting it against that user
+     */
+    @Override
+    public <T> T withUser(final UserWork<T> work) throws OperatorException {
+        final User user = acquire();
+        final long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            final T result = work.run(user.session);
+            failed = false;
+            return result;
+        } finally {
+            user.completed(System.nanoTime() - start, failed);
+            user.permits.release();
+        }
+    }
+
+    @Override
+    public String getAddress() {
+        return users.get(0).session.getAddress();
+    }
+
+    @Override
+    public int getConcurrency() {
+        return users.size() * perUserConcurrency;
+    }
+
+    /**
+     * Get the work done by each user so far
+     *
+     * @return Statistics, in user order
+     */
+    public List<UserStats> getStats() {
+        final List<UserStats> stats = new ArrayList<>(users.size());
+        for (User user : users) {
+            stats.add(user.stats());
+        }
+        return stats;
+    }
+
+    /**
+     * Log the work done by each user so far
+     */
+    public void logStats() {
+        for (UserStats stats : getStats()) {
+            LOGGER.info("ENM user {}", stats);
+        }
+    }
+
+    /**
+     * Log the statistics and log out all users
+     */
+    @Override
+    public void close() {
+        logStats();
+        for (User user : users) {
+            user.session.close();
+        }
+    }
+
+    private User acquire() throws OperatorException {
+        final int first = Math.floorMod(next.getAndIncrement(), users.size());
+        for (int i = 0; i < users.size(); i++) {
+            final User user = users.get((first + i) % users.size());
+            if (user.permits.tryAcquire()) {
+                return user;
+            }
+        }
+        final User user = users.get(first);
+        try {
+            if (!user.permits.tryAcquire(ACQUIRE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                throw new OperatorException("No ENM user free after " + ACQUIRE_TIMEOUT_SECONDS + " seconds");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OperatorException("Interrupted waiting for an ENM user", e);
+        }
+        return user;
+    }
+
+    private static final class User {
+        private final EnmSession session;
+        private final Semaphore permits;
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private final AtomicLong busyNanos = new AtomicLong();
+        private volatile long firstStart;
+        private volatile long lastEnd;
+
+        private User(final EnmSession session, final int concurrency) {
+            this.session = session;
+            this.permits = new Semaphore(concurrency, true);
+        }
+
+        private void completed(final long elapsedNanos, final boolean failed) {
+            final long now = System.currentTimeMillis();
+            synchronized (this) {
+                if (firstStart == 0) {
+                    firstStart = now - TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+                }
+                lastEnd = now;
+            }
+            requests.incrementAndGet();
+            busyNanos.addAndGet(elapsedNanos);
+            if (failed) {
+                failures.incrementAndGet();
+            }
+        }
+
+        private synchronized UserStats stats() {
+            return new UserStats(session.getUserName(), requests.get(), failures.get(),
+                    TimeUnit.NANOSECONDS.toMillis(busyNanos.get()), firstStart == 0 ? 0 : lastEnd - firstStart);
+        }
+    }
+
+    /**
+     * Work done by one user
+     */
+    public static class UserStats {
+        private final String userName;
+        private final long requests;
+        private final long failures;
+        private final long busyMillis;
+        private final long activeMillis;
+
+        UserStats(final String userName, final long requests, final long failures, final long busyMillis,
+                  final long activeMillis) {
+            this.userName = userName;
+            this.requests = requests;
+            this.failures = failures;
+            this.busyMillis = busyMillis;
+            this.activeMillis = activeMillis;
+        }
+
+        public String getUserName() {
+            return userName;
+        }
+
+        /**
+         * @return Requests sent as the user, a script-engine command with its polls counts as one
+         */
+        public long getRequests() {
+            return requests;
+        }
+
+        public long getFailures() {
+            return failures;
+        }
+
+        /**
+         * @return Total time of the user's requests, more than the elapsed time when they overlapped
+         */
+        public long getBusyMillis() {
+            return busyMillis;
+        }
+
+        /**
+         * @return Time from the start of the user's first request to the end of its last
+         */
+        public long getActiveMillis() {
+            return activeMillis;
+        }
+
+        /**
+         * @return Requests per second while the user was active
+         */
+        public double getThroughput() {
+            return activeMillis == 0 ? 0 : requests * 1000.0 / activeMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %d requests, %d failed, %.1f/sec over %d mSec, busy %d mSec", userName, requests,
+                    failures, getThroughput(), activeMillis, busyMillis);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.ericsson.oss.mediation.sdk.sdktestware;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Offset of the ENM clock from the clock of the test host, so times reported by ENM (e.g. when an alarm was inserted)
+ * can be compared with times taken locally.
+ * <p>
+ * Each response's HTTP Date header gives the ENM time to the second at some point between sending the request and
+ * getting the response, which bounds the offset. The bounds of all responses are intersected, so the estimate gets
+ * more accurate than the one second resolution of the header as responses come in. The offset used is the one
+ * within the bounds closest to zero, so clocks that agree as far as the headers can tell (e.g. both synchronized with
+ * NTP) aren't corrected at all. If a response doesn't fit the bounds so far, e.g. because either clock was stepped,
+ * the estimate starts again from that response.
+ */
+class EnmClock {
+    private final static Logger LOGGER = LoggerFactory.getLogger(EnmClock.class);
+
+    private static final long DATE_RESOLUTION_MILLIS = 1000;
+
+    private long minOffsetMillis;
+    private long maxOffsetMillis;
+    private int samples;
+
+    /**
+     * Narrow the offset with the Date header of a response
+     *
+     * @param date             Date header, in the RFC 1123 format, ignored if {@code null} or not parsable
+     * @param sentAtMillis     Local time the request was sent
+     * @param receivedAtMillis Local time the response was received
+     */
+    synchronized void sample(final String date, final long sentAtMillis, final long receivedAtMillis) {
+        if (date == null) {
+            return;
+        }
+        final long enmMillis;
+        try {
+            enmMillis = ZonedDateTime.parse(date, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            LOGGER.debug("Unknown Date header '{}'", date);
+            return;
+        }
+        // ENM read its clock somewhere in [enmMillis, enmMillis + 1s) while the local clock was in [sent, received]
+        final long min = enmMillis - receivedAtMillis;
+        final long max = enmMillis + DATE_RESOLUTION_MILLIS - 1 - sentAtMillis;
+        if (samples > 0 && min <= maxOffsetMillis && max >= minOffsetMillis) {
+            minOffsetMillis = Math.max(minOffsetMillis, min);
+            maxOffsetMillis = Math.min(maxOffsetMillis, max);
+            samples++;
+            return;
+        }
+        if (samples > 0) {
+            LOGGER.warn("ENM clock moved, offset was {}..{} mSec, now {}..{} mSec", minOffsetMillis, maxOffsetMillis, min, max);
+        }
+        minOffsetMillis = min;
+        maxOffsetMillis = max;
+        samples = 1;
+    }
+
+    /**
+     * @return ENM time minus local time, the smallest consistent with the responses, 0 if no response has given a
+     * Date yet
+     */
+    synchronized long getOffsetMillis() {
+        return samples == 0 ? 0 : Math.max(minOffsetMillis, Math.min(maxOffsetMillis, 0));
+    }
+
+    /**
+     * Convert an ENM time to the local clock
+     *
+     * @param enmMillis Time read from ENM
+     * @return The same moment by the local clock
+     */
+    long toLocal(final long enmMillis) {
+        return enmMillis - getOffsetMillis();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return samples == 0 ? "unknown" : "offset " + getOffsetMillis() + "mSec (" + minOffsetMillis + ".." + maxOffsetMillis +
+                ") from " + samples + " responses";
+    }
+}
@@ -0,0 +1,274 @@
+package com.ericsson.oss.mediation.sdk.sdktestware;
+
+import com.ericsson.cifwk.taf.data.Host;
+import com.ericsson.cifwk.taf.tools.http.HttpResponse;
+import com.ericsson.cifwk.taf.tools.http.HttpTool;
+import com.ericsson.cifwk.taf.tools.http.HttpToolBuilder;
+import com.ericsson.cifwk.taf.tools.http.constants.HttpStatus;
+import com.ericsson.oss.testware.hostconfigurator.HostConfigurator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Authenticated connection to ENM (via HAProxy) that is shared between operators.
+ * <p>
+ * A small pool of {@link HttpTool} instances is kept, each one logged in once and then reused so the TLS
+ * connection and SSO session are kept alive between requests. Expired sessions are re-authenticated on demand.
+ */
+public class EnmSession implements EnmClient {
+    private final static Logger LOGGER = LoggerFactory.getLogger(EnmSession.class);
+
+    private static final String ID_TOKEN_1 = "IDToken1";
+    private static final String ID_TOKEN_2 = "IDToken2";
+    private static final String USER_LOGIN_URI = "/login";
+    private static final String LOGOUT_URI = "/logout";
+    private static final String TOR_USER_ID = "TorUserID";
+    private static final long BORROW_TIMEOUT_SECONDS = 300;
+
+    private static EnmSession shared;
+
+    private final String address;
+    private final int port;
+    private final boolean https;
+    private final String userName;
+    private final String passWord;
+    private final int poolSize;
+    private final long maxSessionAgeMillis;
+
+    private final BlockingQueue<PooledHttpTool> idle = new LinkedBlockingQueue<>();
+    private final List<PooledHttpTool> created = new ArrayList<>();
+    private volatile boolean closed;
+
+    public EnmSession(final Host host, final String userName, final String passWord, final int poolSize) {
+        this(host.getIp(), host.getHttpsPort(), true, userName, passWord, poolSize);
+    }
+
+    /**
+     * @param address  ENM address
+     * @param port     Port to connect to
+     * @param https    {@code false} to use plain HTTP, e.g. for a local stand-in
+     * @param userName User to log in as
+     * @param passWord Password of the user
+     * @param poolSize Maximum number of logged in connections
+     */
+    public EnmSession(final String address, final int port, final boolean https, final String userName,
+                      final String passWord, final int poolSize) {
+        this.address = address;
+        this.port = port;
+        this.https = https;
+        this.userName = userName;
+        this.passWord = passWord;
+        this.poolSize = Math.max(1, poolSize);
+        this.maxSessionAgeMillis = TimeUnit.SECONDS.toMillis(Flags.enmSessionMaxAge());
+    }
+
+    /**
+     * Get the ENM session shared by all operators, creating it if needed.
+     *
+     * @return shared session
+     */
+    public static synchronized EnmSession shared() {
+        if (shared == null || shared.closed) {
+            shared = new EnmSession(HostConfigurator.getApache(), Flags.enmUser(), Flags.enmPassword(), Flags.enmHttpPoolSize());
+        }
+        return shared;
+    }
+
+    /**
+     * Log out and close the shared session, if one was created.
+     */
+    public static synchronized void closeShared() {
+        if (shared != null) {
+            shared.close();
+            shared = null;
+        }
+    }
+
+    @Override
+    public String getAddress() {
+        return address;
+    }
+
+    @Override
+    public int getConcurrency() {
+        return poolSize;
+    }
+
+    public String getUserName() {
+        return userName;
+    }
+
+    /**
+     * Make sure at least one pooled connection is logged in, fails early if the credentials are wrong.
+     *
+     * @throws OperatorException Login failed
+     */
+    @Override
+    public void connect() throws OperatorException {
+        final PooledHttpTool tool = borrow();
+        release(tool);
+    }
+
+    /**
+     * Send a request on a pooled, logged in connection. If ENM reports the session as expired the connection is
+     * logged in again and the request is resent once.
+     *
+     * @param request The request to send
+     * @return The response
+     * @throws OperatorException Any errors getting a connection or logging in
+     */
+    @Override
+    public HttpResponse execute(final EnmRequest request) throws OperatorException {
+        final PooledHttpTool tool = borrow();
+        try {
+            HttpResponse response = request.send(tool.httpTool);
+            if (response.getResponseCode() == HttpStatus.UNAUTHORIZED) {
+                LOGGER.info("ENM session for {} expired on {}, logging in again", userName, address);
+                tool.login();
+                response = request.send(tool.httpTool);
+            }
+            return response;
+        } finally {
+            release(tool);
+        }
+    }
+
+    /**
+     * Run the work on this session, every request of a session is sent as its one user
+     */
+    @Override
+    public <T> T withUser(final UserWork<T> work) throws OperatorException {
+        return work.run(this);
+    }
+
+    private PooledHttpTool borrow() throws OperatorException {
+        if (closed) {
+            throw new OperatorException("ENM session to " + address + " is closed");
+        }
+        PooledHttpTool tool = idle.poll();
+        if (tool == null) {
+            synchronized (created) {
+                if (created.size() < poolSize) {
+                    tool = new PooledHttpTool();
+                    created.add(tool);
+                }
+            }
+        }
+        if (tool == null) {
+            try {
+                tool = idle.poll(BORROW_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new OperatorException("Interrupted waiting for an ENM connection", e);
+            }
+            if (tool == null) {
+                throw new OperatorException("No ENM connection available after " + BORROW_TIMEOUT_SECONDS + " seconds");
+            }
+        }
+        try {
+            tool.ensureLoggedIn();
+        } catch (OperatorException e) {
+            release(tool);
+            throw e;
+        }
+        return tool;
+    }
+
+    /**
+     * Put a connection back in the pool, or log it out if the session was closed while it was in use
+     */
+    private void release(final PooledHttpTool tool) {
+        if (closed) {
+            tool.logout();
+            return;
+        }
+        idle.offer(tool);
+        // close() may have drained the pool between the check and the offer
+        if (closed && idle.remove(tool)) {
+            tool.logout();
+        }
+    }
+
+    /**
+     * Log out the idle pooled connections, connections in use are logged out when they are released
+     */
+    @Override
+    public void close() {
+        closed = true;
+        synchronized (created) {
+            PooledHttpTool tool;
+            while ((tool = idle.poll()) != null) {
+                tool.logout();
+            }
+            created.clear();
+        }
+    }
+
+    /**
+     * A request to send to ENM using a logged in {@link HttpTool}
+     */
+    public interface EnmRequest {
+        HttpResponse send(HttpTool httpTool);
+    }
+
+    private final class PooledHttpTool {
+        private final HttpTool httpTool;
+        private long loginTime;
+        private boolean loggedIn;
+
+        private PooledHttpTool() {
+            httpTool = HttpToolBuilder.newBuilder(address).
+                    followRedirect(true).
+                    useHttpsIfProvided(https).
+                    withHttpsPort(port).
+                    withHttpPort(port).
+                    trustSslCertificates(true).
+                    build();
+        }
+
+        private void ensureLoggedIn() throws OperatorException {
+            if (!loggedIn || System.currentTimeMillis() - loginTime > maxSessionAgeMillis) {
+                login();
+            }
+        }
+
+        private void login() throws OperatorException {
+            httpTool.clearCookies();
+            final HttpResponse response = httpTool.request().
+                    body(ID_TOKEN_1, userName).
+                    body(ID_TOKEN_2, passWord).
+                    post(USER_LOGIN_URI);
+
+            LOGGER.info("ENM login {}@{} -> {}", userName, address, response.getResponseCode());
+            if (response.getResponseCode().getCode() == HttpStatus.OK.getCode()) {
+                httpTool.addCookie(TOR_USER_ID, userName);
+                loginTime = System.currentTimeMillis();
+                loggedIn = true;
+            } else {
+                loggedIn = false;
+                throw new OperatorException("Failed to log in to " + address + " [" +
+                        response.getResponseCode().getCode() + "] " + response.getBody());
+            }
+        }
+
+        private void logout() {
+            if (loggedIn) {
+                final HttpResponse response = httpTool.request().get(LOGOUT_URI);
+                if (response.getResponseCode().getCode() == HttpStatus.OK.getCode()) {
+                    LOGGER.info("ENM logout {}@{} -> {}", userName, address, HttpStatus.OK);
+                } else {
+                    LOGGER.error(response.getStatusLine());
+                }
+                loggedIn = false;
+            }
+            httpTool.clearCookies();
+            httpTool.close();
+        }
+    }
+}
@@ -27,6 +27,7 @@ import java.util.regex.Pattern;
 
 public class FileOperator {
     private final static Logger LOGGER = LoggerFactory.getLogger(FileOperator.class);
+    private static final int MD5_BUFFER_SIZE = 1024 * 1024;
 
     /**
      * Helper function to get a file based on 'http[s]://' 'file://' or '/'
@@ -104,14 +105,32 @@ public class FileOperator {
     }
 
     public static String md5sum(final Path file) throws OperatorException {
+        return md5sum(file, Long.MAX_VALUE);
+    }
+
+    /**
+     * Get the MD5 of the start of a file, as md5sum prints it. The file is read in blocks, not loaded into memory.
+     *
+     * @param file   Local file
+     * @param length Number of bytes to include, the whole file if it's shorter
+     * @return 32 hex digit MD5, empty if the file doesn't exist
+     * @throws OperatorException The file could not be read
+     */
+    public static String md5sum(final Path file, final long length) throws OperatorException {
         final Instant start = Instant.now();
         try {
-            // TODO: Change this to use a better, more performant way
             if (file.toFile().exists()) {
-                final byte[] data = Files.readAllBytes(file);
-                final byte[] hash = MessageDigest.getInstance("MD5").digest(data);
-
-                return new BigInteger(1, hash).toString(16);
+                final MessageDigest digest = MessageDigest.getInstance("MD5");
+                try (final InputStream in = Files.newInputStream(file)) {
+                    final byte[] buffer = new byte[MD5_BUFFER_SIZE];
+                    long remaining = length;
+                    int read;
+                    while (remaining > 0 && (read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining))) != -1) {
+                        digest.update(buffer, 0, read);
+                        remaining -= read;
+                    }
+                }
+                return String.format("%032x", new BigInteger(1, digest.digest()));
             } else {
                 return "";
             }
@@ -78,7 +78,7 @@ public class Flags {
         if (value == null || value.length() == 0) {
             return defaultValue;
         } else {
-            return Integer.getInteger(value);
+            return Integer.parseInt(value);
         }
     }
 
@@ -259,6 +259,44 @@ public class Flags {
         return System.getProperty(hostName + ".private.key");
     }
 
+    /**
+     * Seconds the shared director SSH session may be idle before it is checked with a keep-alive, also the interval
+     * of the session's own keep-alives
+     *
+     * @return seconds
+     */
+    public static int directorSshKeepAlive() {
+        return intValue("director.ssh.keepAlive", 30);
+    }
+
+    /**
+     * Maximum number of asynchronous commands run at once on the director, each one uses a channel of the shared SSH
+     * session so this should stay below the director's sshd MaxSessions (10 by default)
+     *
+     * @return commands
+     */
+    public static int directorSshConcurrency() {
+        return intValue("director.ssh.concurrency", 6);
+    }
+
+    /**
+     * Number of SFTP write requests kept in flight when uploading to the director, each one 32kB
+     *
+     * @return requests
+     */
+    public static int directorSftpBulkRequests() {
+        return intValue("director.sftp.bulkRequests", 64);
+    }
+
+    /**
+     * Seconds to wait for md5sum of a file on the director, it reads the whole file
+     *
+     * @return seconds
+     */
+    public static int directorMd5Timeout() {
+        return intValue("director.md5.timeout", 600);
+    }
+
     public static String sdkTemplate(final SdkType sdkType) {
         return System.getProperty(sdkType.templatePrefix());
     }
@@ -303,6 +341,175 @@ public class Flags {
         return getProperty("taf.fm.ne.sim.name", "LTE04dg2ERBS00004");
     }
 
+    /**
+     * ENM user the shared ENM session logs in with
+     *
+     * @return user name
+     */
+    public static String enmUser() {
+        return getProperty("enm.user", "Administrator");
+    }
+
+    /**
+     * Password of the ENM user, also used by the enm.users test users that don't give their own
+     *
+     * @return password
+     */
+    public static String enmPassword() {
+        return getProperty("enm.password", "TestPassw0rd");
+    }
+
+    /**
+     * Number of logged in HTTP connections kept by the shared ENM session
+     *
+     * @return pool size
+     */
+    public static int enmHttpPoolSize() {
+        return intValue("enm.http.pool.size", 4);
+    }
+
+    /**
+     * Test users to spread ENM requests across, as user:password entries separated by commas. Entries without a
+     * password use enm.password. Empty to send everything as enm.user.
+     *
+     * @return user entries, empty if not set
+     */
+    public static List<String> enmUsers() {
+        final List<String> users = new ArrayList<>();
+        for (String entry : getJvmFlagListValue("enm.users", "")) {
+            if (!entry.trim().isEmpty()) {
+                users.add(entry.trim());
+            }
+        }
+        return users;
+    }
+
+    /**
+     * Maximum number of requests in flight for each of the enm.users test users
+     *
+     * @return requests per user
+     */
+    public static int enmUserConcurrency() {
+        return intValue("enm.user.concurrency", 4);
+    }
+
+    /**
+     * Seconds after which an ENM login is refreshed before it is used again
+     *
+     * @return seconds
+     */
+    public static int enmSessionMaxAge() {
+        return intValue("enm.session.maxAge", 1800);
+    }
+
+    /**
+     * Seconds to wait for a script-engine command to complete
+     *
+     * @return seconds
+     */
+    public static int scriptEngineCommandTimeout() {
+        return intValue("scriptEngine.command.timeout", 300);
+    }
+
+    /**
+     * Delay in milliseconds between the first and second script-engine status poll, doubled for each later poll
+     *
+     * @return milliseconds
+     */
+    public static int scriptEngineInitialPoll() {
+        return intValue("scriptEngine.poll.initial", 100);
+    }
+
+    /**
+     * Maximum delay in milliseconds between script-engine status polls
+     *
+     * @return milliseconds
+     */
+    public static int scriptEngineMaxPoll() {
+        return intValue("scriptEngine.poll.max", 2000);
+    }
+
+    /**
+     * Seconds to wait for an alarm sent from NetSim to show up in ENM
+     *
+     * @return seconds
+     */
+    public static int fmAlarmTimeout() {
+        return intValue("fm.alarm.timeout", 180);
+    }
+
+    /**
+     * Seconds after the end of a ROP to wait for its PM file to be collected
+     *
+     * @return seconds
+     */
+    public static int pmFileTimeout() {
+        return intValue("pm.file.timeout", 300);
+    }
+
+    /**
+     * Time zone of alarm times listed by 'alarm get' without a zone or offset
+     *
+     * @return zone id
+     */
+    public static String fmAlarmTimeZone() {
+        return getProperty("fm.alarm.timeZone", "UTC");
+    }
+
+    /**
+     * Number of NetworkElement persistent objects looked up at the same time when building a PM subscription
+     *
+     * @return concurrent lookups
+     */
+    public static int pmNodeLookupConcurrency() {
+        return intValue("pm.node.lookup.concurrency", 16);
+    }
+
+    /**
+     * Seconds to wait for a new PM subscription to be readable
+     *
+     * @return seconds
+     */
+    public static int pmSubscriptionTimeout() {
+        return intValue("pm.subscription.timeout", 60);
+    }
+
+    /**
+     * Seconds a NetSim host listing of simulations and NEs is reused before it's listed again
+     *
+     * @return seconds
+     */
+    public static int netsimInventoryTtl() {
+        return intValue("netsim.inventory.ttl", 900);
+    }
+
+    /**
+     * Number of NetSim simulations configured at the same time by a batch NE configuration
+     *
+     * @return concurrent simulations
+     */
+    public static int netsimConfigConcurrency() {
+        return intValue("netsim.config.concurrency", 8);
+    }
+
+    /**
+     * Most NEs selected together in one NetSim '.select' when configuring NEs in batches
+     *
+     * @return NEs per selection
+     */
+    public static int netsimSelectBatchSize() {
+        return intValue("netsim.select.batch", 100);
+    }
+
+    /**
+     * Seconds to wait for a bulk CM import job to execute
+     *
+     * @return seconds
+     */
+    public static int cmImportTimeout() {
+        return intValue("cm.import.timeout", 1800);
+    }
+
     enum SkipFlag {
         ALL("all"),
         MAVEN("maven"),
@@ -8,8 +8,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Future;
 
 public class HelmExecutorOperator {
     private final static Logger LOGGER = LoggerFactory.getLogger(HelmExecutorOperator.class);
@@ -27,6 +29,27 @@ public class HelmExecutorOperator {
         return stdout.toString();
     }
 
+    /**
+     * Template several charts on the director at once
+     *
+     * @param helmPackages Chart packages on the director
+     * @return The templates, in the same order
+     * @throws OperatorException Any errors
+     */
+    public static List<String> templateRemote(final List<String> helmPackages) throws OperatorException {
+        try (final RemoteAccessOperator remote = new RemoteAccessOperator()) {
+            final List<Future<RemoteAccessOperator.CommandResult>> commands = new ArrayList<>();
+            for (String helmPackage : helmPackages) {
+                commands.add(remote.executeAsync("helm template " + helmPackage, 600));
+            }
+            final List<String> templates = new ArrayList<>();
+            for (RemoteAccessOperator.CommandResult result : RemoteAccessOperator.awaitAll(commands)) {
+                templates.add(result.getStdout());
+            }
+            return templates;
+        }
+    }
+
     /**
      * Install a helm chart
      *
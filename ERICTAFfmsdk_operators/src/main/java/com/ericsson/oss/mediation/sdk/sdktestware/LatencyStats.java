@@ -0,0 +1,61 @@
+package com.ericsson.oss.mediation.sdk.sdktestware;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Collects latency samples and reports percentiles. Safe to add samples from several threads.
+ */
+public class LatencyStats {
+    private final List<Long> samples = new ArrayList<>();
+
+    public synchronized void add(final long millis) {
+        samples.add(millis);
+    }
+
+    public synchronized int count() {
+        return samples.size();
+    }
+
+    /**
+     * Get a percentile using the nearest-rank method
+     *
+     * @param percentile 0-100
+     * @return latency in milliseconds, 0 if there are no samples
+     */
+    public synchronized long percentile(final double percentile) {
+        if (samples.isEmpty()) {
+            return 0;
+        }
+        final List<Long> sorted = new ArrayList<>(samples);
+        Collections.sort(sorted);
+        final int rank = (int) Math.ceil(percentile / 100.0 * sorted.size());
+        return sorted.get(Math.min(sorted.size() - 1, Math.max(0, rank - 1)));
+    }
+
+    public synchronized long min() {
+        return samples.isEmpty() ? 0 : Collections.min(samples);
+    }
+
+    public synchronized long max() {
+        return samples.isEmpty() ? 0 : Collections.max(samples);
+    }
+
+    public synchronized long mean() {
+        if (samples.isEmpty()) {
+            return 0;
+        }
+        long total = 0;
+        for (long sample : samples) {
+            total += sample;
+        }
+        return total / samples.size();
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + count() + " min=" + min() + " p50=" + percentile(50) + " p95=" + percentile(95) +
+                " p99=" + percentile(99) + " max=" + max() + " mean=" + mean() + " (mSec)";
+    }
+}
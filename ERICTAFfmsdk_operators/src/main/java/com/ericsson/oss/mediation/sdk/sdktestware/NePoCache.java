@@ -0,0 +1,172 @@
+package com.ericsson.oss.mediation.sdk.sdktestware;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * NetworkElement persistent object attributes (poId, fdn, neVersion, ...), looked up once per NE name.
+ * <p>
+ * Lookups for many NEs are done together by {@link #prefetch}, only the NEs not already cached are fetched and those
+ * are fetched in parallel. An NE's entry must be invalidated when it's deleted, since a re-created NE has a new
+ * poId; a lookup that was in flight while any NE was invalidated isn't cached.
+ */
+public class NePoCache implements PmSubscriptionBuilder.NodeLookup {
+    private final static Logger LOGGER = LoggerFactory.getLogger(NePoCache.class);
+
+    private static final int MAX_REPORTED_FAILURES = 10;
+
+    private final PmSubscriptionBuilder.NodeLookup loader;
+    private final Map<String, Map<String, Object>> entries = new ConcurrentHashMap<>();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+
+    /**
+     * @param loader Fetches the attributes of one NE from ENM
+     */
+    NePoCache(final PmSubscriptionBuilder.NodeLookup loader) {
+        this.loader = loader;
+    }
+
+    /**
+     * Get the attributes of an NE, fetching them if they aren't cached
+     *
+     * @param neName NetworkElement name
+     * @return attributes, not to be modified
+     * @throws OperatorException The NE could not be looked up
+     */
+    @Override
+    public Map<String, Object> details(final String neName) throws OperatorException {
+        final Map<String, Object> cached = entries.get(neName);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached;
+        }
+        misses.incrementAndGet();
+        return load(neName, invalidations.get());
+    }
+
+    /**
+     * Get the attributes of many NEs, fetching the ones that aren't cached in parallel
+     *
+     * @param neNames     NetworkElement names
+     * @param concurrency Maximum number of lookups in flight
+     * @return attributes by NE name, in the order of {@code neNames}
+     * @throws OperatorException Any NE could not be looked up, or interrupted
+     */
+    public Map<String, Map<String, Object>> prefetch(final Collection<String> neNames, final int concurrency) throws OperatorException {
+        final long start = System.currentTimeMillis();
+        final long epoch = invalidations.get();
+        final List<String> missing = new ArrayList<>();
+        for (String neName : new LinkedHashSet<>(neNames)) {
+            if (!entries.containsKey(neName)) {
+                missing.add(neName);
+            }
+        }
+        hits.addAndGet(neNames.size() - missing.size());
+        misses.addAndGet(missing.size());
+
+        final Map<String, Map<String, Object>> loaded = new LinkedHashMap<>();
+        if (!missing.isEmpty()) {
+            final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(concurrency, missing.size())));
+            try {
+                final List<Future<Map<String, Object>>> futures = new ArrayList<>(missing.size());
+                for (String neName : missing) {
+                    futures.add(executor.submit(() -> load(neName, epoch)));
+                }
+                final List<String> failures = new ArrayList<>();
+                int failed = 0;
+                for (int i = 0; i < futures.size(); i++) {
+                    try {
+                        loaded.put(missing.get(i), futures.get(i).get());
+                    } catch (ExecutionException e) {
+                        if (++failed <= MAX_REPORTED_FAILURES) {
+                            failures.add(missing.get(i) + ": " + e.getCause().getMessage());
+                        }
+                    }
+                }
+                if (failed > 0) {
+                    throw new OperatorException("Failed to look up " + failed + " of " + missing.size() + " nodes " + failures);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new OperatorException("Interrupted looking up " + missing.size() + " nodes", e);
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        final Map<String, Map<String, Object>> details = new LinkedHashMap<>();
+        for (String neName : neNames) {
+            final Map<String, Object> entry = loaded.containsKey(neName) ? loaded.get(neName) : entries.get(neName);
+            details.put(neName, entry == null ? details(neName) : entry);
+        }
+        LOGGER.info("Looked up {} nodes, {} from cache, in {} mSec", details.size(), details.size() - missing.size(),
+                System.currentTimeMillis() - start);
+        return details;
+    }
+
+    /**
+     * Drop an NE's attributes, e.g. once it has been deleted
+     *
+     * @param neName NetworkElement name
+     */
+    public synchronized void invalidate(final String neName) {
+        invalidations.incrementAndGet();
+        entries.remove(neName);
+    }
+
+    /**
+     * Drop every NE's attributes
+     */
+    public synchronized void invalidateAll() {
+        invalidations.incrementAndGet();
+        entries.clear();
+    }
+
+    /**
+     * @return Number of NEs cached
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return Lookups answered from the cache
+     */
+    public int getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return Lookups that had to be fetched
+     */
+    public int getMisses() {
+        return misses.get();
+    }
+
+    private Map<String, Object> load(final String neName, final long epoch) throws OperatorException {
+        final Map<String, Object> details = Collections.unmodifiableMap(new LinkedHashMap<>(loader.details(neName)));
+        synchronized (this) {
+            if (invalidations.get() == epoch) {
+                entries.put(neName, details);
+            }
+        }
+        return details;
+    }
+}
@@ -0,0 +1,42 @@
+package com.ericsson.oss.mediation.sdk.sdktestware;
+
+/**
+ * Outcome of provisioning (removing or configuring) a single NetworkElement in a bulk operation
+ */
+public class NeProvisioningResult {
+    private final String neName;
+    private final boolean success;
+    private final String error;
+    private final long durationMillis;
+
+    NeProvisioningResult(final String neName, final boolean success, final String error, final long durationMillis) {
+        this.neName = neName;
+        this.success = success;
+        this.error = error;
+        this.durationMillis = durationMillis;
+    }
+
+    public String getNeName() {
+        return neName;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    /**
+     * @return Error message if provisioning failed, {@code null} otherwise
+     */
+    public String getError() {
+        return error;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    @Override
+    public String toString() {
+        return neName + (success ? " OK" : " FAILED (" + error + ")") + " in " + durationMillis + "mSec";
+    }
+}
@@ -0,0 +1,38 @@
+package com.ericsson.oss.mediation.sdk.sdktestware;
+
+/**
+ * A NetworkElement to provision in ENM
+ */
+public class NeSpec {
+    private final String neName;
+    private final String ip;
+    private final String neType;
+
+    /**
+     * @param neName NetworkElement name, normally the NetSim NE name
+     * @param ip     NetSim NE address
+     * @param neType ENM neType, {@code null} to use the neType of the SDK being tested
+     */
+    public NeSpec(final String neName, final String ip, final String neType) {
+        this.neName = neName;
+        this.ip = ip;
+        this.neType = neType;
+    }
+
+    public String getNeName() {
+        return neName;
+    }
+
+    public String getIp() {
+        return ip;
+    }
+
+    public String getNeType() {
+        return neType;
+    }
+
+    @Override
+    public String toString() {
+        return neName + "(" + neType + ")@" + ip;
+    }
+}
@@ -0,0 +1,389 @@
+package com.ericsson.oss.mediation.sdk.sdktestware;
+
+import com.ericsson.cifwk.taf.data.Host;
+import com.ericsson.oss.testware.hostconfigurator.HostConfigurator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Hands out NetSim NEs from all NetSim hosts, spread evenly across them.
+ * <p>
+ * Allocated NEs are tracked until they are released, so tests running at the same time never get the same NE.
+ * Host level work (listing, creating the default destination, sending alarms) is done on every host involved in
+ * parallel, one round trip per host. NE configuration runs a batch per simulation, several simulations at a time.
+ */
+public class NetSimAllocator {
+    private final static Logger LOGGER = LoggerFactory.getLogger(NetSimAllocator.class);
+
+    /**
+     * External destination the FM tests point NEs at
+     */
+    static final String DEF_DESTINATION_NAME = "FM_SDK_TAF";
+    private static final String PROTOCOL = "netconf_https_http_prot";
+    private static final String NOTIFICATION_TYPE = "2";// Defaults to 2 for Trap type
+    private static final String TRAP_PORT = "162";// Defaults to 162 for Trap Port
+
+    private static NetSimAllocator shared;
+
+    private final Map<String, NetSimCommandSession> sessions = new LinkedHashMap<>();
+    private final Set<String> inUse = ConcurrentHashMap.newKeySet();
+    private final ExecutorService executor;
+
+    /**
+     * @param netsims Sessions to each NetSim host
+     */
+    public NetSimAllocator(final List<NetSimCommandSession> netsims) {
+        for (NetSimCommandSession netsim : netsims) {
+            sessions.put(netsim.getHostname(), netsim);
+        }
+        executor = Executors.newFixedThreadPool(Math.max(1, netsims.size()), runnable -> {
+            final Thread thread = new Thread(runnable, "netsim-allocator");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Get the allocator shared by all operators, over every NetSim host in the host configuration
+     *
+     * @return shared allocator
+     */
+    public static synchronized NetSimAllocator shared() {
+        if (shared == null) {
+            final List<NetSimCommandSession> netsims = new ArrayList<>();
+            for (Host host : HostConfigurator.getAllNetsimHosts()) {
+                host.setUser("netsim");
+                host.setPass("netsim");
+                netsims.add(NetSimCommandSession.forHost(host));
+            }
+            shared = new NetSimAllocator(netsims);
+        }
+        return shared;
+    }
+
+    /**
+     * @return NetSim host names
+     */
+    public List<String> getHostnames() {
+        return new ArrayList<>(sessions.keySet());
+    }
+
+    /**
+     * @param hostname NetSim host name
+     * @return The session to the host
+     * @throws OperatorException The host isn't one of the allocator hosts
+     */
+    public NetSimCommandSession getSession(final String hostname) throws OperatorException {
+        final NetSimCommandSession session = sessions.get(hostname);
+        if (session == null) {
+            throw new OperatorException("Unknown NetSim host " + hostname);
+        }
+        return session;
+    }
+
+    /**
+     * Allocate free NEs, taking them from each host in turn
+     *
+     * @param count            Number of NEs needed
+     * @param simulationFilter Text the simulation name must contain, e.g. DG2
+     * @return The NEs, they stay allocated until {@link #release} is called
+     * @throws OperatorException Not enough free NEs, or a host could not be listed
+     */
+    public List<NetSimNe> allocate(final int count, final String simulationFilter) throws OperatorException {
+        final Map<String, List<NetSimNe>> candidates = forEachHost(sessions.keySet(), hostname -> {
+            final NetSimInventory inventory = NetSimInventory.forHost(sessions.get(hostname));
+            final List<NetSimNe> nes = new ArrayList<>();
+            for (String simulation : inventory.getSimulationsContaining(simulationFilter)) {
+                nes.addAll(inventory.getNes(simulation));
+            }
+            return nes;
+        });
+
+        final List<NetSimNe> allocated = new ArrayList<>(count);
+        final int[] next = new int[candidates.size()];
+        boolean found = true;
+        while (allocated.size() < count && found) {
+            found = false;
+            int host = 0;
+            for (List<NetSimNe> nes : candidates.values()) {
+                while (next[host] < nes.size() && allocated.size() < count) {
+                    final NetSimNe ne = nes.get(next[host]++);
+                    if (inUse.add(key(ne))) {
+                        allocated.add(ne);
+                        found = true;
+                        break;
+                    }
+                }
+                host++;
+            }
+        }
+        if (allocated.size() < count) {
+            release(allocated);
+            throw new OperatorException("Only " + allocated.size() + " of " + count + " free NEs in '" + simulationFilter +
+                    "' simulations on " + sessions.keySet());
+        }
+        LOGGER.info("Allocated {} NEs across {} NetSim hosts", count, candidates.size());
+        return allocated;
+    }
+
+    /**
+     * Return NEs so they can be allocated again
+     *
+     * @param nes NEs from {@link #allocate}
+     */
+    public void release(final Collection<NetSimNe> nes) {
+        for (NetSimNe ne : nes) {
+            inUse.remove(key(ne));
+        }
+    }
+
+    /**
+     * @return Number of NEs currently allocated
+     */
+    public int getInUseCount() {
+        return inUse.size();
+    }
+
+    /**
+     * Point NEs at an FM VIP. The default destination is created once on each host, in parallel across hosts, then
+     * the NEs are switched to it with {@link #setExternalDestination}.
+     *
+     * @param nes          NEs to configure
+     * @param fmVipAddress Address traps are sent to
+     * @return Result of each NE, in the same order as {@code nes}
+     * @throws OperatorException The destination could not be created, NE failures are in the results
+     */
+    public List<NeProvisioningResult> configureDefaultDestination(final Collection<NetSimNe> nes, final String fmVipAddress)
+            throws OperatorException {
+        final Map<String, Map<String, List<String>>> byHost = groupByHostAndSimulation(nes);
+        forEachHost(byHost.keySet(), hostname -> {
+            final NetSimCommandSession netsim = getSession(hostname);
+            synchronized (netsim) {
+                queueDefaultDestination(netsim, fmVipAddress);
+                LOGGER.info("Default destination on " + hostname + " : " + netsim.flush());
+            }
+            return null;
+        });
+        return setExternalDestination(nes, DEF_DESTINATION_NAME);
+    }
+
+    /**
+     * Queue creating the {@link #DEF_DESTINATION_NAME} external destination on a host, sending traps to an FM VIP.
+     * It's sent with the next exec on the session, the caller holds the session lock until then.
+     *
+     * @param netsim       Session to the NetSim host
+     * @param fmVipAddress Address traps are sent to
+     */
+    static void queueDefaultDestination(final NetSimCommandSession netsim, final String fmVipAddress) {
+        netsim.selectConfiguration().
+                add(NetSimStep.configAddExternal(DEF_DESTINATION_NAME, PROTOCOL),
+                        NetSimStep.configExternalServers(DEF_DESTINATION_NAME, netsim.getHostname()),
+                        NetSimStep.configExternalAddress(DEF_DESTINATION_NAME, fmVipAddress, TRAP_PORT, NOTIFICATION_TYPE),
+                        NetSimStep.configSave());
+    }
+
+    /**
+     * Stop NEs, point them at an external destination that already exists and start them again.
+     * <p>
+     * The NEs of each simulation are selected together, up to netsim.select.batch at a time, and up to
+     * netsim.config.concurrency simulations are configured in parallel, each on its own connection. An NE's duration
+     * is the time of the exec that configured it.
+     *
+     * @param nes         NEs to configure
+     * @param destination External destination name
+     * @return Result of each NE, in the same order as {@code nes}
+     * @throws OperatorException Interrupted, NE failures are in the results
+     */
+    public List<NeProvisioningResult> setExternalDestination(final Collection<NetSimNe> nes, final String destination)
+            throws OperatorException {
+        final long start = System.currentTimeMillis();
+        final Map<String, Map<String, List<String>>> byHost = groupByHostAndSimulation(nes);
+        final int batchSize = Math.max(1, Flags.netsimSelectBatchSize());
+        final ExecutorService simulations = Executors.newFixedThreadPool(Math.max(1, Flags.netsimConfigConcurrency()));
+        final Map<String, NeProvisioningResult> byNe = new ConcurrentHashMap<>();
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (Map.Entry<String, Map<String, List<String>>> host : byHost.entrySet()) {
+                for (Map.Entry<String, List<String>> simulation : host.getValue().entrySet()) {
+                    futures.add(simulations.submit(() -> configureSimulation(host.getKey(), simulation.getKey(),
+                            simulation.getValue(), destination, batchSize, byNe)));
+                }
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OperatorException("Interrupted configuring NetSim NEs", e);
+        } catch (ExecutionException e) {
+            throw new OperatorException("Failed to configure NetSim NEs", e.getCause());
+        } finally {
+            simulations.shutdownNow();
+        }
+        for (String hostname : byHost.keySet()) {
+            NetSimInventory.forHost(getSession(hostname)).invalidate();
+        }
+
+        final List<NeProvisioningResult> results = new ArrayList<>(nes.size());
+        int failed = 0;
+        for (NetSimNe ne : nes) {
+            final NeProvisioningResult result = byNe.get(key(ne));
+            if (!result.isSuccess()) {
+                failed++;
+            }
+            results.add(result);
+        }
+        LOGGER.info("External destination " + destination + " set on " + nes.size() + " NEs in " + (System.currentTimeMillis() - start) +
+                "mSec, " + failed + " failed");
+        return results;
+    }
+
+    private void configureSimulation(final String hostname, final String simulation, final List<String> neNames,
+                                     final String destination, final int batchSize,
+                                     final Map<String, NeProvisioningResult> results) {
+        NetSimBackend backend = null;
+        try {
+            backend = getSession(hostname).openBackend();
+            for (int from = 0; from < neNames.size(); from += batchSize) {
+                final List<String> batch = neNames.subList(from, Math.min(from + batchSize, neNames.size()));
+                final long batchStart = System.currentTimeMillis();
+                String output;
+                String batchError = null;
+                try {
+                    output = backend.exec(Arrays.asList(NetSimStep.open(simulation),
+                            NetSimStep.select(batch.toArray(new String[0])),
+                            NetSimStep.stop(),
+                            NetSimStep.setExternal(destination),
+                            NetSimStep.setSave(),
+                            NetSimStep.start()));
+                } catch (OperatorException e) {
+                    output = "";
+                    batchError = e.getMessage();
+                }
+                final long duration = System.currentTimeMillis() - batchStart;
+                LOGGER.debug("Configured {} NEs of {} on {} in {} mSec", batch.size(), simulation, hostname, duration);
+                addResults(hostname, batch, output, batchError, duration, results);
+            }
+        } catch (OperatorException e) {
+            LOGGER.error("Could not connect to NetSim host " + hostname, e);
+            addResults(hostname, neNames, "", e.getMessage(), 0, results);
+        } finally {
+            if (backend != null) {
+                backend.close();
+            }
+        }
+    }
+
+    /**
+     * Record a result for each NE of a batch. The NEs are selected together, so an error fails the whole batch; each
+     * NE gets the error line that names it, or the first error line.
+     */
+    private static void addResults(final String hostname, final List<String> neNames, final String output, final String batchError,
+                                   final long duration, final Map<String, NeProvisioningResult> results) {
+        final List<String> errors = new ArrayList<>();
+        if (batchError != null) {
+            errors.add(batchError);
+        }
+        for (String line : output.split("\\r?\\n")) {
+            if (line.toLowerCase().contains("error")) {
+                errors.add(line.trim());
+            }
+        }
+        for (String neName : neNames) {
+            String error = errors.isEmpty() ? null : errors.get(0);
+            for (String line : errors) {
+                if (line.contains(neName)) {
+                    error = line;
+                    break;
+                }
+            }
+            results.put(key(hostname, neName), new NeProvisioningResult(neName, error == null, error, duration));
+        }
+    }
+
+    /**
+     * Send one alarm from each NE, in parallel across hosts with one exec per host
+     *
+     * @param nes             NEs to send from
+     * @param specificProblem Alarm specific problem
+     * @return Time just before each host's alarms were sent, by host name
+     * @throws OperatorException Any errors
+     */
+    public Map<String, Long> sendAlarms(final Collection<NetSimNe> nes, final String specificProblem) throws OperatorException {
+        final Map<String, Map<String, List<String>>> byHost = groupByHostAndSimulation(nes);
+        return forEachHost(byHost.keySet(), hostname -> {
+            final NetSimCommandSession netsim = getSession(hostname);
+            synchronized (netsim) {
+                for (Map.Entry<String, List<String>> simulation : byHost.get(hostname).entrySet()) {
+                    netsim.open(simulation.getKey());
+                    for (String neName : simulation.getValue()) {
+                        netsim.select(neName).add(NetSimStep.sendAlarm(specificProblem));
+                    }
+                }
+                final long sentAt = System.currentTimeMillis();
+                netsim.flush();
+                return sentAt;
+            }
+        });
+    }
+
+    private static Map<String, Map<String, List<String>>> groupByHostAndSimulation(final Collection<NetSimNe> nes) {
+        final Map<String, Map<String, List<String>>> byHost = new LinkedHashMap<>();
+        for (NetSimNe ne : nes) {
+            byHost.computeIfAbsent(ne.getHostname(), host -> new LinkedHashMap<>()).
+                    computeIfAbsent(ne.getSimulation(), simulation -> new ArrayList<>()).
+                    add(ne.getName());
+        }
+        return byHost;
+    }
+
+    private <T> Map<String, T> forEachHost(final Collection<String> hostnames, final HostTask<T> task) throws OperatorException {
+        final Map<String, Future<T>> futures = new LinkedHashMap<>();
+        for (String hostname : hostnames) {
+            futures.put(hostname, executor.submit((Callable<T>) () -> task.run(hostname)));
+        }
+        final Map<String, T> results = new LinkedHashMap<>();
+        final List<String> errors = new ArrayList<>();
+        for (Map.Entry<String, Future<T>> future : futures.entrySet()) {
+            try {
+                results.put(future.getKey(), future.getValue().get());
+            } catch (ExecutionException e) {
+                LOGGER.error("Error on NetSim host " + future.getKey(), e.getCause());
+                errors.add(future.getKey() + ": " + e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new OperatorException("Interrupted waiting for NetSim host " + future.getKey(), e);
+            }
+        }
+        if (!errors.isEmpty()) {
+            throw new OperatorException("NetSim errors " + errors);
+        }
+        return results;
+    }
+
+    private static String key(final NetSimNe ne) {
+        return key(ne.getHostname(), ne.getName());
+    }
+
+    private static String key(final String hostname, final String neName) {
+        return hostname + "/" + neName;
+    }
+
+    private interface HostTask<T> {
+        T run(String hostname) throws OperatorException;
+    }
+}
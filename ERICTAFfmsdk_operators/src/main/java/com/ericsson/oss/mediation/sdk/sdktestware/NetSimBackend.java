@@ -0,0 +1,20 @@
+package com.ericsson.oss.mediation.sdk.sdktestware;
+
+import java.util.List;
+
+/**
+ * Runs NetSim commands, either on a real NetSim host or on a local stand-in
+ */
+public interface NetSimBackend extends AutoCloseable {
+    /**
+     * Run commands in one netsim_pipe
+     *
+     * @param steps Commands to run, in order
+     * @return Raw output
+     * @throws OperatorException The commands could not be run
+     */
+    String exec(List<NetSimStep> steps) throws OperatorException;
+
+    @Override
+    void close();
+}
@@ -0,0 +1,235 @@
+package com.ericsson.oss.mediation.sdk.sdktestware;
+
+import com.ericsson.cifwk.taf.data.Host;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * A NetSim session that only sends each command once.
+ * <p>
+ * Commands are queued and sent together in one round trip by {@link #flush()}. Only the queued commands are sent, not
+ * everything sent before them. Each exec runs in a new netsim_pipe, so the simulation opened and NEs selected by
+ * earlier commands are tracked, and the context in force when the first command of a batch was queued is re-sent in
+ * front of the batch when the batch doesn't set it itself. The underlying {@link NetSimBackend} is kept open between calls and shared per host, until
+ * {@link #closeAll()}. Callers sharing a session that queue commands over several calls hold the session lock
+ * until they flush, so their commands aren't mixed with another caller's.
+ */
+public class NetSimCommandSession implements AutoCloseable {
+    private final static Logger LOGGER = LoggerFactory.getLogger(NetSimCommandSession.class);
+
+    private static final Map<String, NetSimCommandSession> SHARED = new ConcurrentHashMap<>();
+
+    private final String hostname;
+    private final Supplier<NetSimBackend> backends;
+    private NetSimBackend backend;
+
+    private final List<NetSimStep> queue = new ArrayList<>();
+    private final List<NetSimStep> queueContext = new ArrayList<>();
+    private NetSimStep openStep;
+    private NetSimStep selectStep;
+
+    private int execs;
+    private int commandsSent;
+
+    /**
+     * @param hostname NetSim host name
+     * @param backends Opens a connection to the host
+     */
+    public NetSimCommandSession(final String hostname, final Supplier<NetSimBackend> backends) {
+        this.hostname = hostname;
+        this.backends = backends;
+    }
+
+    /**
+     * Get the session shared by all operators for a NetSim host, creating it if needed
+     *
+     * @param host NetSim host, with the user and password already set
+     * @return shared session
+     */
+    public static NetSimCommandSession forHost(final Host host) {
+        return SHARED.computeIfAbsent(host.getHostname(),
+                name -> new NetSimCommandSession(name, () -> new TafNetSimBackend(host)));
+    }
+
+    /**
+     * Make a session the shared one for its host, e.g. to send a host's commands to a local stand-in
+     *
+     * @param session Session to share
+     */
+    public static void share(final NetSimCommandSession session) {
+        final NetSimCommandSession replaced = SHARED.put(session.getHostname(), session);
+        if (replaced != null && replaced != session) {
+            replaced.close();
+        }
+    }
+
+    /**
+     * Close all shared sessions
+     */
+    public static void closeAll() {
+        for (NetSimCommandSession session : SHARED.values()) {
+            session.close();
+        }
+        SHARED.clear();
+    }
+
+    public String getHostname() {
+        return hostname;
+    }
+
+    /**
+     * Open a separate connection to the same host, for callers that exec in parallel with this session
+     *
+     * @return new backend, closed by the caller
+     */
+    public NetSimBackend openBackend() {
+        return backends.get();
+    }
+
+    /**
+     * Queue opening a simulation, later commands run against it
+     *
+     * @param simulation Simulation name
+     * @return this session
+     */
+    public synchronized NetSimCommandSession open(final String simulation) {
+        if (queue.isEmpty()) {
+            queueContext.clear();
+        }
+        openStep = NetSimStep.open(simulation);
+        selectStep = null;
+        queue.add(openStep);
+        return this;
+    }
+
+    /**
+     * Queue selecting NEs in the open simulation
+     *
+     * @param neNames NE names
+     * @return this session
+     */
+    public synchronized NetSimCommandSession select(final String... neNames) {
+        startBatch(false);
+        selectStep = NetSimStep.select(neNames);
+        queue.add(selectStep);
+        return this;
+    }
+
+    /**
+     * Queue selecting the NetSim configuration, e.g. to change external destinations
+     *
+     * @return this session
+     */
+    public synchronized NetSimCommandSession selectConfiguration() {
+        startBatch(false);
+        selectStep = NetSimStep.selectConfiguration();
+        queue.add(selectStep);
+        return this;
+    }
+
+    /**
+     * Queue commands that run in the current context
+     *
+     * @param steps Commands to queue
+     * @return this session
+     */
+    public synchronized NetSimCommandSession add(final NetSimStep... steps) {
+        if (steps.length > 0) {
+            startBatch(true);
+        }
+        queue.addAll(Arrays.asList(steps));
+        return this;
+    }
+
+    /**
+     * Keep the context the first command of a batch runs in, later commands only change the tracked context that
+     * following batches start from
+     *
+     * @param keepSelection {@code false} if the command selects NEs itself and only needs the open simulation
+     */
+    private void startBatch(final boolean keepSelection) {
+        if (queue.isEmpty()) {
+            queueContext.clear();
+            if (openStep != null) {
+                queueContext.add(openStep);
+            }
+            if (keepSelection && selectStep != null) {
+                queueContext.add(selectStep);
+            }
+        }
+    }
+
+    /**
+     * Queue commands and send everything queued
+     *
+     * @param steps Commands to queue
+     * @return Raw output of the exec
+     * @throws OperatorException The commands could not be run
+     */
+    public synchronized String exec(final NetSimStep... steps) throws OperatorException {
+        add(steps);
+        return flush();
+    }
+
+    /**
+     * Send the queued commands in one round trip, preceded by the context they were queued in if they don't set it
+     *
+     * @return Raw output of the exec
+     * @throws OperatorException The commands could not be run
+     */
+    public synchronized String flush() throws OperatorException {
+        if (queue.isEmpty()) {
+            startBatch(true);
+        }
+        final List<NetSimStep> steps = new ArrayList<>(queueContext.size() + queue.size());
+        steps.addAll(queueContext);
+        steps.addAll(queue);
+        queue.clear();
+        queueContext.clear();
+
+        if (backend == null) {
+            LOGGER.info("Opening NetSim session to " + hostname);
+            backend = backends.get();
+        }
+        final long start = System.currentTimeMillis();
+        final String output = backend.exec(steps);
+        execs++;
+        commandsSent += steps.size();
+        LOGGER.debug("NetSim exec of {} commands on {} took {} mSec", steps.size(), hostname, System.currentTimeMillis() - start);
+        return output;
+    }
+
+    /**
+     * @return Number of round trips to NetSim
+     */
+    public synchronized int getExecCount() {
+        return execs;
+    }
+
+    /**
+     * @return Number of commands sent, including re-sent context commands
+     */
+    public synchronized int getCommandsSent() {
+        return commandsSent;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (backend != null) {
+            LOGGER.info("Closing NetSim session to " + hostname + " after " + execs + " execs, " + commandsSent + " commands");
+            backend.close();
+            backend = null;
+        }
+        queue.clear();
+        queueContext.clear();
+        openStep = null;
+        selectStep = null;
+    }
+}
@@ -0,0 +1,229 @@
+package com.ericsson.oss.mediation.sdk.sdktestware;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The simulations and NEs on a NetSim host, listed once and then looked up from memory.
+ * <p>
+ * The listing is 'show simulations' followed by one exec that opens every simulation and runs 'show simnes' in it,
+ * read with {@link SimnesParser}.
+ * The NEs are indexed by name, type, simulation and IP address. The inventory is shared per host and reloaded when
+ * it is older than netsim.inventory.ttl seconds or after {@link #invalidate()}, e.g. once NEs have been reconfigured.
+ */
+public class NetSimInventory {
+    private final static Logger LOGGER = LoggerFactory.getLogger(NetSimInventory.class);
+
+    private static final Map<String, NetSimInventory> SHARED = new ConcurrentHashMap<>();
+
+    private final NetSimCommandSession netsim;
+    private final long ttlMillis;
+    private volatile Snapshot snapshot;
+
+    NetSimInventory(final NetSimCommandSession netsim, final long ttlMillis) {
+        this.netsim = netsim;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * Get the inventory shared by all operators for a NetSim host
+     *
+     * @param netsim Session to the NetSim host
+     * @return shared inventory
+     */
+    public static NetSimInventory forHost(final NetSimCommandSession netsim) {
+        return SHARED.computeIfAbsent(netsim.getHostname(),
+                name -> new NetSimInventory(netsim, TimeUnit.SECONDS.toMillis(Flags.netsimInventoryTtl())));
+    }
+
+    /**
+     * Invalidate the inventory of every host
+     */
+    public static void invalidateAll() {
+        for (NetSimInventory inventory : SHARED.values()) {
+            inventory.invalidate();
+        }
+    }
+
+    /**
+     * Drop the cached listing, the next lookup lists the host again
+     */
+    public void invalidate() {
+        snapshot = null;
+    }
+
+    /**
+     * @return All simulation names, in listing order
+     * @throws OperatorException The host could not be listed
+     */
+    public List<String> getSimulations() throws OperatorException {
+        return new ArrayList<>(current().bySimulation.keySet());
+    }
+
+    /**
+     * @param text Text the simulation name must contain, e.g. DG2
+     * @return Matching simulation names, in listing order
+     * @throws OperatorException The host could not be listed
+     */
+    public List<String> getSimulationsContaining(final String text) throws OperatorException {
+        final List<String> simulations = new ArrayList<>();
+        for (String simulation : current().bySimulation.keySet()) {
+            if (simulation.contains(text)) {
+                simulations.add(simulation);
+            }
+        }
+        return simulations;
+    }
+
+    /**
+     * @param simulation Simulation name
+     * @return NEs in the simulation, in listing order, empty if there is no such simulation
+     * @throws OperatorException The host could not be listed
+     */
+    public List<NetSimNe> getNes(final String simulation) throws OperatorException {
+        return Collections.unmodifiableList(current().bySimulation.getOrDefault(simulation, Collections.<NetSimNe>emptyList()));
+    }
+
+    /**
+     * @param neName NE name
+     * @return The NE, {@code null} if it isn't on this host
+     * @throws OperatorException The host could not be listed
+     */
+    public NetSimNe findByName(final String neName) throws OperatorException {
+        return current().byName.get(neName);
+    }
+
+    /**
+     * @param ipAddress NE address, without the port
+     * @return The NE, {@code null} if no NE on this host has that address
+     * @throws OperatorException The host could not be listed
+     */
+    public NetSimNe findByIp(final String ipAddress) throws OperatorException {
+        return current().byIp.get(ipAddress);
+    }
+
+    /**
+     * @param type NE type as listed by 'show simnes', e.g. LTE MSRBS-V2 19-Q3-V10
+     * @return NEs of that type, empty if there are none
+     * @throws OperatorException The host could not be listed
+     */
+    public List<NetSimNe> findByType(final String type) throws OperatorException {
+        return Collections.unmodifiableList(current().byType.getOrDefault(type, Collections.<NetSimNe>emptyList()));
+    }
+
+    /**
+     * @return Every NE on the host
+     * @throws OperatorException The host could not be listed
+     */
+    public List<NetSimNe> getAll() throws OperatorException {
+        return new ArrayList<>(current().byName.values());
+    }
+
+    private Snapshot current() throws OperatorException {
+        Snapshot current = snapshot;
+        if (current == null || current.isOlderThan(ttlMillis)) {
+            synchronized (this) {
+                current = snapshot;
+                if (current == null || current.isOlderThan(ttlMillis)) {
+                    current = load();
+                    snapshot = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private Snapshot load() throws OperatorException {
+        final long start = System.currentTimeMillis();
+        final Set<String> simulations = readSimulations(netsim.exec(NetSimStep.showSimulations()));
+
+        final Snapshot loaded = new Snapshot();
+        for (String simulation : simulations) {
+            loaded.bySimulation.put(simulation, new ArrayList<>());
+        }
+        if (!simulations.isEmpty()) {
+            final String output;
+            synchronized (netsim) {
+                for (String simulation : simulations) {
+                    netsim.open(simulation).add(NetSimStep.showSimnes());
+                }
+                output = netsim.flush();
+            }
+            final List<NetSimNe> nes = new ArrayList<>();
+            try (SimnesParser parser = new SimnesParser(netsim.getHostname(), new StringReader(output)).
+                    withSimulations(new ArrayList<>(simulations))) {
+                while (parser.hasNext()) {
+                    nes.add(parser.next());
+                }
+                if (parser.isSimulationMismatch()) {
+                    LOGGER.warn("Can't tell which simulation each 'show simnes' table on " + netsim.getHostname() +
+                            " is for, listing the simulations one at a time");
+                    nes.clear();
+                    for (String simulation : simulations) {
+                        nes.addAll(SimnesParser.parseAll(netsim.getHostname(),
+                                netsim.exec(NetSimStep.open(simulation), NetSimStep.showSimnes()),
+                                Collections.singletonList(simulation)));
+                    }
+                }
+            }
+            for (NetSimNe ne : nes) {
+                if (!loaded.bySimulation.containsKey(ne.getSimulation())) {
+                    throw new OperatorException("NE " + ne.getName() + " listed in unknown simulation " + ne.getSimulation() +
+                            " on " + netsim.getHostname());
+                }
+                loaded.add(ne);
+            }
+        }
+        LOGGER.info("Listed " + loaded.byName.size() + " NEs in " + simulations.size() + " simulations on " +
+                netsim.getHostname() + " in " + (System.currentTimeMillis() - start) + " mSec");
+        return loaded;
+    }
+
+    /**
+     * Read the simulation names listed by '.show simulations', one per line
+     */
+    private static Set<String> readSimulations(final String output) {
+        final Set<String> simulations = new LinkedHashSet<>();
+        for (String line : output.split("\\r?\\n")) {
+            final String name = line.trim();
+            if (!name.isEmpty() && !name.startsWith(">>") && !name.equals("OK")) {
+                simulations.add(name);
+            }
+        }
+        return simulations;
+    }
+
+    private static final class Snapshot {
+        private final long loadedAt = System.currentTimeMillis();
+        private final Map<String, List<NetSimNe>> bySimulation = new LinkedHashMap<>();
+        private final Map<String, NetSimNe> byName = new LinkedHashMap<>();
+        private final Map<String, NetSimNe> byIp = new LinkedHashMap<>();
+        private final Map<String, List<NetSimNe>> byType = new LinkedHashMap<>();
+
+        private void add(final NetSimNe ne) {
+            bySimulation.get(ne.getSimulation()).add(ne);
+            byName.put(ne.getName(), ne);
+            if (ne.getIpAddress() != null) {
+                byIp.put(ne.getIpAddress(), ne);
+            }
+            if (ne.getType() != null) {
+                byType.computeIfAbsent(ne.getType(), type -> new ArrayList<>()).add(ne);
+            }
+        }
+
+        private boolean isOlderThan(final long ttlMillis) {
+            return System.currentTimeMillis() - loadedAt > ttlMillis;
+        }
+    }
+}
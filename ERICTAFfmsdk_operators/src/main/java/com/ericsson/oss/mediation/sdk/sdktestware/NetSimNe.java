@@ -0,0 +1,58 @@
+package com.ericsson.oss.mediation.sdk.sdktestware;
+
+/**
+ * A simulated NE, as listed by NetSim 'show simnes'
+ */
+public class NetSimNe {
+    private final String hostname;
+    private final String simulation;
+    private final String name;
+    private final String type;
+    private final String ipAddress;
+    private final String defaultDestination;
+
+    public NetSimNe(final String hostname, final String simulation, final String name, final String type,
+                    final String ipAddress, final String defaultDestination) {
+        this.hostname = hostname;
+        this.simulation = simulation;
+        this.name = name;
+        this.type = type;
+        this.ipAddress = ipAddress;
+        this.defaultDestination = defaultDestination;
+    }
+
+    /**
+     * @return The NetSim host the NE is simulated on
+     */
+    public String getHostname() {
+        return hostname;
+    }
+
+    public String getSimulation() {
+        return simulation;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * @return The NE address, without the port
+     */
+    public String getIpAddress() {
+        return ipAddress;
+    }
+
+    public String getDefaultDestination() {
+        return defaultDestination;
+    }
+
+    @Override
+    public String toString() {
+        return hostname + ":" + simulation + "/" + name + "(" + type + ")@" + ipAddress;
+    }
+}
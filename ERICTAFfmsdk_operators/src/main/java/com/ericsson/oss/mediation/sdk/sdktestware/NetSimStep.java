@@ -0,0 +1,100 @@
+package com.ericsson.oss.mediation.sdk.sdktestware;
+
+import com.ericsson.cifwk.taf.handlers.netsim.NetSimCommand;
+import com.ericsson.cifwk.taf.handlers.netsim.commands.NetSimCommands;
+
+/**
+ * A NetSim command, as both the TAF command object and the netsim_pipe text it stands for.
+ * <p>
+ * The TAF object is what's sent to a real NetSim; the text lets a local stand-in (and log output) understand
+ * the command without depending on how TAF renders it.
+ */
+public class NetSimStep {
+    private final NetSimCommand command;
+    private final String text;
+
+    NetSimStep(final NetSimCommand command, final String text) {
+        this.command = command;
+        this.text = text;
+    }
+
+    public static NetSimStep showSimulations() {
+        return new NetSimStep(NetSimCommands.showSimulations(), ".show simulations");
+    }
+
+    public static NetSimStep showSimnes() {
+        return new NetSimStep(NetSimCommands.showSimnes(), ".show simnes");
+    }
+
+    public static NetSimStep open(final String simulation) {
+        return new NetSimStep(NetSimCommands.open(simulation), ".open " + simulation);
+    }
+
+    public static NetSimStep select(final String... neNames) {
+        return new NetSimStep(NetSimCommands.select(neNames), ".select " + String.join(" ", neNames));
+    }
+
+    public static NetSimStep selectConfiguration() {
+        return new NetSimStep(NetSimCommands.selectConfiguration(), ".select configuration");
+    }
+
+    public static NetSimStep start() {
+        return new NetSimStep(NetSimCommands.start(), ".start");
+    }
+
+    public static NetSimStep stop() {
+        return new NetSimStep(NetSimCommands.stop(), ".stop");
+    }
+
+    public static NetSimStep setExternal(final String destination) {
+        return new NetSimStep(NetSimCommands.setExternal(destination), ".set external " + destination);
+    }
+
+    public static NetSimStep setSave() {
+        return new NetSimStep(NetSimCommands.setSave(), ".set save");
+    }
+
+    public static NetSimStep configAddExternal(final String destination, final String protocol) {
+        return new NetSimStep(NetSimCommands.configAddExternal(destination, protocol),
+                ".config add external " + destination + " " + protocol);
+    }
+
+    public static NetSimStep configExternalServers(final String destination, final String server) {
+        return new NetSimStep(NetSimCommands.configExternalServers(destination, server),
+                ".config external servers " + destination + " " + server);
+    }
+
+    public static NetSimStep configExternalAddress(final String destination, final String address, final String port,
+                                                   final String notificationType) {
+        return new NetSimStep(NetSimCommands.configExternalAddress(destination, address, port, notificationType),
+                ".config external address " + destination + " " + address + " " + port + " " + notificationType);
+    }
+
+    public static NetSimStep configSave() {
+        return new NetSimStep(NetSimCommands.configSave(), ".config save");
+    }
+
+    public static NetSimStep sendAlarm(final String specificProblem) {
+        return new NetSimStep(NetSimCommands.sendalarm().setSpecificProblem(specificProblem),
+                "sendalarm:specificProblem=\"" + specificProblem + "\";");
+    }
+
+    /**
+     * @return The TAF command, sent to a real NetSim
+     */
+    public NetSimCommand getCommand() {
+        return command;
+    }
+
+    /**
+     * @return The netsim_pipe command text
+     */
+    public String getText() {
+        return text;
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+}
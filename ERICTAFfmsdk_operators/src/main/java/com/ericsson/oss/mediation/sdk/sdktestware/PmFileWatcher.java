@@ -0,0 +1,241 @@
+package com.ericsson.oss.mediation.sdk.sdktestware;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Waits for PM statistical files to be collected for a node.
+ * <p>
+ * Knowing when the subscription was activated and its ROP, the end of each ROP is worked out and the file API is only
+ * polled from then on, returning as soon as a file for the node and that ROP or a later one is listed. A later ROP
+ * counts since the activation time is taken on the test host, and ENM may only start collecting from the next ROP.
+ */
+public class PmFileWatcher {
+    private final static Logger LOGGER = LoggerFactory.getLogger(PmFileWatcher.class);
+
+    private static final String FILES_URI = "file/v1/files?filter=dataType==PM_STATISTICAL;nodeName==";
+
+    private final FileQuery fileQuery;
+    private final Rop rop;
+    private final long maxCollectionDelayMillis;
+
+    /**
+     * @param fileQuery                Runs a GET against ENM and returns the body
+     * @param rop                      Subscription ROP
+     * @param maxCollectionDelayMillis How long after the end of a ROP to wait for its file
+     */
+    PmFileWatcher(final FileQuery fileQuery, final Rop rop, final long maxCollectionDelayMillis) {
+        this.fileQuery = fileQuery;
+        this.rop = rop;
+        this.maxCollectionDelayMillis = maxCollectionDelayMillis;
+    }
+
+    /**
+     * Wait for the files of {@code ropCount} consecutive collected ROPs, starting with the first complete ROP after
+     * activation
+     *
+     * @param neName           Node name
+     * @param activationMillis When the subscription was activated
+     * @param ropCount         Number of ROPs to wait for
+     * @return The file found for each ROP, with the ROP it was actually for
+     * @throws OperatorException A file was not collected in time, or the file API failed
+     */
+    public List<PmFileArrival> await(final String neName, final long activationMillis, final int ropCount) throws OperatorException {
+        final List<PmFileArrival> arrivals = new ArrayList<>();
+        long ropStart = rop.firstRopStartAfter(activationMillis);
+        for (int index = 0; index < ropCount; index++) {
+            final PmFileArrival arrival = awaitRop(neName, ropStart);
+            arrivals.add(arrival);
+            ropStart = arrival.getRopStartMillis() + rop.getMillis();
+        }
+        return arrivals;
+    }
+
+    private PmFileArrival awaitRop(final String neName, final long ropStart) throws OperatorException {
+        final long ropEnd = ropStart + rop.getMillis();
+        final long untilRopEnd = ropEnd - System.currentTimeMillis();
+        if (untilRopEnd > 0) {
+            LOGGER.info("Waiting " + untilRopEnd + "mSec for " + rop + " ROP starting " + Instant.ofEpochMilli(ropStart) + " to end");
+            try {
+                Thread.sleep(untilRopEnd);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new OperatorException("Interrupted waiting for ROP end", e);
+            }
+        }
+        final long timeout = ropEnd + maxCollectionDelayMillis - System.currentTimeMillis();
+        final Poller.PollResult<Map<String, Object>> result = Poller.poll(
+                "PM file for " + neName + " ROP " + Instant.ofEpochMilli(ropStart), timeout,
+                new Backoff(2000, 15000, 1.5, 0.2), () -> findFile(neName, ropStart));
+
+        final Map<String, Object> file = result.getValue();
+        final long foundRopStart = fileRopStart(file, ropStart);
+        if (foundRopStart != ropStart) {
+            LOGGER.info("No file for " + neName + " ROP " + Instant.ofEpochMilli(ropStart) + ", found ROP " +
+                    Instant.ofEpochMilli(foundRopStart));
+        }
+        final PmFileArrival arrival = new PmFileArrival(neName, foundRopStart, file,
+                Math.max(0, System.currentTimeMillis() - foundRopStart - rop.getMillis()), result.getPolls());
+        LOGGER.info("PM file collected {}", arrival);
+        return arrival;
+    }
+
+    /**
+     * Get the file of the earliest ROP listed for the node, from the awaited ROP on
+     */
+    private Map<String, Object> findFile(final String neName, final long ropStart) throws OperatorException {
+        final String response = fileQuery.get(FILES_URI + neName);
+        final FileListing listing;
+        try {
+            listing = ScriptEngineResponseReader.getMapper().readValue(response, FileListing.class);
+        } catch (IOException e) {
+            throw new OperatorException("Could not read file API response: " + response, e);
+        }
+        Map<String, Object> earliest = null;
+        for (Map<String, Object> file : listing.getFiles()) {
+            if (isNodeFile(file, neName) && isRopFile(file, ropStart) &&
+                    (earliest == null || fileRopStart(file, ropStart) < fileRopStart(earliest, ropStart))) {
+                earliest = file;
+            }
+        }
+        return earliest;
+    }
+
+    private boolean isNodeFile(final Map<String, Object> file, final String neName) {
+        final Object nodeName = file.get("nodeName");
+        if (nodeName != null) {
+            return neName.equals(nodeName.toString());
+        }
+        return file.toString().contains(neName);
+    }
+
+    /**
+     * Only a file for the ROP being waited on or a later one counts, not one from an earlier ROP (e.g. from an earlier
+     * run against the same node) nor one without a time to tell. If the file API doesn't give the ROP start, the file
+     * must have been created after the end of the ROP and within the time the file is waited for.
+     */
+    private boolean isRopFile(final Map<String, Object> file, final long ropStart) {
+        final Long fileRopStart = toMillis(file.get("startRopTimeInOss"));
+        if (fileRopStart != null) {
+            return fileRopStart >= ropStart;
+        }
+        final Long created = toMillis(file.get("fileCreationTimeInOss"));
+        final long ropEnd = ropStart + rop.getMillis();
+        return created != null && created >= ropEnd && created <= ropEnd + maxCollectionDelayMillis;
+    }
+
+    /**
+     * Get the start of the ROP a matching file is for. Without a ROP start from the file API it's taken to be the
+     * last ROP that ended before the file was created, not earlier than the awaited one.
+     */
+    private long fileRopStart(final Map<String, Object> file, final long ropStart) {
+        final Long fileRopStart = toMillis(file.get("startRopTimeInOss"));
+        if (fileRopStart != null) {
+            return fileRopStart;
+        }
+        final long created = toMillis(file.get("fileCreationTimeInOss"));
+        return Math.max(ropStart, created - created % rop.getMillis() - rop.getMillis());
+    }
+
+    private static Long toMillis(final Object time) {
+        if (time instanceof Number) {
+            return ((Number) time).longValue();
+        }
+        if (time == null) {
+            return null;
+        }
+        final String text = time.toString();
+        try {
+            return Long.parseLong(text);
+        } catch (NumberFormatException e) {
+            try {
+                return OffsetDateTime.parse(text).toInstant().toEpochMilli();
+            } catch (DateTimeParseException e2) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Body of the file API response, only the listed files are read
+     */
+    static class FileListing {
+        private List<Map<String, Object>> files = Collections.emptyList();
+
+        public List<Map<String, Object>> getFiles() {
+            return files;
+        }
+
+        public void setFiles(final List<Map<String, Object>> files) {
+            this.files = files == null ? Collections.<Map<String, Object>>emptyList() : files;
+        }
+    }
+
+    /**
+     * Runs a GET against ENM and returns the body
+     */
+    interface FileQuery {
+        String get(String uri) throws OperatorException;
+    }
+
+    /**
+     * A PM file found for a ROP
+     */
+    public static class PmFileArrival {
+        private final String neName;
+        private final long ropStartMillis;
+        private final Map<String, Object> file;
+        private final long collectionDelayMillis;
+        private final int polls;
+
+        PmFileArrival(final String neName, final long ropStartMillis, final Map<String, Object> file,
+                      final long collectionDelayMillis, final int polls) {
+            this.neName = neName;
+            this.ropStartMillis = ropStartMillis;
+            this.file = file;
+            this.collectionDelayMillis = collectionDelayMillis;
+            this.polls = polls;
+        }
+
+        public String getNeName() {
+            return neName;
+        }
+
+        public long getRopStartMillis() {
+            return ropStartMillis;
+        }
+
+        /**
+         * @return The file entry as listed by the file API
+         */
+        public Map<String, Object> getFile() {
+            return file;
+        }
+
+        /**
+         * @return Time from the end of the ROP until the file was listed, accurate to the delay between polls
+         */
+        public long getCollectionDelayMillis() {
+            return collectionDelayMillis;
+        }
+
+        public int getPolls() {
+            return polls;
+        }
+
+        @Override
+        public String toString() {
+            return neName + " ROP " + Instant.ofEpochMilli(ropStartMillis) + " collection delay " +
+                    collectionDelayMillis + "mSec (" + polls + " polls) " + file.get("fileLocation");
+        }
+    }
+}
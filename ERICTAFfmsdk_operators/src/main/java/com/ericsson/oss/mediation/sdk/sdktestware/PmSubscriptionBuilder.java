@@ -0,0 +1,232 @@
+package com.ericsson.oss.mediation.sdk.sdktestware;
+
+import com.ericsson.oss.mediation.sdk.pmsdk.subscription.Counter;
+import com.ericsson.oss.mediation.sdk.pmsdk.subscription.Node;
+import com.ericsson.oss.mediation.sdk.pmsdk.subscription.PmsdkStatisticalSubscription;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Builds PM statistical subscriptions for any number of nodes.
+ * <p>
+ * The persistent objects of the nodes come from an {@link NePoCache}, which looks up only the nodes it doesn't
+ * already hold, concurrently (bounded by the lookup concurrency) rather than one after the other. The default
+ * counter catalog is parsed once per JVM, and the payload is written straight to a {@link Writer} by the Jackson
+ * generator.
+ */
+public class PmSubscriptionBuilder {
+    private static final String DEFAULT_COUNTERS = "/defaultcounter.json";
+    private static final String STATISTICAL = "STATISTICAL";
+    private static final String INACTIVE = "INACTIVE";
+    private static final String ADMINISTRATOR = "administrator";
+    private static final String NODE_TYPE = "NODE_TYPE";
+    private static final String PM_FUNCTION = "ON";
+    private static final String CLASS = "statistical";
+    private static final String USER_TYPE = "USER_DEF";
+    private static final String TASK_STATUS = "OK";
+
+    private static volatile List<Counter> defaultCounters;
+
+    private final NePoCache cache;
+    private final Set<String> nodeNames = new LinkedHashSet<>();
+    private String name;
+    private String description;
+    private String neType;
+    private Rop rop = Rop.FIFTEEN_MIN;
+    private List<Counter> counters;
+    private int lookupConcurrency = Flags.pmNodeLookupConcurrency();
+
+    /**
+     * @param cache Persistent object attributes (poId, fdn, neVersion) of NetworkElements
+     */
+    PmSubscriptionBuilder(final NePoCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Get the counters in defaultcounter.json, parsed on first use
+     *
+     * @return unmodifiable counter list
+     * @throws OperatorException The catalog could not be read
+     */
+    public static List<Counter> defaultCounters() throws OperatorException {
+        List<Counter> counters = defaultCounters;
+        if (counters == null) {
+            synchronized (PmSubscriptionBuilder.class) {
+                counters = defaultCounters;
+                if (counters == null) {
+                    try (InputStream in = PmSubscriptionBuilder.class.getResourceAsStream(DEFAULT_COUNTERS)) {
+                        if (in == null) {
+                            throw new OperatorException("Counter catalog " + DEFAULT_COUNTERS + " not found");
+                        }
+                        final Counter[] parsed = ScriptEngineResponseReader.getMapper().readValue(in, Counter[].class);
+                        counters = Collections.unmodifiableList(Arrays.asList(parsed));
+                        defaultCounters = counters;
+                    } catch (IOException e) {
+                        throw new OperatorException("Error reading counter catalog " + DEFAULT_COUNTERS, e);
+                    }
+                }
+            }
+        }
+        return counters;
+    }
+
+    public PmSubscriptionBuilder name(final String name) {
+        this.name = name;
+        return this;
+    }
+
+    /**
+     * @param description Subscription description, defaults to the name
+     * @return this builder
+     */
+    public PmSubscriptionBuilder description(final String description) {
+        this.description = description;
+        return this;
+    }
+
+    public PmSubscriptionBuilder neType(final String neType) {
+        this.neType = neType;
+        return this;
+    }
+
+    public PmSubscriptionBuilder rop(final Rop rop) {
+        this.rop = rop;
+        return this;
+    }
+
+    /**
+     * @param neNames NetworkElement names to add, duplicates are ignored
+     * @return this builder
+     */
+    public PmSubscriptionBuilder nodes(final Collection<String> neNames) {
+        nodeNames.addAll(neNames);
+        return this;
+    }
+
+    public PmSubscriptionBuilder node(final String neName) {
+        nodeNames.add(neName);
+        return this;
+    }
+
+    /**
+     * @param counters Counters to collect, defaults to {@link #defaultCounters()}
+     * @return this builder
+     */
+    public PmSubscriptionBuilder counters(final List<Counter> counters) {
+        this.counters = counters;
+        return this;
+    }
+
+    /**
+     * @param lookupConcurrency Maximum number of node lookups in flight
+     * @return this builder
+     */
+    public PmSubscriptionBuilder lookupConcurrency(final int lookupConcurrency) {
+        this.lookupConcurrency = Math.max(1, lookupConcurrency);
+        return this;
+    }
+
+    /**
+     * Look up every node and build the subscription
+     *
+     * @return subscription
+     * @throws OperatorException A node could not be looked up, or the counter catalog could not be read
+     */
+    public PmsdkStatisticalSubscription build() throws OperatorException {
+        if (name == null || neType == null || nodeNames.isEmpty()) {
+            throw new OperatorException("A subscription needs a name, a neType and at least one node");
+        }
+        final PmsdkStatisticalSubscription subscription = new PmsdkStatisticalSubscription();
+        subscription.setType(STATISTICAL);
+        subscription.setName(name);
+        subscription.setDescription(description == null ? name : description);
+        subscription.setAdministrationState(INACTIVE);
+        subscription.setOwner(ADMINISTRATOR);
+        subscription.setNodeFilter(NODE_TYPE);
+        subscription.setSelectedNeTypes(new ArrayList<>(Collections.singletonList(neType)));
+        final ArrayList<Node> nodes = resolveNodes();
+        subscription.setNodes(nodes);
+        subscription.setNumberOfNodes(nodes.size());
+        subscription.setClasss(CLASS);
+        subscription.setUserType(USER_TYPE);
+        subscription.setTaskStatus(TASK_STATUS);
+        subscription.setRop(rop.name());
+        subscription.setPnpEnabled(false);
+        subscription.setFilterOnManagedElement(false);
+        subscription.setFilterOnManagedFunction(false);
+        subscription.setCbs(false);
+        subscription.setCounters(new ArrayList<>(counters == null ? defaultCounters() : counters));
+        return subscription;
+    }
+
+    /**
+     * Build the subscription and write it as JSON
+     *
+     * @param writer Where to write the payload, not closed
+     * @throws OperatorException Any errors
+     */
+    public void writeTo(final Writer writer) throws OperatorException {
+        final PmsdkStatisticalSubscription subscription = build();
+        try {
+            ScriptEngineResponseReader.getMapper().writeValue(writer, subscription);
+        } catch (IOException e) {
+            throw new OperatorException("Error writing subscription " + name, e);
+        }
+    }
+
+    /**
+     * Build the subscription as a JSON string, for request bodies
+     *
+     * @return payload
+     * @throws OperatorException Any errors
+     */
+    public String toJson() throws OperatorException {
+        // about 140 characters per node plus the counters, saves the writer growing its buffer for large node sets
+        final StringWriter writer = new StringWriter(4096 + nodeNames.size() * 160);
+        writeTo(writer);
+        return writer.toString();
+    }
+
+    private ArrayList<Node> resolveNodes() throws OperatorException {
+        final Map<String, Map<String, Object>> details = cache.prefetch(nodeNames, lookupConcurrency);
+        final ArrayList<Node> nodes = new ArrayList<>(details.size());
+        for (Map.Entry<String, Map<String, Object>> entry : details.entrySet()) {
+            nodes.add(toNode(entry.getKey(), entry.getValue()));
+        }
+        return nodes;
+    }
+
+    private Node toNode(final String neName, final Map<String, Object> details) throws OperatorException {
+        final Object poId = details.get("poId");
+        if (poId == null) {
+            throw new OperatorException("No poId for NetworkElement=" + neName);
+        }
+        final Node node = new Node();
+        node.setFdn((String) details.get("fdn"));
+        node.setId(poId.toString());
+        node.setPmFunction(PM_FUNCTION);
+        node.setOssPrefix("MeContext=" + neName);
+        node.setNeType(neType);
+        node.setOssModelIdentity((String) details.get("neVersion"));
+        return node;
+    }
+
+    /**
+     * Gets the persistent object attributes of a NetworkElement
+     */
+    interface NodeLookup {
+        Map<String, Object> details(String neName) throws OperatorException;
+    }
+}
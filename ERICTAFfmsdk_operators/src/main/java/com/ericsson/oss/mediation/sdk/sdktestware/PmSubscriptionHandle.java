@@ -0,0 +1,237 @@
+package com.ericsson.oss.mediation.sdk.sdktestware;
+
+import com.ericsson.oss.mediation.sdk.pmsdk.subscription.PmsdkStatisticalSubscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Map;
+
+/**
+ * A PM subscription known by its ID.
+ * <p>
+ * The create request is accepted asynchronously and its response only carries a tracking ID and the URL of the
+ * request's status, which gives the subscription ID once the subscription exists. From then on the subscription is
+ * read with one GET by ID; every STATISTICAL subscription on the system is only listed to find one by name, when
+ * there's no create response to follow.
+ */
+public class PmSubscriptionHandle {
+    private final static Logger LOGGER = LoggerFactory.getLogger(PmSubscriptionHandle.class);
+
+    static final String SUBSCRIPTION_URI = "/pm-service/rest/subscription/";
+    private static final String FIND_BY_TYPE_URI = SUBSCRIPTION_URI + "findByType?Type=STATISTICAL";
+
+    private final String name;
+    private final String trackingId;
+    private final String trackingUri;
+    private final SubscriptionQuery query;
+    private String id;
+    private PmsdkStatisticalSubscription subscription;
+
+    private PmSubscriptionHandle(final String name, final String trackingId, final String trackingUri,
+                                 final SubscriptionQuery query) {
+        this.name = name;
+        this.trackingId = trackingId;
+        this.trackingUri = trackingUri;
+        this.query = query;
+    }
+
+    /**
+     * Get a handle from the response to creating a subscription
+     *
+     * @param name           Subscription name
+     * @param createResponse Body of the create response, {"id":..., "url":...} where the id tracks the request and
+     *                       the url gives its status
+     * @param query          Runs a GET against ENM
+     * @return handle, call {@link #awaitReady} to resolve the ID before using it
+     */
+    static PmSubscriptionHandle created(final String name, final String createResponse, final SubscriptionQuery query) {
+        String trackingId = null;
+        String trackingUri = null;
+        try {
+            final Map<?, ?> body = ScriptEngineResponseReader.getMapper().readValue(createResponse, Map.class);
+            if (body != null && body.get("id") != null) {
+                trackingId = body.get("id").toString();
+            }
+            if (body != null && body.get("url") != null) {
+                trackingUri = path(body.get("url").toString());
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Unexpected create response '{}' for {}", createResponse, name);
+        }
+        if (trackingUri == null) {
+            LOGGER.warn("No status url in create response '{}' for {}, it will be looked up by name", createResponse, name);
+        }
+        return new PmSubscriptionHandle(name, trackingId, trackingUri, query);
+    }
+
+    /**
+     * Find an existing subscription by name, listing all STATISTICAL subscriptions once
+     *
+     * @param name  Subscription name
+     * @param query Runs a GET against ENM
+     * @return handle, {@code null} if there is no subscription with that name
+     * @throws OperatorException The listing failed
+     */
+    static PmSubscriptionHandle find(final String name, final SubscriptionQuery query) throws OperatorException {
+        final PmSubscriptionHandle handle = new PmSubscriptionHandle(name, null, null, query);
+        return handle.findByName() == null ? null : handle;
+    }
+
+    /**
+     * Wait until the subscription can be read back with a persistence time, polling on a backoff schedule. The
+     * status of the create request is read until it gives the subscription ID, then the subscription is read by ID.
+     *
+     * @param timeoutMillis How long to wait
+     * @param backoff       Delays between reads
+     * @return this handle
+     * @throws OperatorException The subscription was not readable in time, or a read failed
+     */
+    public PmSubscriptionHandle awaitReady(final long timeoutMillis, final Backoff backoff) throws OperatorException {
+        final Poller.PollResult<PmsdkStatisticalSubscription> result = Poller.poll("subscription " + name, timeoutMillis,
+                backoff.copy(), () -> {
+                    if (id == null) {
+                        if (trackingUri == null) {
+                            findByName();
+                        } else {
+                            id = resolveId();
+                        }
+                        if (id == null) {
+                            return null;
+                        }
+                    }
+                    final PmsdkStatisticalSubscription current = read();
+                    return current == null || current.getPersistenceTime() == null ? null : current;
+                });
+        LOGGER.info("Subscription {} ({}, request {}) ready after {} mSec, {} polls", name, id, trackingId,
+                result.getElapsedMillis(), result.getPolls());
+        return this;
+    }
+
+    /**
+     * Read the subscription again, e.g. for the persistence time after it has been activated
+     *
+     * @return this handle
+     * @throws OperatorException The subscription no longer exists, or the read failed
+     */
+    public PmSubscriptionHandle refresh() throws OperatorException {
+        if ((id == null ? findByName() : read()) == null) {
+            throw new OperatorException("Subscription " + name + " (" + id + ") not found");
+        }
+        return this;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return Subscription ID, {@code null} until it is known
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * @return Persistence time from the last read, {@code null} if it hasn't been read
+     */
+    public String getPersistenceTime() {
+        return subscription == null ? null : subscription.getPersistenceTime();
+    }
+
+    /**
+     * @return The subscription as last read, {@code null} if it hasn't been read
+     */
+    public PmsdkStatisticalSubscription getSubscription() {
+        return subscription;
+    }
+
+    private PmsdkStatisticalSubscription read() throws OperatorException {
+        final String body = query.get(SUBSCRIPTION_URI + id);
+        if (body == null) {
+            return null;
+        }
+        try {
+            subscription = ScriptEngineResponseReader.getMapper().readValue(body, PmsdkStatisticalSubscription.class);
+        } catch (IOException e) {
+            throw new OperatorException("Unexpected subscription " + id + " : " + body, e);
+        }
+        return subscription;
+    }
+
+    /**
+     * Read the status of the create request
+     *
+     * @return The subscription ID, {@code null} while the subscription doesn't exist yet
+     */
+    private String resolveId() throws OperatorException {
+        final String body = query.get(trackingUri);
+        if (body == null) {
+            return null;
+        }
+        final Map<?, ?> status;
+        try {
+            status = ScriptEngineResponseReader.getMapper().readValue(body, Map.class);
+        } catch (IOException e) {
+            throw new OperatorException("Unexpected status of subscription " + name + " : " + body, e);
+        }
+        if (status == null) {
+            return null;
+        }
+        // once created, the status links to the subscription itself
+        final Object url = status.get("url");
+        if (url != null) {
+            final String uri = path(url.toString());
+            if (!uri.equals(trackingUri) && uri.startsWith(SUBSCRIPTION_URI)) {
+                return uri.substring(uri.lastIndexOf('/') + 1);
+            }
+        }
+        final Object statusId = status.get("id");
+        return statusId == null || statusId.toString().equals(trackingId) ? null : statusId.toString();
+    }
+
+    /**
+     * @return The path of a URL, with the query if there is one; a path is returned as is
+     */
+    private static String path(final String url) {
+        if (!url.startsWith("http")) {
+            return url;
+        }
+        final URI uri = URI.create(url);
+        return uri.getRawQuery() == null ? uri.getRawPath() : uri.getRawPath() + "?" + uri.getRawQuery();
+    }
+
+    private PmsdkStatisticalSubscription findByName() throws OperatorException {
+        final String body = query.get(FIND_BY_TYPE_URI);
+        if (body == null) {
+            return null;
+        }
+        final PmsdkStatisticalSubscription[] all;
+        try {
+            all = ScriptEngineResponseReader.getMapper().readValue(body, PmsdkStatisticalSubscription[].class);
+        } catch (IOException e) {
+            throw new OperatorException("Unexpected subscription list : " + body, e);
+        }
+        for (PmsdkStatisticalSubscription candidate : all) {
+            if (name.equalsIgnoreCase(candidate.getName())) {
+                subscription = candidate;
+                id = String.valueOf(candidate.getId());
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Runs a GET against ENM
+     */
+    interface SubscriptionQuery {
+        /**
+         * @param uri Path to get
+         * @return The body, {@code null} if there is nothing at that path (404)
+         * @throws OperatorException Any other failure
+         */
+        String get(String uri) throws OperatorException;
+    }
+}
@@ -0,0 +1,88 @@
+package com.ericsson.oss.mediation.sdk.sdktestware;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Repeatedly check a condition until it's met or a deadline passes.
+ * The first check is done straight away, later checks are spaced out using a {@link Backoff}.
+ */
+public class Poller {
+
+    /**
+     * Poll until the probe returns a value
+     *
+     * @param description   What is being waited on, used in the timeout error
+     * @param timeoutMillis How long to keep polling for
+     * @param backoff       Delays between polls
+     * @param probe         Check to make, returns {@code null} if not done yet
+     * @param <T>           Value type
+     * @return The value returned by the probe and polling statistics
+     * @throws OperatorException If the deadline passes, the poll is interrupted or the probe fails
+     */
+    public static <T> PollResult<T> poll(final String description, final long timeoutMillis, final Backoff backoff,
+                                         final Probe<T> probe) throws OperatorException {
+        final long start = System.nanoTime();
+        final long deadline = start + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        int polls = 0;
+        while (true) {
+            polls++;
+            final T value = probe.check();
+            final long now = System.nanoTime();
+            if (value != null) {
+                return new PollResult<>(value, polls, TimeUnit.NANOSECONDS.toMillis(now - start));
+            }
+            final long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - now);
+            if (remainingMillis <= 0) {
+                throw new OperatorException("Timed out after " + timeoutMillis + "mSec (" + polls + " polls) waiting for " + description);
+            }
+            try {
+                Thread.sleep(Math.min(remainingMillis, backoff.nextDelayMillis()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new OperatorException("Interrupted waiting for " + description, e);
+            }
+        }
+    }
+
+    /**
+     * A check made by the {@link Poller}
+     *
+     * @param <T> Value type
+     */
+    public interface Probe<T> {
+        /**
+         * @return The value if the condition is met, {@code null} otherwise
+         * @throws OperatorException Any errors, stops the polling
+         */
+        T check() throws OperatorException;
+    }
+
+    /**
+     * Value returned by a {@link Probe} and how long it took to get it
+     *
+     * @param <T> Value type
+     */
+    public static class PollResult<T> {
+        private final T value;
+        private final int polls;
+        private final long elapsedMillis;
+
+        PollResult(final T value, final int polls, final long elapsedMillis) {
+            this.value = value;
+            this.polls = polls;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        public T getValue() {
+            return value;
+        }
+
+        public int getPolls() {
+            return polls;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+    }
+}
@@ -10,26 +10,72 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.OutputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+/**
+ * Runs commands on, and copies files to, the director node.
+ * <p>
+ * All operators share one authenticated SSH session to the director and open a channel on it for each command or
+ * file transfer, so a command costs a channel open rather than a TCP connection, SSH handshake and key exchange.
+ * The session is checked before use once it has been idle for director.ssh.keepAlive seconds and is re-opened if it
+ * has dropped. It stays open until {@link #closeShared()} is called.
+ */
 public class RemoteAccessOperator implements AutoCloseable {
     private final static Logger LOGGER = LoggerFactory.getLogger(RemoteAccessOperator.class);
-    private final JSch jsch = new JSch();
+
+    private static final int OUTPUT_BUFFER_CHARS = 8192;
+    private static final long EXIT_STATUS_POLL_MILLIS = 5;
+    private static final ExecutorService OUTPUT_READERS = Executors.newCachedThreadPool(runnable -> {
+        final Thread thread = new Thread(runnable, "remote-output");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static ExecutorService commandExecutor;
+    private static Session shared;
+    private static RemoteFileSystem sharedDirectories = new RemoteFileSystem();
+    private static long sharedLastUsed;
+
     private File clusterPem;
-    private Session session;
 
     private ChannelSftp sftpChannel;
 
     private Host directorHost;
 
     /**
-     * Close any open connection
+     * Close this operator's sftp channel, the shared director session stays open
      */
     public void disconnect() {
-        session.disconnect();
-        session = null;
+        if (sftpChannel != null) {
+            sftpChannel.disconnect();
+            sftpChannel = null;
+        }
+    }
+
+    /**
+     * Close the director session shared by all operators, if one is open
+     */
+    public static synchronized void closeShared() {
+        if (shared != null) {
+            LOGGER.info("Closing director session -> " + shared.getHost());
+            shared.disconnect();
+            shared = null;
+        }
     }
 
     /**
@@ -64,12 +110,29 @@ public class RemoteAccessOperator implements AutoCloseable {
     }
 
     /**
-     * Open a connection to the director node
+     * @return Directories known to exist on the director, for the current session
+     */
+    private static synchronized RemoteFileSystem directories() {
+        return sharedDirectories;
+    }
+
+    /**
+     * Get the shared director session, opening it if there is none or the current one has dropped
      *
+     * @return connected session
      * @throws OperatorException Any errors
      */
-    private void connect() throws OperatorException {
-        if (session == null || !session.isConnected()) {
+    private Session connect() throws OperatorException {
+        synchronized (RemoteAccessOperator.class) {
+            if (shared != null && isHealthy(shared)) {
+                sharedLastUsed = System.currentTimeMillis();
+                return shared;
+            }
+            if (shared != null) {
+                LOGGER.warn("Director session -> " + shared.getHost() + " dropped, reconnecting");
+                shared.disconnect();
+                shared = null;
+            }
             LOGGER.info("New director session -> " + getDirector().getIp() + ":" + getDirector().getPort(Ports.SSH));
             final Path knownHosts = Paths.get(Flags.userHome(), ".ssh", "known_hosts");
 
@@ -77,10 +140,12 @@ public class RemoteAccessOperator implements AutoCloseable {
             final File pemFile = getClusterPemFile(clusterName);
 
             try {
+                final JSch jsch = new JSch();
                 jsch.setKnownHosts(knownHosts.toString());
                 jsch.addIdentity(pemFile.getAbsolutePath());
-                session = jsch.getSession(getDirector().getUser(), getDirector().getIp(), getDirector().getPort(Ports.SSH));
+                final Session session = jsch.getSession(getDirector().getUser(), getDirector().getIp(), getDirector().getPort(Ports.SSH));
                 session.setConfig("StrictHostKeyChecking", "no");
+                session.setServerAliveInterval((int) TimeUnit.SECONDS.toMillis(Flags.directorSshKeepAlive()));
                 final String userName = getDirector().getUser();
                 final String passWord = getDirector().getUser(userName).getPassword();
                 if (passWord != null && passWord.length() > 0)
@@ -88,21 +153,65 @@ public class RemoteAccessOperator implements AutoCloseable {
                     session.setPassword(passWord);
                 }
                 session.connect();
+                shared = session;
+                sharedDirectories = new RemoteFileSystem();
+                sharedLastUsed = System.currentTimeMillis();
+                return session;
             } catch (JSchException e) {
                 throw new OperatorException(e);
             }
         }
     }
 
-    private ChannelSftp connectSftp() throws OperatorException {
-        if (sftpChannel == null || !sftpChannel.isConnected()) {
+    /**
+     * A session that was used recently is taken as healthy, an idle one is sent a keep-alive first
+     */
+    private static boolean isHealthy(final Session session) {
+        if (!session.isConnected()) {
+            return false;
+        }
+        if (System.currentTimeMillis() - sharedLastUsed < TimeUnit.SECONDS.toMillis(Flags.directorSshKeepAlive())) {
+            return true;
+        }
+        try {
+            session.sendKeepAliveMsg();
+            return session.isConnected();
+        } catch (Exception e) {
+            LOGGER.debug("Director session keep-alive failed: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Open a channel on the shared session. If the session turns out to have dropped, it's re-opened and the channel
+     * opened again once; nothing has run on the channel at that point.
+     *
+     * @param type  Channel type, "exec" or "sftp"
+     * @param setup Sets the channel up before it is connected
+     * @return connected channel
+     * @throws OperatorException Any errors
+     */
+    private <T extends Channel> T openChannel(final String type, final ChannelSetup<T> setup) throws OperatorException {
+        for (int attempt = 1; ; attempt++) {
+            final Session session = connect();
             try {
-                this.sftpChannel = (ChannelSftp) session.openChannel("sftp");
-                this.sftpChannel.connect();
+                @SuppressWarnings("unchecked") final T channel = (T) session.openChannel(type);
+                setup.setUp(channel);
+                channel.connect();
+                return channel;
             } catch (JSchException e) {
-                throw new OperatorException(e);
+                if (attempt > 1 || session.isConnected()) {
+                    throw new OperatorException(e);
+                }
+                LOGGER.warn("Director session dropped opening " + type + " channel: " + e.getMessage());
             }
         }
+    }
+
+    private ChannelSftp connectSftp() throws OperatorException {
+        if (sftpChannel == null || !sftpChannel.isConnected()) {
+            this.sftpChannel = openChannel("sftp", (ChannelSftp channel) -> channel.setBulkRequests(Flags.directorSftpBulkRequests()));
+        }
         return this.sftpChannel;
     }
 
@@ -124,138 +233,348 @@ public class RemoteAccessOperator implements AutoCloseable {
      * @param command        Command to execute
      * @param timeoutSeconds Timeout
      * @param stdout         Buffer to store command output in
-     * @param stderr         Buffer to store command error output in (null redirects to stdout)
+     * @param stderr         Buffer to store command error output in (null to only log it)
      * @return exit code of command
      * @throws OperatorException Any errors
      */
     public int execute(final String command, final int timeoutSeconds, final StringBuilder stdout, final StringBuilder stderr) throws OperatorException {
-        connect();
+        LOGGER.info("Executing command (timeout=" + timeoutSeconds + "seconds): " + command);
+        final long timeoutMilli = timeoutSeconds * 1000L;
+        final long timeoutTime = System.currentTimeMillis() + timeoutMilli;
+        final InputStream[] streams = new InputStream[2];
+        final ChannelExec ssh = openChannel("exec", (ChannelExec channel) -> {
+            channel.setCommand(command);
+            try {
+                streams[0] = channel.getInputStream();
+                streams[1] = channel.getErrStream();
+            } catch (IOException e) {
+                throw new JSchException("Failed to get command output streams", e);
+            }
+        });
+
         try {
-            final ChannelExec ssh = (ChannelExec) session.openChannel("exec");
-            LOGGER.info("Executing command (timeout=" + timeoutSeconds + "seconds): " + command);
-            ssh.setCommand(command);
-
-            final StringBuilder stdoutLine = new StringBuilder();
-            ssh.setOutputStream(new OutputStream() {
-                @Override
-                public void write(int b) throws IOException {
-                    final char c = (char) b;
-                    if (c == '\n') {
-                        LOGGER.info(stdoutLine.toString());
-                        if (stdout != null) {
-                            stdout.append(stdoutLine).append("\n");
-                        }
-                        stdoutLine.delete(0, stdoutLine.length());
-                    } else {
-                        stdoutLine.append(c);
-                    }
+            final Future<?> out = OUTPUT_READERS.submit(new OutputLines(streams[0], false, stdout));
+            final Future<?> err = OUTPUT_READERS.submit(new OutputLines(streams[1], true, stderr));
+            awaitOutput(out, timeoutTime, timeoutMilli);
+            awaitOutput(err, timeoutTime, timeoutMilli);
+            // the exit status arrives just after the end of the output, the channel closes once it has
+            while (!ssh.isClosed()) {
+                if (System.currentTimeMillis() >= timeoutTime) {
+                    throw new OperatorException("Command execution timed out, " + timeoutMilli + "mSec has been exceeded");
                 }
-            });
-            final StringBuilder stderrLine = new StringBuilder();
-            ssh.setErrStream(new OutputStream() {
-                @Override
-                public void write(int b) throws IOException {
-                    final char c = (char) b;
-                    if (c == '\n') {
-                        LOGGER.error(stderrLine.toString());
-                        if (stderr != null) {
-                            stderr.append(stdoutLine);
-                        }
-                        stderrLine.delete(0, stderrLine.length());
-                    } else {
-                        stderrLine.append(c);
-                    }
+                try {
+                    //noinspection BusyWait
+                    Thread.sleep(EXIT_STATUS_POLL_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new OperatorException("Interrupted waiting for command exit status", e);
                 }
-            });
+            }
+            LOGGER.debug("Command exited: " + ssh.getExitStatus());
+            return ssh.getExitStatus();
+        } finally {
+            ssh.disconnect();
+        }
+    }
 
-            try {
-                final long timeoutMilli = timeoutSeconds * 1000L;
-                final long timeoutTime = System.currentTimeMillis() + timeoutMilli;
-                final long sleepTime = 500;
-                ssh.connect();
-                while (!ssh.isClosed()) {
-                    try {
-                        //noinspection BusyWait
-                        Thread.sleep(sleepTime);
-                    } catch (InterruptedException e) {/**/}
-                    if (System.currentTimeMillis() >= timeoutTime) {
-                        throw new OperatorException("Command execution timed out, " + timeoutMilli + "mSec has been exceeded");
-                    }
-                }
-                if (stdoutLine.length() > 0) {
-                    LOGGER.info(stdoutLine.toString());
-                    if (stdout != null) {
-                        stdout.append(stdoutLine);
-                    }
-                }
-                if (stderrLine.length() > 0) {
-                    LOGGER.error(stderrLine.toString());
-                    if (stderr != null) {
-                        stderr.append(stderrLine);
-                    }
-                }
-                LOGGER.debug("Command exited: " + ssh.getExitStatus());
-                return ssh.getExitStatus();
-            } finally {
-                ssh.disconnect();
-                session.disconnect();
+    /**
+     * Execute a command on the director node without waiting for it. Commands run on their own channels of the shared
+     * session, at most director.ssh.concurrency of them at once; the rest queue.
+     *
+     * @param command        Command to execute
+     * @param timeoutSeconds Timeout, from when the command starts
+     * @return The result once the command has exited, fails with an {@link OperatorException} for any errors
+     */
+    public Future<CommandResult> executeAsync(final String command, final int timeoutSeconds) {
+        return getCommandExecutor().submit(() -> {
+            final StringBuilder stdout = new StringBuilder();
+            final StringBuilder stderr = new StringBuilder();
+            final int exitCode = execute(command, timeoutSeconds, stdout, stderr);
+            return new CommandResult(command, exitCode, stdout.toString(), stderr.toString());
+        });
+    }
+
+    /**
+     * Wait for commands started by {@link #executeAsync}
+     *
+     * @param commands Commands to wait for
+     * @return Their results, in the same order
+     * @throws OperatorException Any command failed to execute, or interrupted
+     */
+    public static List<CommandResult> awaitAll(final List<Future<CommandResult>> commands) throws OperatorException {
+        final List<CommandResult> results = new ArrayList<>(commands.size());
+        try {
+            for (Future<CommandResult> command : commands) {
+                results.add(command.get());
             }
-        } catch (JSchException e) {
-            throw new OperatorException(e);
+        } catch (ExecutionException e) {
+            for (Future<CommandResult> command : commands) {
+                command.cancel(true);
+            }
+            if (e.getCause() instanceof OperatorException) {
+                throw (OperatorException) e.getCause();
+            }
+            throw new OperatorException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OperatorException("Interrupted waiting for remote commands", e);
+        }
+        return results;
+    }
+
+    private static synchronized ExecutorService getCommandExecutor() {
+        if (commandExecutor == null) {
+            commandExecutor = Executors.newFixedThreadPool(Flags.directorSshConcurrency(), runnable -> {
+                final Thread thread = new Thread(runnable, "remote-command");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return commandExecutor;
+    }
+
+    /**
+     * Wait for a command output stream to end
+     */
+    private static void awaitOutput(final Future<?> reader, final long timeoutTime, final long timeoutMilli) throws OperatorException {
+        try {
+            reader.get(Math.max(0, timeoutTime - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new OperatorException("Command execution timed out, " + timeoutMilli + "mSec has been exceeded");
+        } catch (ExecutionException e) {
+            throw new OperatorException("Failed to read command output", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OperatorException("Interrupted waiting for command output", e);
         }
     }
 
     /**
-     * Copy a local file to the director
+     * Copy a local file to the director. Nothing is copied if the remote file already has the same size and MD5; if
+     * it's shorter and matches the start of the local file, as left by an interrupted upload, only the rest is copied.
      *
      * @param local  Local file path
      * @param remote Remote file path
      * @throws OperatorException Any errors
      */
     public void put(final String local, final String remote) throws OperatorException {
-        connect();
         try {
             final ChannelSftp ftp = connectSftp();
-            LOGGER.info("Uploading " + local + " (" + FileOperator.getFileSize(Paths.get(local)) + ") to " + remote);
             final String dir = new File(remote).getParent();
 
-            if (!exists(ftp, dir)) {
-                final String seperator = "/";
-                final StringBuilder mkPath = new StringBuilder(seperator);
-                for (String dirName : dir.split(seperator)) {
-                    mkPath.append(dirName);
-                    if (!exists(ftp, mkPath.toString())) {
-                        ftp.mkdir(mkPath.toString());
-                    }
-                    mkPath.append(seperator);
+            directories().mkdirs(this, ftp, dir);
+
+            final long localSize = new File(local).length();
+            final long remoteSize = size(ftp, remote);
+            int mode = ChannelSftp.OVERWRITE;
+            if (remoteSize > 0 && remoteSize <= localSize) {
+                final Future<CommandResult> remoteMd5 = executeAsync("md5sum '" + remote + "'", Flags.directorMd5Timeout());
+                final String localMd5 = FileOperator.md5sum(Paths.get(local), remoteSize);
+                final boolean prefixMatches = localMd5.equals(md5(awaitAll(Collections.singletonList(remoteMd5)).get(0)));
+                if (prefixMatches && remoteSize == localSize) {
+                    LOGGER.info("Skipping upload of " + local + ", " + remote + " has the same size and MD5");
+                    return;
+                } else if (prefixMatches) {
+                    LOGGER.info("Resuming upload of " + local + " to " + remote + " at " + remoteSize + " of " + localSize + " bytes");
+                    mode = ChannelSftp.RESUME;
+                } else {
+                    LOGGER.info(remote + " differs from " + local + ", uploading all of it");
                 }
             }
-            ftp.put(local, remote);
+            LOGGER.info("Uploading " + local + " (" + FileOperator.getFileSize(Paths.get(local)) + ") to " + remote);
+            ftp.put(local, remote, new TransferMonitor(mode == ChannelSftp.RESUME ? remoteSize : 0), mode);
         } catch (SftpException e) {
             throw new OperatorException(e);
         }
     }
 
-    private boolean exists(final ChannelSftp sftp, final String path) throws SftpException {
+    /**
+     * @return Size of a remote file, -1 if it doesn't exist
+     */
+    private long size(final ChannelSftp sftp, final String path) throws SftpException {
         try {
-            sftp.stat(path);
-            return true;
+            return sftp.stat(path).getSize();
         } catch (final SftpException error) {
-            if (error.id == 2) {
-                return false;
-            } else {
-                throw error;
+            if (error.id == ChannelSftp.SSH_FX_NO_SUCH_FILE) {
+                return -1;
             }
+            throw error;
         }
     }
 
+    /**
+     * @return The MD5 printed by md5sum, empty if it failed
+     */
+    private static String md5(final CommandResult md5sum) {
+        if (md5sum.getExitCode() != 0) {
+            return "";
+        }
+        final String[] fields = md5sum.getStdout().trim().split("\\s+");
+        return fields[0];
+    }
+
     public void rm(final String path) throws OperatorException {
-        connect();
+        directories().forget(path);
         execute("rm -rf " + path, 10);
     }
 
+    /**
+     * Close this operator's channels, see {@link #disconnect()}
+     */
     @Override
     public void close() {
         disconnect();
     }
+
+    /**
+     * Outcome of a command run by {@link #executeAsync}
+     */
+    public static class CommandResult {
+        private final String command;
+        private final int exitCode;
+        private final String stdout;
+        private final String stderr;
+
+        CommandResult(final String command, final int exitCode, final String stdout, final String stderr) {
+            this.command = command;
+            this.exitCode = exitCode;
+            this.stdout = stdout;
+            this.stderr = stderr;
+        }
+
+        public String getCommand() {
+            return command;
+        }
+
+        public int getExitCode() {
+            return exitCode;
+        }
+
+        public String getStdout() {
+            return stdout;
+        }
+
+        public String getStderr() {
+            return stderr;
+        }
+    }
+
+    /**
+     * Logs the progress and throughput of an upload
+     */
+    private static final class TransferMonitor implements SftpProgressMonitor {
+        private static final long REPORT_INTERVAL_MILLIS = 10_000;
+
+        private final long resumeOffset;
+        private String destination;
+        private long total;
+        private long skipped;
+        private long transferred;
+        private long start;
+        private long lastReport;
+
+        /**
+         * @param resumeOffset Bytes already on the director when resuming, JSch counts them without sending them
+         */
+        private TransferMonitor(final long resumeOffset) {
+            this.resumeOffset = resumeOffset;
+        }
+
+        @Override
+        public void init(final int op, final String src, final String dest, final long max) {
+            destination = dest;
+            total = max - resumeOffset;
+            skipped = 0;
+            start = System.currentTimeMillis();
+            lastReport = start;
+        }
+
+        @Override
+        public boolean count(final long count) {
+            final long skip = Math.min(count, resumeOffset - skipped);
+            skipped += skip;
+            transferred += count - skip;
+            final long now = System.currentTimeMillis();
+            if (now - lastReport >= REPORT_INTERVAL_MILLIS) {
+                lastReport = now;
+                LOGGER.info("Uploaded " + transferred + " of " + total + " bytes to " + destination + ", " + rate(now) + " MB/s");
+            }
+            return true;
+        }
+
+        @Override
+        public void end() {
+            final long now = System.currentTimeMillis();
+            LOGGER.info("Uploaded " + transferred + " bytes to " + destination + (resumeOffset > 0 ? " after the first " + resumeOffset : "") +
+                    " in " + (now - start) + "mSec, " + rate(now) + " MB/s");
+        }
+
+        private String rate(final long now) {
+            return String.format("%.1f", transferred / 1_000_000.0 / Math.max(1, now - start) * 1000);
+        }
+    }
+
+    /**
+     * Reads a command output stream until it ends, logging each line and keeping the output in a buffer
+     */
+    private static final class OutputLines implements Callable<Void> {
+        private final InputStream in;
+        private final boolean error;
+        private final StringBuilder buffer;
+        private final StringBuilder line = new StringBuilder();
+
+        /**
+         * @param in     Output stream of the channel
+         * @param error  {@code true} for the error output, logged as errors
+         * @param buffer Where to keep the output, {@code null} to only log it
+         */
+        private OutputLines(final InputStream in, final boolean error, final StringBuilder buffer) {
+            this.in = in;
+            this.error = error;
+            this.buffer = buffer;
+        }
+
+        @Override
+        public Void call() throws IOException {
+            try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+                final char[] chars = new char[OUTPUT_BUFFER_CHARS];
+                int read;
+                while ((read = reader.read(chars)) != -1) {
+                    for (int i = 0; i < read; i++) {
+                        if (chars[i] == '\n') {
+                            endLine(true);
+                        } else {
+                            line.append(chars[i]);
+                        }
+                    }
+                }
+            }
+            if (line.length() > 0) {
+                endLine(false);
+            }
+            return null;
+        }
+
+        private void endLine(final boolean newLine) {
+            if (error) {
+                LOGGER.error(line.toString());
+            } else {
+                LOGGER.info(line.toString());
+            }
+            if (buffer != null) {
+                buffer.append(line);
+                if (newLine) {
+                    buffer.append('\n');
+                }
+            }
+            line.setLength(0);
+        }
+    }
+
+    /**
+     * Sets a channel up before it is connected
+     */
+    private interface ChannelSetup<T extends Channel> {
+        void setUp(T channel) throws JSchException;
+    }
 }
@@ -0,0 +1,81 @@
+package com.ericsson.oss.mediation.sdk.sdktestware;
+
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.SftpATTRS;
+import com.jcraft.jsch.SftpException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Directories known to exist on the director, for one SSH session.
+ * <p>
+ * A directory is checked with a single stat of the full path, and a missing one is created with one 'mkdir -p', so
+ * making sure a directory exists costs at most two round trips the first time and none after that. Anything removed
+ * through {@link RemoteAccessOperator#rm} is forgotten; directories removed some other way are not noticed.
+ */
+class RemoteFileSystem {
+    private final static Logger LOGGER = LoggerFactory.getLogger(RemoteFileSystem.class);
+
+    private static final String SEPARATOR = "/";
+    private static final int MKDIR_TIMEOUT_SECONDS = 30;
+
+    private final Set<String> directories = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Make sure a directory exists, creating it and any missing parents
+     *
+     * @param remote Runs mkdir if the directory is missing
+     * @param sftp   Channel to stat the directory on
+     * @param dir    Absolute directory path
+     * @throws OperatorException The path exists but isn't a directory, or it could not be created
+     */
+    void mkdirs(final RemoteAccessOperator remote, final ChannelSftp sftp, final String dir) throws OperatorException {
+        final String path = normalize(dir);
+        if (path.isEmpty() || directories.contains(path)) {
+            return;
+        }
+        try {
+            final SftpATTRS attrs = sftp.stat(path);
+            if (!attrs.isDir()) {
+                throw new OperatorException(path + " exists on the director and is not a directory");
+            }
+        } catch (SftpException e) {
+            if (e.id != ChannelSftp.SSH_FX_NO_SUCH_FILE) {
+                throw new OperatorException(e);
+            }
+            LOGGER.info("Creating directory " + path);
+            final StringBuilder stderr = new StringBuilder();
+            final int exitCode = remote.execute("mkdir -p '" + path + "'", MKDIR_TIMEOUT_SECONDS, null, stderr);
+            if (exitCode != 0) {
+                throw new OperatorException("Failed to create " + path + " [" + exitCode + "] " + stderr);
+            }
+        }
+        for (String known = path; !known.isEmpty(); known = known.substring(0, Math.max(0, known.lastIndexOf(SEPARATOR)))) {
+            directories.add(known);
+        }
+    }
+
+    /**
+     * Forget a path and everything below it, e.g. once it has been removed
+     *
+     * @param path Absolute path, a relative path or a pattern forgets every directory
+     */
+    void forget(final String path) {
+        if (!path.startsWith(SEPARATOR) || path.matches(".*[*?\\[\\s].*")) {
+            directories.clear();
+            return;
+        }
+        final String removed = normalize(path);
+        directories.removeIf(known -> known.equals(removed) || known.startsWith(removed + SEPARATOR));
+    }
+
+    /**
+     * Drop the trailing and repeated separators, "/" becomes empty since the root always exists
+     */
+    private static String normalize(final String path) {
+        return path.replaceAll("/+", SEPARATOR).replaceAll("/$", "");
+    }
+}
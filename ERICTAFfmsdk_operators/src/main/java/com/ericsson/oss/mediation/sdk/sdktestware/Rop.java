@@ -0,0 +1,32 @@
+package com.ericsson.oss.mediation.sdk.sdktestware;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PM subscription Record Output Periods
+ */
+public enum Rop {
+    ONE_MIN(1),
+    FIFTEEN_MIN(15);
+
+    private final long millis;
+
+    Rop(final int minutes) {
+        this.millis = TimeUnit.MINUTES.toMillis(minutes);
+    }
+
+    public long getMillis() {
+        return millis;
+    }
+
+    /**
+     * Get the start of the first complete ROP after a point in time, ROPs are aligned to the epoch
+     *
+     * @param timeMillis Time e.g. when a subscription was activated
+     * @return ROP start time
+     */
+    public long firstRopStartAfter(final long timeMillis) {
+        final long remainder = timeMillis % millis;
+        return remainder == 0 ? timeMillis : timeMillis - remainder + millis;
+    }
+}
@@ -0,0 +1,191 @@
+package com.ericsson.oss.mediation.sdk.sdktestware;
+
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+import org.codehaus.jackson.map.DeserializationConfig;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.map.SerializationConfig;
+import org.codehaus.jackson.map.annotate.JsonSerialize.Inclusion;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+
+/**
+ * Streaming reader for script-engine command output.
+ * <p>
+ * The output looks like
+ * <pre>
+ * { "nonCachableDtos": [], "responseDto": { "dtoType": "ResponseDto", "elements": [
+ *     { "dtoType": "line", "value": "FDN : SubNetwork=LTE26dg2ERBS00001" },
+ *     { "dtoType": "line", "value": "1 instance(s) updated" } ] } }
+ * </pre>
+ * The elements are read one at a time with the Jackson streaming parser and passed to a {@link LineHandler}, so
+ * large outputs (e.g. cmedit get or alarm get across many nodes) are never built into a tree in memory.
+ */
+public class ScriptEngineResponseReader {
+    private static final ObjectMapper MAPPER = createMapper();
+
+    private static ObjectMapper createMapper() {
+        final ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.configure(SerializationConfig.Feature.FAIL_ON_EMPTY_BEANS, false);
+        objectMapper.configure(DeserializationConfig.Feature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        objectMapper.setSerializationInclusion(Inclusion.NON_NULL);
+        return objectMapper;
+    }
+
+    /**
+     * Get the ObjectMapper shared by the ENM operators, it must not be reconfigured
+     *
+     * @return mapper
+     */
+    public static ObjectMapper getMapper() {
+        return MAPPER;
+    }
+
+    /**
+     * Read each element of the responseDto
+     *
+     * @param response Command output
+     * @param handler  Called for each element, return {@code false} to stop reading
+     * @throws OperatorException The output could not be parsed
+     */
+    public static void readLines(final String response, final LineHandler handler) throws OperatorException {
+        readLines(new StringReader(response), handler);
+    }
+
+    /**
+     * Read each element of the responseDto
+     *
+     * @param response Command output
+     * @param handler  Called for each element, return {@code false} to stop reading
+     * @throws OperatorException The output could not be parsed
+     */
+    public static void readLines(final Reader response, final LineHandler handler) throws OperatorException {
+        try (final JsonParser parser = MAPPER.getJsonFactory().createJsonParser(response)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new OperatorException("Response is not a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String field = parser.getCurrentName();
+                final JsonToken value = parser.nextToken();
+                if ("responseDto".equals(field) && value == JsonToken.START_OBJECT) {
+                    if (!readResponseDto(parser, handler)) {
+                        return;
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        } catch (final IOException e) {
+            throw new OperatorException("Error while extracting Response", e);
+        }
+    }
+
+    private static boolean readResponseDto(final JsonParser parser, final LineHandler handler) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String field = parser.getCurrentName();
+            final JsonToken value = parser.nextToken();
+            if ("elements".equals(field) && value == JsonToken.START_ARRAY) {
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    if (parser.getCurrentToken() == JsonToken.START_OBJECT) {
+                        if (!readElement(parser, handler)) {
+                            return false;
+                        }
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return true;
+    }
+
+    private static boolean readElement(final JsonParser parser, final LineHandler handler) throws IOException {
+        String dtoType = null;
+        String value = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String field = parser.getCurrentName();
+            final JsonToken token = parser.nextToken();
+            if (token == JsonToken.VALUE_STRING && "dtoType".equals(field)) {
+                dtoType = parser.getText();
+            } else if (token == JsonToken.VALUE_STRING && "value".equals(field)) {
+                value = parser.getText();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return handler.line(dtoType, value);
+    }
+
+    /**
+     * Get the last non-null element value, commands report their result (or error) on the last line
+     *
+     * @param response Command output
+     * @return Last value or an empty string
+     * @throws OperatorException The output could not be parsed
+     */
+    public static String lastValue(final String response) throws OperatorException {
+        final String[] last = {""};
+        readLines(response, (dtoType, value) -> {
+            if (value != null) {
+                last[0] = value;
+            }
+            return true;
+        });
+        return last[0];
+    }
+
+    /**
+     * Get the last 'line' element whose value starts with a prefix
+     *
+     * @param response Command output
+     * @param prefix   Value prefix to match
+     * @return Last matching value or an empty string
+     * @throws OperatorException The output could not be parsed
+     */
+    public static String lastLineStartingWith(final String response, final String prefix) throws OperatorException {
+        final String[] match = {""};
+        readLines(response, (dtoType, value) -> {
+            if ("line".equalsIgnoreCase(dtoType) && value != null && value.startsWith(prefix)) {
+                match[0] = value;
+            }
+            return true;
+        });
+        return match[0];
+    }
+
+    /**
+     * Check if any element value contains some text, stops reading at the first match
+     *
+     * @param response Command output
+     * @param text     Text to look for
+     * @return {@code true} if found
+     * @throws OperatorException The output could not be parsed
+     */
+    public static boolean anyValueContains(final String response, final String text) throws OperatorException {
+        final boolean[] found = {false};
+        readLines(response, (dtoType, value) -> {
+            if (value != null && value.contains(text)) {
+                found[0] = true;
+                return false;
+            }
+            return true;
+        });
+        return found[0];
+    }
+
+    /**
+     * Called for each element in the response
+     */
+    public interface LineHandler {
+        /**
+         * @param dtoType The element dtoType
+         * @param value   The element value, {@code null} if it doesn't have a text value
+         * @return {@code true} to continue reading, {@code false} to stop
+         */
+        boolean line(String dtoType, String value);
+    }
+}
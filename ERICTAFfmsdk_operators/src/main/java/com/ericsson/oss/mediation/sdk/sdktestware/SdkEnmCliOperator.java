@@ -1,215 +1,232 @@
 package com.ericsson.oss.mediation.sdk.sdktestware;
 
 import java.io.IOException;
-import java.io.InputStream;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Iterator;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
-import org.codehaus.jackson.JsonNode;
-import org.codehaus.jackson.map.DeserializationConfig;
 import org.codehaus.jackson.map.ObjectMapper;
-import org.codehaus.jackson.map.SerializationConfig;
-import org.codehaus.jackson.map.annotate.JsonSerialize.Inclusion;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.testng.Assert;
 
 import com.ericsson.cifwk.taf.data.Host;
-import com.ericsson.cifwk.taf.handlers.netsim.CommandOutput;
-import com.ericsson.cifwk.taf.handlers.netsim.NetSimCommand;
-import com.ericsson.cifwk.taf.handlers.netsim.NetSimCommandHandler;
-import com.ericsson.cifwk.taf.handlers.netsim.NetSimResult;
-import com.ericsson.cifwk.taf.handlers.netsim.NetSimSession;
-import com.ericsson.cifwk.taf.handlers.netsim.commands.NetSimCommands;
 import com.ericsson.cifwk.taf.tools.http.HttpResponse;
-import com.ericsson.cifwk.taf.tools.http.HttpTool;
-import com.ericsson.cifwk.taf.tools.http.HttpToolBuilder;
 import com.ericsson.cifwk.taf.tools.http.RequestBuilder;
 import com.ericsson.cifwk.taf.tools.http.constants.ContentType;
 import com.ericsson.cifwk.taf.tools.http.constants.HttpStatus;
-import com.ericsson.oss.mediation.sdk.pmsdk.subscription.Counter;
-import com.ericsson.oss.mediation.sdk.pmsdk.subscription.Node;
-import com.ericsson.oss.mediation.sdk.pmsdk.subscription.PmsdkStatisticalSubscription;
 import com.ericsson.oss.testware.hostconfigurator.HostConfigurator;
 
 public class SdkEnmCliOperator {
     private final static Logger LOGGER = LoggerFactory.getLogger(SdkEnmCliOperator.class);
 
 
-    private static final Host HAPROXY = HostConfigurator.getApache();
-    private final List<Host> netSimsList = HostConfigurator.getAllNetsimHosts();
-    
-
 
-    private static final String ID_TOKEN_1 = "IDToken1";
-    private static final String ID_TOKEN_2 = "IDToken2";
-    private static final String USER_LOGIN_URI = "/login";
-    private static final String LOGOUT_URI = "/logout";
     private final static String SCRIPT_ENGINE_POST_URI = "/script-engine/services/command";
     private final static String SCRIPT_ENGINE_HEAD_URI = SCRIPT_ENGINE_POST_URI + "/status";
     private static final String REQUEST_ID_KEY = "request_id";
     private static final String RESPONSE_SIZE = "ResponseSize";
     private static final String COMMAND_DIR = "command";
-    private static final String TOR_USER_ID = "TorUserID";
-    private static final String DEF_DESTINATION_NAME="FM_SDK_TAF";
-    private static final String PROTOCOL="netconf_https_http_prot";
-    private static final String NOTIFICATION_TYPE="2";// Defaults to 2 for Trap type
-    private static final String TRAP_PORT="162";// Defaults to 162 for Trap Port
+    private static final String ALARM_SPECIFIC_PROBLEM="Sent Alarm from TAF";
     private static final String GET_PO_ID="persistentObject/fdn/NetworkElement=";
-    private static final String STATISTICAL="STATISTICAL";
     private static final String SUBSCRIPTION_NAME="PM_TAF";
-    private static final String ADMINISTRATIONSTATE="INACTIVE";
     private final static String CREATE_SUBSCRIPTION = "/pm-service/rest/subscription";
-    private final static String GET_SUBSCRIPTION = "/pm-service/rest/subscription/findByType?Type=STATISTICAL";
     private final static String ACT_SUBSCRIPTION = "pm-service/rest/subscription/STATISTICAL/activate?Name=PM_TAF";
-    private final static String ADMINISTRATOR = "administrator";
-    private final static String NODE_TYPE = "NODE_TYPE";
-    private final static String PM_FUNCTION = "ON";
-    private final static String CLASS = "statistical";
-    private final static String USERTYPE = "USER_DEF";
-    private final static String TASKSTATUS = "OK";
     private final static String ROP = "ONE_MIN";//FIFTEEN_MIN
-    private final static String CHECK_FILE = "file/v1/files?filter=dataType==PM_STATISTICAL";
     private final static String DEACTIVATE_SUBSCRIPTION = "pm-service/rest/subscription/{ID}/deactivate";
     private final static String DELETE_SUBSCRIPTION="pm-service/rest/subscription/{ID}";
+    private static final int RECENT_COMMAND_TIMINGS = 1000;
 
 
 
 
-    private HttpTool httpTool;
+    private final EnmClient enm;
+    private final boolean sharedClient;
+    private final NetSimAllocator netSimAllocator;
+    private final NePoCache poCache = new NePoCache(this::getNeDetails);
+    private final Map<String, CommandTiming> pendingCommands = new ConcurrentHashMap<>();
+    private final CommandTimingStats commandTimings = new CommandTimingStats(RECENT_COMMAND_TIMINGS);
+    private final EnmClock enmClock = new EnmClock();
+    private ExecutorService commandExecutor;
+    private AlarmWaiter.AlarmArrival lastAlarmArrival;
+    private List<PmFileWatcher.PmFileArrival> lastPmFileArrivals;
+    private PmSubscriptionHandle subscription;
 
+    /**
+     * Operator using the ENM client shared by all operators
+     */
+    public SdkEnmCliOperator() {
+        this(EnmClientPool.shared(), true, null);
+    }
 
-    public void verifyModels(final SdkType sdkType) throws OperatorException {
-        try {
-            final Map<String, Map<String, Object>> data = SdkType.loadArchetypes(sdkType);
-            final String sdkNeType = data.get("node-model-common-archetype").get("nodeType").toString();
+    /**
+     * Operator using its own ENM client, closed by {@link #logout()}
+     *
+     * @param enm ENM client
+     */
+    public SdkEnmCliOperator(final EnmClient enm) {
+        this(enm, false, null);
+    }
 
-            login();
-            LOGGER.info("Asserting " + sdkType + " model '" + sdkNeType + "' exists.");
-            final boolean doesModelExist = modelExists(sdkNeType);
-            AssertLog.assertTrue(doesModelExist, "Model '" + sdkNeType + "' not found!");
-            LOGGER.info("Model " + sdkNeType + " found.");
-        } finally {
-            logout();
-        }
+    /**
+     * Operator using its own ENM client, closed by {@link #logout()}, and its own NetSim hosts for the NE allocation,
+     * configuration and alarm load methods
+     *
+     * @param enm             ENM client
+     * @param netSimAllocator Allocator over the NetSim hosts to use
+     */
+    public SdkEnmCliOperator(final EnmClient enm, final NetSimAllocator netSimAllocator) {
+        this(enm, false, netSimAllocator);
     }
 
-    public void login() throws OperatorException {
-        final String userName = "Administrator";
-        final String passWord = "TestPassw0rd";
+    private SdkEnmCliOperator(final EnmClient enm, final boolean sharedClient, final NetSimAllocator netSimAllocator) {
+        this.enm = enm;
+        this.sharedClient = sharedClient;
+        this.netSimAllocator = netSimAllocator;
+    }
 
-        final HttpResponse response = getHttpTool().request().
-                body(ID_TOKEN_1, userName).
-                body(ID_TOKEN_2, passWord).
-                post(USER_LOGIN_URI);
+    public void verifyModels(final SdkType sdkType) throws OperatorException {
+        final Map<String, Map<String, Object>> data = SdkType.loadArchetypes(sdkType);
+        final String sdkNeType = data.get("node-model-common-archetype").get("nodeType").toString();
 
-        LOGGER.info("ENM login {} -> {}", HAPROXY.getIp(), response.getBody());
-        if (response.getResponseCode().getCode() == HttpStatus.OK.getCode()) {
-            getHttpTool().addCookie(TOR_USER_ID, userName);
-        } else {
-            throw new OperatorException("Failed to log in to " + HAPROXY.getIp() + " [" +
-                    response.getResponseCode().getCode() + "] " + response.getBody());
-        }
+        login();
+        LOGGER.info("Asserting " + sdkType + " model '" + sdkNeType + "' exists.");
+        final boolean doesModelExist = modelExists(sdkNeType);
+        AssertLog.assertTrue(doesModelExist, "Model '" + sdkNeType + "' not found!");
+        LOGGER.info("Model " + sdkNeType + " found.");
     }
 
-    public void logout() {
-        final HttpResponse response = getHttpTool().request().get(LOGOUT_URI);
-        if (response.getResponseCode().getCode() == HttpStatus.OK.getCode()) {
-            LOGGER.info("ENM logout {} -> {}", HAPROXY.getIp(), HttpStatus.OK);
-        } else {
-            LOGGER.error(response.getStatusLine());
-        }
-        getHttpTool().clearCookies();
+    /**
+     * Make sure the ENM client is logged in, it stays logged in until {@link #logout()} is called.
+     *
+     * @throws OperatorException Login failed
+     */
+    public void login() throws OperatorException {
+        enm.connect();
     }
 
-    private HttpTool getHttpTool() {
-        if (httpTool == null) {
-            httpTool = HttpToolBuilder.newBuilder(HAPROXY.getIp()).
-                    followRedirect(true).
-                    useHttpsIfProvided(true).
-                    withHttpsPort(HAPROXY.getHttpsPort()).
-                    withHttpPort(HAPROXY.getHttpsPort()).
-                    trustSslCertificates(true).
-                    build();
+    /**
+     * Log out of ENM and stop the command threads if this operator has its own client. The shared client stays logged
+     * in for the other operators using it, it's closed by {@link EnmClientPool#closeShared()}.
+     */
+    public void logout() {
+        if (sharedClient) {
+            LOGGER.debug("Not logging out the shared ENM client");
+            return;
+        }
+        synchronized (this) {
+            if (commandExecutor != null) {
+                commandExecutor.shutdown();
+                commandExecutor = null;
+            }
         }
-        return httpTool;
+        enm.close();
     }
 
     private boolean modelExists(final String modelName) throws OperatorException {
-        final String requestId = sendCommand("cmedit describe --netype " + modelName);
-        final String outputId = waitCommandCompletion(requestId);
-        final String neTypeData = getCommandJsonOutput(requestId, outputId);
-
-        final ObjectMapper mapper = new ObjectMapper();
-        try {
-            final JsonNode result = mapper.readTree(neTypeData);
-
-            final Iterator<JsonNode> elements = result.get("responseDto").get("elements").getElements();
-            while (elements.hasNext()) {
-                final JsonNode element = elements.next();
-                final String value = element.get("value").getTextValue();
-                if(value==null)
-                {
-                    continue;
-                }
-                if (value.contains("Error 1023")) {
-                    return false;
-                }
-            }
-        } catch (final IOException e) {
-            throw new OperatorException("Error while extracting Response", e);
-        }
-        return true;
+        final String neTypeData = executeCommandJson("cmedit describe --netype " + modelName);
+        return !ScriptEngineResponseReader.anyValueContains(neTypeData, "Error 1023");
     }
 
-    private String getCommandJsonOutput(final String requestId, final String outputId) {
-        final RequestBuilder getRequestBuilder = getHttpTool().request().
-                header("Accept", "application/json").
-                header(REQUEST_ID_KEY, requestId);
-        final HttpResponse getResponse = getRequestBuilder.get(SCRIPT_ENGINE_POST_URI + "/output/0/" + outputId);
+    private String getCommandJsonOutput(final EnmSession session, final String requestId, final String outputId)
+            throws OperatorException {
+        final long sentAt = System.currentTimeMillis();
+        final HttpResponse getResponse = session.execute(httpTool -> {
+            final RequestBuilder getRequestBuilder = httpTool.request().
+                    header("Accept", "application/json").
+                    header(REQUEST_ID_KEY, requestId);
+            return getRequestBuilder.get(SCRIPT_ENGINE_POST_URI + "/output/0/" + outputId);
+        });
+        enmClock.sample(getResponse.getHeaders().get("Date"), sentAt, System.currentTimeMillis());
         return getResponse.getBody();
     }
 
-    private String sendCommand(final String command) throws OperatorException {
-        final RequestBuilder requestBuilder = getHttpTool().request();
-
-        requestBuilder.contentType(ContentType.MULTIPART_FORM_DATA).body(COMMAND_DIR, command);
-
-        LOGGER.info("Sending CM Command {} to {}/{}", command, httpTool.getBaseUrl(), SCRIPT_ENGINE_POST_URI);
-        final HttpResponse response = requestBuilder.post(SCRIPT_ENGINE_POST_URI);
+    private String sendCommand(final EnmSession session, final String command) throws OperatorException {
+        LOGGER.info("Sending CM Command {} as {} to {}/{}", command, session.getUserName(), session.getAddress(),
+                SCRIPT_ENGINE_POST_URI);
+        final HttpResponse response = session.execute(httpTool -> {
+            final RequestBuilder requestBuilder = httpTool.request();
+            requestBuilder.contentType(ContentType.MULTIPART_FORM_DATA).body(COMMAND_DIR, command);
+            return requestBuilder.post(SCRIPT_ENGINE_POST_URI);
+        });
         final HttpStatus responseCode = response.getResponseCode();
         if (responseCode != HttpStatus.OK && responseCode != HttpStatus.CREATED) {
             throw new OperatorException("Invalid HTTP status: " + response.getStatusLine());
         }
 
-        return response.getHeaders().get(REQUEST_ID_KEY);
+        final String requestId = response.getHeaders().get(REQUEST_ID_KEY);
+        pendingCommands.put(requestId, new CommandTiming(command, requestId));
+        return requestId;
+    }
+
+    /**
+     * Get how long the most recent script-engine commands sent by this operator took to complete
+     *
+     * @return Timings of up to the last 1000 commands, in the order they completed, a snapshot that can't be modified
+     */
+    public List<CommandTiming> getCommandTimings() {
+        return commandTimings.getRecent();
+    }
+
+    /**
+     * Get the totals over every script-engine command sent by this operator
+     *
+     * @return command count, polls and time queued and running
+     */
+    public CommandTimingStats getCommandTimingStats() {
+        return commandTimings;
     }
 
-    private String waitCommandCompletion(final String requestId) throws OperatorException {
-        final HttpResponse pollResponse = poll(requestId);
+    private String waitCommandCompletion(final EnmSession session, final String requestId) throws OperatorException {
+        final HttpResponse pollResponse = poll(session, requestId);
         return pollResponse.getHeaders().get(RESPONSE_SIZE);
     }
 
-    private HttpResponse poll(final String requestId) throws OperatorException {
-        int nullResponseCounter = 200;
-        HttpResponse response;
-        do {
-            response = getHttpTool().request().header(REQUEST_ID_KEY, requestId).head(SCRIPT_ENGINE_HEAD_URI);
-            if (response.getResponseCode() != HttpStatus.OK) {
-                throw new OperatorException("Polling failed: Response code " + response.getResponseCode());
-            }
-            nullResponseCounter--;
-        } while (!responseFinished(response) && nullResponseCounter > 0);
-        if (nullResponseCounter == 0) {
-            throw new OperatorException("No poll completion response for " + requestId);
+    /**
+     * Poll the command status until it's COMPLETE. The first poll is sent straight away, after that the polls are
+     * backed off up to scriptEngine.poll.max until the scriptEngine.command.timeout deadline passes.
+     */
+    private HttpResponse poll(final EnmSession session, final String requestId) throws OperatorException {
+        CommandTiming timing = pendingCommands.remove(requestId);
+        if (timing == null) {
+            timing = new CommandTiming(null, requestId);
         }
-        return response;
+        final long submitTime = timing.getSubmitTime();
+        final long[] lastQueued = {submitTime};
+
+        final Poller.PollResult<HttpResponse> result = Poller.poll("completion of command " + requestId,
+                TimeUnit.SECONDS.toMillis(Flags.scriptEngineCommandTimeout()), getCommandBackoff(), () -> {
+                    final HttpResponse response = session.execute(httpTool -> httpTool.request().header(REQUEST_ID_KEY, requestId).head(SCRIPT_ENGINE_HEAD_URI));
+                    if (response.getResponseCode() != HttpStatus.OK) {
+                        throw new OperatorException("Polling failed: Response code " + response.getResponseCode());
+                    }
+                    final String commandStatus = getCommandStatus(response);
+                    if ("COMPLETE".equals(commandStatus)) {
+                        return response;
+                    }
+                    if (isQueued(commandStatus)) {
+                        lastQueued[0] = System.currentTimeMillis();
+                    }
+                    return null;
+                });
+        timing.completed(result.getPolls(), lastQueued[0] - submitTime, System.currentTimeMillis() - submitTime);
+        commandTimings.add(timing);
+        LOGGER.info("Command completed {}", timing);
+        return result.getValue();
+    }
+
+    private Backoff getCommandBackoff() {
+        return new Backoff(Flags.scriptEngineInitialPoll(), Flags.scriptEngineMaxPoll(), 2.0, 0.25);
     }
 
-    private boolean responseFinished(final HttpResponse response) {
+    private String getCommandStatus(final HttpResponse response) {
         final Map<String, String> headers = response.getHeaders();
         String commandStatus = null;
         for (final String header : headers.keySet()) {
@@ -218,7 +235,18 @@ public class SdkEnmCliOperator {
                 break;
             }
         }
-        return "COMPLETE".equals(commandStatus);
+        return commandStatus;
+    }
+
+    /**
+     * A command with no status yet, or a status like QUEUED/PENDING, hasn't been picked up for execution
+     */
+    private boolean isQueued(final String commandStatus) {
+        if (commandStatus == null || commandStatus.isEmpty()) {
+            return true;
+        }
+        final String status = commandStatus.toUpperCase();
+        return status.contains("QUEUE") || status.contains("PENDING") || status.contains("SUBMITTED");
     }
     
     public void createNE(String neName, final SdkType sdkType, String ip, String simulation) throws OperatorException
@@ -230,158 +258,357 @@ public class SdkEnmCliOperator {
         {
             login();
             clearNe(neName);
-            createsubnetwork(neName);
-            createnetworkElement(neName, sdkNeType);
-            setupConnectivityInfo(neName, neVersion, ip);
-            setupCredentials(neName);
-            setupHeartBeat(neName);
-            setupfmsupervision(neName);
-            sendAlarm(neName, simulation);
-            /* wait for the alarm to send */
-            try
-            {
-                Thread.currentThread().sleep(60000);
-            }
-            catch (InterruptedException e)
-            {
-                throw new OperatorException("Error in createNE", e);
-            }
-            verifyFAlarmSent(neName);
+            fmProvisioning(neName, sdkNeType, neVersion, ip).execute();
+            final long alarmSentAt = sendAlarm(neName, simulation);
+            verifyFAlarmSent(neName, alarmSentAt);
         }
         finally
         {
             clearNe(neName);
-            logout();
-
         }
     }
 
-    private void clearNe(String neName) throws OperatorException
+    /**
+     * Provision many NetworkElements, running up to {@code concurrency} NE setups at the same time. Each NE gets the
+     * same commands {@link #createNE} (FM) or {@link #createNetworkelementForPM} (PM) use to set up a node, any NE
+     * with the same name is removed first.
+     *
+     * @param sdkType     SDK the nodes are for, selects the command set and the default neType/version
+     * @param nes         NetworkElements to provision
+     * @param concurrency Maximum number of NEs to set up in parallel, no more than the ENM client's concurrency
+     * @return Result of each NE, in the same order as {@code nes}
+     * @throws OperatorException Errors loading the SDK data or logging in, NE failures are in the results
+     */
+    public List<NeProvisioningResult> provisionNEs(final SdkType sdkType, final List<NeSpec> nes, final int concurrency) throws OperatorException
     {
-
-        deactivate(neName, "CmNodeHeartbeatSupervision");
-        deactivate(neName, "InventorySupervision");
-        deactivate(neName, "FmAlarmSupervision");
-        deactivate(neName, "CmFunction");
-        deleteNetAndSubNetwork(neName, "NetworkElement");
-        deleteNetAndSubNetwork(neName, "SubNetwork");
+        final String[] typeAndVersion = defaultNeTypeAndVersion(sdkType);
+        final String defaultNeType = typeAndVersion[0];
+        final String neVersion = typeAndVersion[1];
+        login();
+        return forEachNe(nes, concurrency, "provision", ne -> {
+            final String neType = ne.getNeType() == null ? defaultNeType : ne.getNeType();
+            if (sdkType == SdkType.FM)
+            {
+                clearNePipeline(ne.getNeName()).
+                        then(fmProvisioning(ne.getNeName(), neType, neVersion, ne.getIp())).
+                        execute();
+            }
+            else
+            {
+                pipeline().
+                        stage(deleteNetAndSubNetworkStep(ne.getNeName(), "NetworkElement")).
+                        then(pmProvisioning(ne.getNeName(), neType, neVersion, ne.getIp())).
+                        execute();
+            }
+        });
     }
 
-    private void deactivate(String neName, String superVision) throws OperatorException
+    /**
+     * Provision many NetworkElements with one bulk CM import job instead of 'cmedit create' commands per node.
+     * The SubNetwork (FM only), NetworkElement and connectivity information of every node go in one import file;
+     * the commands the import can't do (FM credentials and supervision, PM function) are then run per node, up to
+     * {@code concurrency} at the same time.
+     *
+     * @param sdkType     SDK the nodes are for, selects the MOs and the default neType/version
+     * @param nes         NetworkElements to provision, they must not exist yet
+     * @param concurrency Maximum number of NEs to finish setting up in parallel, no more than the ENM client's
+     *                    concurrency
+     * @return Result of each NE, in the same order as {@code nes}
+     * @throws OperatorException Errors loading the SDK data, logging in or in the import job, NE failures after the
+     *                           import are in the results
+     */
+    public List<NeProvisioningResult> provisionNEsByImport(final SdkType sdkType, final List<NeSpec> nes, final int concurrency)
+            throws OperatorException
     {
-        final String requestId;
-        if (superVision.equalsIgnoreCase("CmFunction"))
+        final String[] typeAndVersion = defaultNeTypeAndVersion(sdkType);
+        final BulkCmImportFile file = new BulkCmImportFile();
+        for (NeSpec ne : nes)
         {
-            requestId = sendCommand("cmedit action NetworkElement=" + neName + ",CmFunction=1 deleteNrmDataFromEnm");
-
+            final String neType = ne.getNeType() == null ? typeAndVersion[0] : ne.getNeType();
+            if (sdkType == SdkType.FM)
+            {
+                file.addNode(ne.getNeName(), neType, typeAndVersion[1], ne.getIp(), true, 161);
+            }
+            else
+            {
+                file.addNode(ne.getNeName(), neType, typeAndVersion[1], ne.getIp(), false, null);
+            }
         }
-        else
+        login();
+        final BulkCmImporter importer = new BulkCmImporter(enm, TimeUnit.SECONDS.toMillis(Flags.cmImportTimeout()),
+                new Backoff(1000, 15000, 1.5, 0.2));
+        try
         {
-            requestId = sendCommand("cmedit set NetworkElement=" + neName + "," + superVision + "=1 active=false");
+            importer.importFile("fm_sdk_taf_" + sdkType.name().toLowerCase() + "_" + System.currentTimeMillis(), file);
         }
-        final String outputId = waitCommandCompletion(requestId);
-        final String neTypeData = getCommandJsonOutput(requestId, outputId);
-        String response = parseNeresult(neTypeData);
-        if (response.contains("Error"))
+        finally
         {
-            LOGGER.error("Error in deactivating  :" + response);
-            throw new OperatorException("Error in deactivating  :" + superVision + ":" + requestId + " Error:" + response);
+            // imported NEs get new poIds, also when the job fails part way
+            for (NeSpec ne : nes)
+            {
+                poCache.invalidate(ne.getNeName());
+            }
         }
+        return forEachNe(nes, concurrency, "finish provisioning", ne -> {
+            if (sdkType == SdkType.FM)
+            {
+                pipeline().
+                        stage(setupCredentials(ne.getNeName())).
+                        stage(setupHeartBeat(ne.getNeName()), setupfmsupervision(ne.getNeName())).
+                        execute();
+            }
+            else
+            {
+                pipeline().stage(enablePmfunction(ne.getNeName())).execute();
+            }
+        });
     }
 
-    private void deleteNetAndSubNetwork(String neName, String networkOrSubnetwork) throws OperatorException
+    /**
+     * Get the neType and the connectivity information version used for an SDK's nodes
+     */
+    private static String[] defaultNeTypeAndVersion(final SdkType sdkType) throws OperatorException
     {
-        final String requestId = sendCommand("cmedit delete " + networkOrSubnetwork + "=" + neName + " -ALL --force");
-        final String outputId = waitCommandCompletion(requestId);
-        final String neTypeData = getCommandJsonOutput(requestId, outputId);
-        String response = parseNeresult(neTypeData);
-        if (response.contains("Error"))
+        final Map<String, Map<String, Object>> data = SdkType.loadArchetypes(sdkType);
+        if (sdkType == SdkType.FM)
         {
-            LOGGER.error("Error in deactivating network or subnetwork :" + response);
-            throw new OperatorException("Error in deactivating  :" + networkOrSubnetwork + ":" + requestId);
+            return new String[] {data.get("fm-transformation-archetype").get("neTypeUpper").toString(),
+                    data.get("fm-transformation-archetype").get("NEVersion").toString()};
         }
+        return new String[] {data.get("pm-mediation-snmp-archetype").get("nodeType").toString(), "1.0.0"};
     }
 
-    private void createsubnetwork(String neName) throws OperatorException
+    /**
+     * Remove many NetworkElements (supervision, NetworkElement and SubNetwork), running up to {@code concurrency}
+     * removals at the same time.
+     *
+     * @param neNames     NetworkElements to remove
+     * @param concurrency Maximum number of NEs to remove in parallel, no more than the ENM client's concurrency
+     * @return Result of each NE, in the same order as {@code neNames}
+     * @throws OperatorException Errors logging in, NE failures are in the results
+     */
+    public List<NeProvisioningResult> removeNEs(final List<String> neNames, final int concurrency) throws OperatorException
     {
-        final String requestId = sendCommand("cmedit create SubNetwork=" + neName + " SubNetworkId=" + neName + " -namespace=OSS_TOP -version=3.0.0");
-        final String outputId = waitCommandCompletion(requestId);
-        final String neTypeData = getCommandJsonOutput(requestId, outputId);
-        String response = parseNeresult(neTypeData);
-        if (response.contains("Error"))
+        login();
+        final List<NeSpec> nes = new ArrayList<>();
+        for (String neName : neNames)
         {
-            LOGGER.error("Error in creating subnetwork : " + response);
-            throw new OperatorException("Error in creating subnetwork  :" + neName + ":" + requestId + " Error:" + response);
+            nes.add(new NeSpec(neName, null, null));
         }
+        return forEachNe(nes, concurrency, "remove", ne -> clearNe(ne.getNeName()));
     }
 
-    private void createnetworkElement(String neName, String sdkNeType) throws OperatorException
+    /**
+     * Run a task for each NE. Every command goes through the ENM client, so more NEs in parallel than the client
+     * sends requests at once would only queue; the concurrency is capped at the client's.
+     */
+    private List<NeProvisioningResult> forEachNe(final List<NeSpec> nes, final int concurrency, final String action,
+                                                 final NeTask task) throws OperatorException
     {
-        final String requestId = sendCommand("cmedit create NetworkElement=" + neName + " networkElementId=" + neName + ",neType=" + sdkNeType + ",ossPrefix=\"SubNetwork=" + neName + ",MeContext=" + neName + "\" -namespace=OSS_NE_DEF -version=2.0.0");
-        final String outputId = waitCommandCompletion(requestId);
-        final String neTypeData = getCommandJsonOutput(requestId, outputId);
-        String response = parseNeresult(neTypeData);
-        if (response.contains("Error"))
+        final long start = System.currentTimeMillis();
+        final int threads = Math.max(1, Math.min(concurrency, enm.getConcurrency()));
+        if (threads < concurrency)
         {
-            LOGGER.error("Error in creating networkElement : " + response);
-            throw new OperatorException("Error in creating networkElement  :" + neName + ":" + requestId + " Error:" + response);
+            LOGGER.info(action + " concurrency " + concurrency + " limited to the ENM client concurrency " + threads);
+        }
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try
+        {
+            final List<Future<NeProvisioningResult>> futures = new ArrayList<>();
+            for (NeSpec ne : nes)
+            {
+                futures.add(executor.submit(() -> {
+                    final long neStart = System.currentTimeMillis();
+                    try
+                    {
+                        task.run(ne);
+                        return new NeProvisioningResult(ne.getNeName(), true, null, System.currentTimeMillis() - neStart);
+                    }
+                    catch (OperatorException e)
+                    {
+                        LOGGER.error("Failed to " + action + " " + ne, e);
+                        return new NeProvisioningResult(ne.getNeName(), false, e.getMessage(), System.currentTimeMillis() - neStart);
+                    }
+                }));
+            }
+            final List<NeProvisioningResult> results = new ArrayList<>();
+            int failed = 0;
+            for (Future<NeProvisioningResult> future : futures)
+            {
+                final NeProvisioningResult result = future.get();
+                LOGGER.info(action + " " + result);
+                if (!result.isSuccess())
+                {
+                    failed++;
+                }
+                results.add(result);
+            }
+            LOGGER.info(action + " of " + nes.size() + " NEs took " + (System.currentTimeMillis() - start) + "mSec, " + failed + " failed");
+            return results;
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new OperatorException("Interrupted waiting for NEs to " + action, e);
+        }
+        catch (ExecutionException e)
+        {
+            throw new OperatorException("Failed to " + action + " NEs", e.getCause());
+        }
+        finally
+        {
+            executor.shutdownNow();
         }
     }
 
-    private void setupConnectivityInfo(String neName, String neVersion, String ip) throws OperatorException
+    private interface NeTask
     {
-        // In Address shuld be replaced in place of ip address
-        final String requestId = sendCommand("cmedit create NetworkElement=" + neName + ",GenericSnmpNodeConnectivityInformation=1 GenericSnmpNodeConnectivityInformationId=\"1\", ipAddress=" + ip
-                + ", snmpVersion=SNMP_V2C, snmpAgentPort=161, snmpWriteCommunity=\"public\", snmpReadCommunity=\"public\" -ns GEN_SNMP_MED --version " + neVersion);
-        final String outputId = waitCommandCompletion(requestId);
-        final String neTypeData = getCommandJsonOutput(requestId, outputId);
-        String response = parseNeresult(neTypeData);
-        if (response.contains("Error"))
-        {
-            LOGGER.error("Error in creating ConnectivityInfo : " + response);
-            throw new OperatorException("Error in creating ConnectivityInfo  :" + neName + ":" + requestId + " Error:" + response);
-        }
+        void run(NeSpec ne) throws OperatorException;
     }
 
-    private void setupCredentials(String neName) throws OperatorException
+    /**
+     * Commands that set up an FM node: SubNetwork, NetworkElement, connectivity, credentials and supervision
+     */
+    private CommandPipeline fmProvisioning(String neName, String sdkNeType, String neVersion, String ip)
     {
-        // In Address shuld be replaced in place of ip address
-        final String requestId = sendCommand("secadm credentials create --secureusername netsim --secureuserpassword netsim -n " + neName + "");
-        final String outputId = waitCommandCompletion(requestId);
-        final String neTypeData = getCommandJsonOutput(requestId, outputId);
-        String response = parseNeresult(neTypeData);
-        if (response.contains("Error"))
+        return pipeline().
+                stage(createsubnetwork(neName)).
+                stage(createnetworkElement(neName, sdkNeType)).
+                stage(setupConnectivityInfo(neName, neVersion, ip), setupCredentials(neName)).
+                stage(setupHeartBeat(neName), setupfmsupervision(neName));
+    }
+
+    /**
+     * Commands that set up a PM node: NetworkElement, connectivity and PmFunction
+     */
+    private CommandPipeline pmProvisioning(String neName, String sdkNeType, String neVersion, String ip)
+    {
+        return pipeline().
+                stage(createnetworkElementPM(neName, sdkNeType)).
+                stage(setupConnectivityInfoPM(neName, neVersion, ip), enablePmfunction(neName));
+    }
+
+    /**
+     * Get a new pipeline that runs its commands through this operators ENM client
+     *
+     * @return Empty pipeline
+     */
+    public CommandPipeline pipeline()
+    {
+        return new CommandPipeline(this::executeCommand, getCommandExecutor());
+    }
+
+    private synchronized ExecutorService getCommandExecutor()
+    {
+        if (commandExecutor == null)
         {
-            LOGGER.error("Error in setupCredentials : " + response);
-            throw new OperatorException("Error in setupCredentials  :" + neName + ":" + requestId + " Error:" + response);
+            commandExecutor = Executors.newFixedThreadPool(enm.getConcurrency(), runnable -> {
+                final Thread thread = new Thread(runnable, "enm-command");
+                thread.setDaemon(true);
+                return thread;
+            });
         }
+        return commandExecutor;
     }
 
-    private void setupHeartBeat(String neName) throws OperatorException
+    /**
+     * Send a command, wait for it to complete and get the last line of its output
+     */
+    private String executeCommand(final String command) throws OperatorException
     {
-        // In Address shuld be replaced in place of ip address
-        final String requestId = sendCommand("cmedit set NetworkElement=" + neName + ",CmNodeHeartbeatSupervision=1 active=true");
-        final String outputId = waitCommandCompletion(requestId);
-        final String neTypeData = getCommandJsonOutput(requestId, outputId);
-        String response = parseNeresult(neTypeData);
-        if (response.contains("Error"))
+        return parseNeresult(executeCommandJson(command));
+    }
+
+    /**
+     * Send a command, wait for it to complete and get its JSON output. The status and output are only known to the
+     * user that sent the command, so all three requests go as one user.
+     */
+    private String executeCommandJson(final String command) throws OperatorException
+    {
+        return enm.withUser(session -> {
+            final String requestId = sendCommand(session, command);
+            final String outputId = waitCommandCompletion(session, requestId);
+            return getCommandJsonOutput(session, requestId, outputId);
+        });
+    }
+
+    private void clearNe(String neName) throws OperatorException
+    {
+        clearNePipeline(neName).execute();
+    }
+
+    private CommandPipeline clearNePipeline(String neName)
+    {
+        return pipeline().
+                stage(deactivate(neName, "CmNodeHeartbeatSupervision"),
+                        deactivate(neName, "InventorySupervision"),
+                        deactivate(neName, "FmAlarmSupervision")).
+                // the NRM data can only be deleted once CM supervision is off
+                stage(deactivate(neName, "CmFunction")).
+                stage(deleteNetAndSubNetworkStep(neName, "NetworkElement")).
+                stage(deleteNetAndSubNetworkStep(neName, "SubNetwork"));
+    }
+
+    private CommandPipeline.Step deactivate(String neName, String superVision)
+    {
+        if (superVision.equalsIgnoreCase("CmFunction"))
         {
-            LOGGER.error("Error in setting up heartbeat  : " + response);
-            throw new OperatorException("Error in setting up heartbeat  :" + neName + ":" + requestId + " Error:" + response);
+            return CommandPipeline.step("deactivating " + superVision + " : " + neName,
+                    "cmedit action NetworkElement=" + neName + ",CmFunction=1 deleteNrmDataFromEnm");
         }
+        return CommandPipeline.step("deactivating " + superVision + " : " + neName,
+                "cmedit set NetworkElement=" + neName + "," + superVision + "=1 active=false");
     }
 
-    private void setupfmsupervision(String neName) throws OperatorException
+    private void deleteNetAndSubNetwork(String neName, String networkOrSubnetwork) throws OperatorException
+    {
+        pipeline().stage(deleteNetAndSubNetworkStep(neName, networkOrSubnetwork)).execute();
+    }
+
+    private CommandPipeline.Step deleteNetAndSubNetworkStep(String neName, String networkOrSubnetwork)
+    {
+        // a re-created NE gets a new poId
+        return CommandPipeline.step("deleting " + networkOrSubnetwork + " : " + neName,
+                "cmedit delete " + networkOrSubnetwork + "=" + neName + " -ALL --force").
+                onCompletion(() -> poCache.invalidate(neName));
+    }
+
+    private CommandPipeline.Step createsubnetwork(String neName)
+    {
+        return CommandPipeline.step("creating subnetwork : " + neName,
+                "cmedit create SubNetwork=" + neName + " SubNetworkId=" + neName + " -namespace=OSS_TOP -version=3.0.0");
+    }
+
+    private CommandPipeline.Step createnetworkElement(String neName, String sdkNeType)
+    {
+        return CommandPipeline.step("creating networkElement : " + neName,
+                "cmedit create NetworkElement=" + neName + " networkElementId=" + neName + ",neType=" + sdkNeType + ",ossPrefix=\"SubNetwork=" + neName + ",MeContext=" + neName + "\" -namespace=OSS_NE_DEF -version=2.0.0");
+    }
+
+    private CommandPipeline.Step setupConnectivityInfo(String neName, String neVersion, String ip)
     {
         // In Address shuld be replaced in place of ip address
-        final String requestId = sendCommand("cmedit set NetworkElement=" + neName + ",FmAlarmSupervision=1 active=true");
-        final String outputId = waitCommandCompletion(requestId);
-        final String neTypeData = getCommandJsonOutput(requestId, outputId);
-        String response = parseNeresult(neTypeData);
-        if (response.contains("Error"))
-        {
-            throw new OperatorException("Error in creating NetworkElement :" + requestId);
-        }
+        return CommandPipeline.step("creating ConnectivityInfo : " + neName,
+                "cmedit create NetworkElement=" + neName + ",GenericSnmpNodeConnectivityInformation=1 GenericSnmpNodeConnectivityInformationId=\"1\", ipAddress=" + ip
+                + ", snmpVersion=SNMP_V2C, snmpAgentPort=161, snmpWriteCommunity=\"public\", snmpReadCommunity=\"public\" -ns GEN_SNMP_MED --version " + neVersion);
+    }
+
+    private CommandPipeline.Step setupCredentials(String neName)
+    {
+        return CommandPipeline.step("setupCredentials : " + neName,
+                "secadm credentials create --secureusername netsim --secureuserpassword netsim -n " + neName + "");
+    }
+
+    private CommandPipeline.Step setupHeartBeat(String neName)
+    {
+        return CommandPipeline.step("setting up heartbeat : " + neName,
+                "cmedit set NetworkElement=" + neName + ",CmNodeHeartbeatSupervision=1 active=true");
+    }
+
+    private CommandPipeline.Step setupfmsupervision(String neName)
+    {
+        return CommandPipeline.step("setting up FmAlarmSupervision : " + neName,
+                "cmedit set NetworkElement=" + neName + ",FmAlarmSupervision=1 active=true");
     }
 
     private String parseNeresult(String neTypeData) throws OperatorException
@@ -404,73 +631,18 @@ public class SdkEnmCliOperator {
          * 
          * 
          */
-        final ObjectMapper mapper = new ObjectMapper();
-        String response = "";
-        try
-        {
-            final JsonNode result = mapper.readTree(neTypeData);
-
-            final Iterator<JsonNode> elements = result.get("responseDto").get("elements").getElements();
-
-            while (elements.hasNext())
-            {
-                final JsonNode element = elements.next();
-                final String value = element.get("value").getTextValue();
-                if (value != null)
-                {
-                    response = value;
-                }
-            }
-            return response;
-        }
-        catch (final IOException e)
-        {
-            throw new OperatorException("Error while extracting Response", e);
-        }
+        return ScriptEngineResponseReader.lastValue(neTypeData);
     }
 
     public String[] configureNetsims(String fmVipAddress) throws OperatorException
     {
-        List<NetSimCommand> commandsToExecute = new ArrayList<NetSimCommand>();
-        List<String> dgTwoSimuations = new ArrayList<>();
         String netsimDetails[] = new String[3];
 
         // Getting a random host
-        final Host netsimHost = netSimsList.get(0);
-        LOGGER.info("Using NetSim host " + netsimHost);
-        netsimHost.setUser("netsim");
-        netsimHost.setPass("netsim");
-        NetSimSession handler = NetSimCommandHandler.getSession(netsimHost);
-        commandsToExecute.add(NetSimCommands.showSimulations());
-        NetSimResult simesrsult = handler.exec(commandsToExecute);
-        CommandOutput[] result = simesrsult.getOutput();
-        LOGGER.info("show simulations --> {} : ", result[0].asColumns());
-        List<Map<String, String>> simulations = result[0].asColumns();
-        for (Map<String, String> simulationEntry : simulations)
-        {
-            for (Map.Entry<String, String> entry : simulationEntry.entrySet())
-            {
-                String value = simulationEntry.get(entry.getKey());
-                if (value.contains("DG2"))
-                {
-                    LOGGER.info("Dg2 simumations --> {} : ", value);
-                    dgTwoSimuations.add(value);
-                }
-            }
-        }
-        /* use any on of DG2 simulation as of now using last index */
-        LOGGER.info("DG2 simulation : " + dgTwoSimuations.get(dgTwoSimuations.size() - 1));
-        commandsToExecute.add(NetSimCommands.open(dgTwoSimuations.get(dgTwoSimuations.size() - 1)));
-        handler.exec(commandsToExecute);
-
-        /* Create default destination with ip and port */
-        createDefaultDestination(commandsToExecute, handler, fmVipAddress);
-
-        commandsToExecute.add(NetSimCommands.showSimnes());
-        NetSimResult simnessResult = handler.exec(commandsToExecute);
-        LOGGER.info("show simness : " + simnessResult.getRawOutput());
-        CommandOutput[] simNessCommandResult = simnessResult.getOutput();
-        List<Map<String, String>> simNessList = simNessCommandResult[simNessCommandResult.length-1].asColumns();
+        final NetSimCommandSession netsim = getNetSim();
+        final NetSimInventory inventory = NetSimInventory.forHost(netsim);
+        final List<String> dgTwoSimuations = inventory.getSimulationsContaining("DG2");
+        LOGGER.info("Dg2 simumations --> {} : ", dgTwoSimuations);
 
         // taking the first value from the list
         /*
@@ -489,32 +661,35 @@ public class SdkEnmCliOperator {
 
         final String neName = Flags.getFmNeSimName();
         LOGGER.info("Using netsim node " + neName);
-        String neIpAddress = null;
-        for(Map<String, String> sim : simNessList){
-            if(sim.get("NE Name").equals(neName)){
-                neIpAddress = sim.get("In Address").split("\\s+")[0];
-                break;
-            }
-        }
-        if(neIpAddress == null){
+        final NetSimNe ne = inventory.findByName(neName);
+        if (ne == null || !dgTwoSimuations.contains(ne.getSimulation()))
+        {
             throw new OperatorException("Could not find a sim for node " + neName);
         }
 
-        LOGGER.info(neName + " -> " + neIpAddress);
+        LOGGER.info(neName + " -> " + ne.getIpAddress());
 
         netsimDetails[0] = neName;
-        netsimDetails[1] = neIpAddress;
-        netsimDetails[2] = dgTwoSimuations.get(dgTwoSimuations.size() - 1);
+        netsimDetails[1] = ne.getIpAddress();
+        netsimDetails[2] = ne.getSimulation();
 
-        // have to use the next NE if it fails as of now using the first one
-        commandsToExecute.add(NetSimCommands.select(neName));
-        commandsToExecute.add(NetSimCommands.stop());
-
-        commandsToExecute.add(NetSimCommands.setExternal(DEF_DESTINATION_NAME));
-        commandsToExecute.add(NetSimCommands.setSave());
-
-        commandsToExecute.add(NetSimCommands.start());
-        handler.exec(commandsToExecute);
+        /* Create default destination with ip and port, then point the NE at it, in one round trip */
+        final String configResult;
+        synchronized (netsim)
+        {
+            NetSimAllocator.queueDefaultDestination(netsim, fmVipAddress);
+            // have to use the next NE if it fails as of now using the first one
+            configResult = netsim.open(ne.getSimulation()).
+                    select(neName).
+                    add(NetSimStep.stop(),
+                            NetSimStep.setExternal(NetSimAllocator.DEF_DESTINATION_NAME),
+                            NetSimStep.setSave(),
+                            NetSimStep.start()).
+                    flush();
+        }
+        LOGGER.info("result of def destination : " + configResult);
+        // the NE default destination has changed
+        inventory.invalidate();
         LOGGER.info("Ne is Started Fine ready to send Alarm");
         return netsimDetails;
 
@@ -522,75 +697,106 @@ public class SdkEnmCliOperator {
 
     }
 
-    private void sendAlarm(String neName, String simulation)
+    /**
+     * Send an alarm from a NetSim node
+     *
+     * @return Time just before the alarm was sent
+     */
+    private long sendAlarm(String neName, String simulation) throws OperatorException
     {
-        final Host netsimHost = netSimsList.get(0);
-        LOGGER.info("Using NetSim host " + netsimHost);
-        netsimHost.setUser("netsim");
-        netsimHost.setPass("netsim");
-        NetSimSession handler = NetSimCommandHandler.getSession(netsimHost);
-        List<NetSimCommand> commandsToExecute = new ArrayList<NetSimCommand>();
-        commandsToExecute.add(NetSimCommands.open(simulation));
-        commandsToExecute.add(NetSimCommands.select(neName));
-        commandsToExecute.add(NetSimCommands.sendalarm().setSpecificProblem("Sent Alarm from TAF"));
-        NetSimResult alarmResult = handler.exec(commandsToExecute);
+        final NetSimCommandSession netsim = getNetSim();
+        final long sentAt;
+        final String alarmResult;
+        synchronized (netsim)
+        {
+            netsim.open(simulation).
+                    select(neName).
+                    add(NetSimStep.sendAlarm(ALARM_SPECIFIC_PROBLEM));
+            sentAt = System.currentTimeMillis();
+            alarmResult = netsim.flush();
+        }
         LOGGER.info("Alarm Result : " + alarmResult);
+        return sentAt;
     }
 
-    private void verifyFAlarmSent(String neName) throws OperatorException
+    /**
+     * Wait for the alarm sent by {@link #sendAlarm} to show up in ENM, the time it took is kept as the FM
+     * trap-to-alarm latency.
+     */
+    private void verifyFAlarmSent(String neName, long alarmSentAt) throws OperatorException
     {
-        // In Address shuld be replaced in place of ip address
-        final String requestId = sendCommand("alarm get " + neName + " -sp \"Sent Alarm from TAF\"");
-        final String outputId = waitCommandCompletion(requestId);
-        final String neTypeData = getCommandJsonOutput(requestId, outputId);
-        String response = parseAlarmResult(neTypeData);
-        LOGGER.info("response from verify Alarm : " + response);
-        Assert.assertEquals(response, "Total number of alarms fetched for the given query is :1");
+        final AlarmWaiter.AlarmArrival arrival = getAlarmWaiter().await(neName, ALARM_SPECIFIC_PROBLEM, 1, alarmSentAt);
+        lastAlarmArrival = arrival;
+        LOGGER.info("response from verify Alarm : " + arrival.getTotalLine() + ", trap to alarm latency " + arrival.getLatencyMillis() + "mSec");
+        Assert.assertEquals(arrival.getTotalLine(), AlarmWaiter.TOTAL_ALARMS_PREFIX + "1");
     }
 
-    private void createDefaultDestination(List<NetSimCommand> commandsToExecute, NetSimSession handler, String fmVipAddress)
+    /**
+     * Get the last alarm verified by {@link #createNE}, including how long it took to reach ENM
+     *
+     * @return arrival details, {@code null} if no alarm has been verified
+     */
+    public AlarmWaiter.AlarmArrival getLastAlarmArrival()
     {
-        // configuration for default destination
-        commandsToExecute.add(NetSimCommands.selectConfiguration());
-        commandsToExecute.add(NetSimCommands.configAddExternal(DEF_DESTINATION_NAME, PROTOCOL));
-        commandsToExecute.add(NetSimCommands.configExternalServers(DEF_DESTINATION_NAME, netSimsList.get(0).getHostname()));
-        commandsToExecute.add(NetSimCommands.configExternalAddress(DEF_DESTINATION_NAME, fmVipAddress, TRAP_PORT, NOTIFICATION_TYPE));// need to check
-                                                                                                                                      // ip from
-        commandsToExecute.add(NetSimCommands.configSave());
+        return lastAlarmArrival;
+    }
 
-        NetSimResult defDestinationResult = handler.exec(commandsToExecute);
-        LOGGER.info("result of def destination : " + defDestinationResult.getRawOutput());
+    AlarmWaiter getAlarmWaiter()
+    {
+        return new AlarmWaiter(this::executeCommandJson, enmClock, TimeUnit.SECONDS.toMillis(Flags.fmAlarmTimeout()),
+                new Backoff(1000, 10000, 1.5, 0.2));
     }
 
-    private String parseAlarmResult(String neTypeData) throws OperatorException
+    /**
+     * Send alarms from NetSim NEs at a fixed rate and check every one of them reaches ENM
+     *
+     * @param nes             NEs to send from, e.g. from {@link #getNetSimAllocator()}, they must already be supervised
+     *                        and have a default destination
+     * @param ratePerSecond   Alarms per second across all NEs
+     * @param durationSeconds How long to send for
+     * @return Throughput, lost alarms and trap-to-alarm latency percentiles
+     * @throws OperatorException Any errors
+     */
+    public AlarmLoadGenerator.AlarmLoadReport runAlarmLoad(final List<NetSimNe> nes, final double ratePerSecond,
+                                                           final int durationSeconds) throws OperatorException
     {
-        final ObjectMapper mapper = new ObjectMapper();
-        String response = "";
-        try
-        {
-            final JsonNode result = mapper.readTree(neTypeData);
+        final AlarmLoadGenerator generator = new AlarmLoadGenerator(getNetSimAllocator(), getAlarmWaiter());
+        return generator.run(nes, ratePerSecond, TimeUnit.SECONDS.toMillis(durationSeconds));
+    }
 
-            final Iterator<JsonNode> elements = result.get("responseDto").get("elements").getElements();
+    /**
+     * Point many NetSim NEs at the FM VIP, a batch per simulation with several simulations configured at the same time
+     *
+     * @param nes          NEs to configure, e.g. from {@link #getNetSimAllocator()}
+     * @param fmVipAddress Address traps are sent to
+     * @return Result and time of each NE, in the same order as {@code nes}
+     * @throws OperatorException The destination could not be created, NE failures are in the results
+     */
+    public List<NeProvisioningResult> configureNetsimNes(final List<NetSimNe> nes, final String fmVipAddress) throws OperatorException
+    {
+        return getNetSimAllocator().configureDefaultDestination(nes, fmVipAddress);
+    }
 
-            while (elements.hasNext())
-            {
-                final JsonNode element = elements.next();
-                final String dtoType = element.get("dtoType").getTextValue();
-                if (dtoType != null && dtoType.equalsIgnoreCase("line"))
-                {
-                    String toAssert = element.get("value").getTextValue();
-                    if (toAssert != null && toAssert.startsWith("Total number"))
-                    {
-                        response = toAssert;
-                    }
-                }
-            }
-            return response;
-        }
-        catch (final IOException e)
-        {
-            throw new OperatorException("Error while extracting Response", e);
-        }
+    /**
+     * Get the allocator that hands out NEs from all NetSim hosts, shared by all operators unless this operator was
+     * given its own
+     *
+     * @return allocator
+     */
+    public NetSimAllocator getNetSimAllocator()
+    {
+        return netSimAllocator != null ? netSimAllocator : NetSimAllocator.shared();
+    }
+
+    /**
+     * Get the NetSim session for the first NetSim host, kept open between calls
+     */
+    private NetSimCommandSession getNetSim()
+    {
+        final Host netsimHost = HostConfigurator.getAllNetsimHosts().get(0);
+        netsimHost.setUser("netsim");
+        netsimHost.setPass("netsim");
+        return NetSimCommandSession.forHost(netsimHost);
     }
 
     public void createNetworkelementForPM(SdkType sdkType) throws OperatorException
@@ -603,234 +809,171 @@ public class SdkEnmCliOperator {
             String[] netsimsDetails = fetchNetsimsDetails();
             login();
             networkElementName=netsimsDetails[0];
-            deleteNetAndSubNetwork(networkElementName,"NetworkElement");
-            createnetworkElementPM(netsimsDetails[0], sdkNeType);
-            setupConnectivityInfoPM(netsimsDetails[0], "1.0.0", netsimsDetails[1]);
-            enablePmfunction(netsimsDetails[0]);
+            pipeline().
+                    stage(deleteNetAndSubNetworkStep(networkElementName, "NetworkElement")).
+                    then(pmProvisioning(netsimsDetails[0], sdkNeType, "1.0.0", netsimsDetails[1])).
+                    execute();
             createAndActivateSubscription(netsimsDetails[0], sdkNeType);
-            LOGGER.info("Subscription is created for one min--> Taf Test will wait for a minute to assert file");
-
-            Thread.currentThread().sleep(330000);
-            String isFileCreated = genericGet(CHECK_FILE);
-            Map map = getObjectMapper().readValue(isFileCreated, Map.class);
-            if (map.get("files") == null)
-            {
-                throw new OperatorException("Error in assert file no files found-->");
-            }
-            String fileout = map.get("files").toString();
-            LOGGER.info("file output : "+isFileCreated);
-            Assert.assertTrue(fileout.contains(netsimsDetails[0]));
+            final long activatedAt = System.currentTimeMillis();
+            LOGGER.info("Subscription is created for " + ROP + " --> Taf Test will wait for the first ROP file");
 
-        }
-        catch (InterruptedException e)
-        {
-            LOGGER.error("Error in assert file ");
-            throw new OperatorException("Error in assert file ");
-        }
-        catch (IOException e)
-        {
-            LOGGER.error("Error in assert file ");
-            throw new OperatorException("Error in assert file ");
+            final List<PmFileWatcher.PmFileArrival> files = getPmFileWatcher().await(netsimsDetails[0], activatedAt, 1);
+            lastPmFileArrivals = files;
+            LOGGER.info("file output : " + files);
+            Assert.assertTrue(files.get(0).getFile().toString().contains(netsimsDetails[0]));
         }
         finally
         {
             deactivateSubscription();
             deleteNetAndSubNetwork(networkElementName,"NetworkElement");
-            logout();
         }
     }
 
-    private void createnetworkElementPM(String neName, String sdkNeType) throws OperatorException
+    /**
+     * Get the PM files verified by the last {@link #createNetworkelementForPM}, including their collection delay
+     *
+     * @return files, {@code null} if no PM file has been verified
+     */
+    public List<PmFileWatcher.PmFileArrival> getLastPmFileArrivals()
     {
-        final String requestId = sendCommand("cmedit create NetworkElement=" + neName + " networkElementId=" + neName + " ,neType=" + sdkNeType + " -ns=OSS_NE_DEF -v=2.0.0");
-        final String outputId = waitCommandCompletion(requestId);
-        final String neTypeData = getCommandJsonOutput(requestId, outputId);
-        String response = parseNeresult(neTypeData);
-        if (response.contains("Error"))
-        {
-            LOGGER.error("Error in creating networkElement : " + response);
-            throw new OperatorException("Error in creating networkElement  :" + neName + ":" + requestId + " Error:" + response);
-        }
+        return lastPmFileArrivals;
     }
 
-    private void setupConnectivityInfoPM(String neName, String neVersion, String ip) throws OperatorException
+    PmFileWatcher getPmFileWatcher()
     {
-        final String requestId = sendCommand("cmedit create NetworkElement=" + neName + ",GenericSnmpNodeConnectivityInformation=1 GenericSnmpNodeConnectivityInformationId=\"1\", ipAddress=" + ip
+        return new PmFileWatcher(this::genericGet, Rop.valueOf(ROP), TimeUnit.SECONDS.toMillis(Flags.pmFileTimeout()));
+    }
+
+    private CommandPipeline.Step createnetworkElementPM(String neName, String sdkNeType)
+    {
+        return CommandPipeline.step("creating networkElement : " + neName,
+                "cmedit create NetworkElement=" + neName + " networkElementId=" + neName + " ,neType=" + sdkNeType + " -ns=OSS_NE_DEF -v=2.0.0");
+    }
+
+    private CommandPipeline.Step setupConnectivityInfoPM(String neName, String neVersion, String ip)
+    {
+        return CommandPipeline.step("creating ConnectivityInfo : " + neName,
+                "cmedit create NetworkElement=" + neName + ",GenericSnmpNodeConnectivityInformation=1 GenericSnmpNodeConnectivityInformationId=\"1\", ipAddress=" + ip
                 + ", snmpVersion=SNMP_V2C, snmpWriteCommunity=\"public\", snmpReadCommunity=\"public\" -ns=GEN_SNMP_MED --version " + neVersion);
-        final String outputId = waitCommandCompletion(requestId);
-        final String neTypeData = getCommandJsonOutput(requestId, outputId);
-        String response = parseNeresult(neTypeData);
-        if (response.contains("Error"))
-        {
-            LOGGER.error("Error in creating ConnectivityInfo : " + response);
-            throw new OperatorException("Error in creating ConnectivityInfo  :" + neName + ":" + requestId + " Error:" + response);
-        }
     }
 
-    private void enablePmfunction(String neName) throws OperatorException
+    private CommandPipeline.Step enablePmfunction(String neName)
     {
-        final String requestId = sendCommand("cmedit set NetworkElement=" + neName + ",PmFunction=1 pmEnabled=true --force");
-        final String outputId = waitCommandCompletion(requestId);
-        final String neTypeData = getCommandJsonOutput(requestId, outputId);
-        String response = parseNeresult(neTypeData);
-        if (response.contains("Error"))
-        {
-            LOGGER.error("Error in creating networkElement : " + response);
-            throw new OperatorException("Error in creating networkElement  :" + neName + ":" + requestId + " Error:" + response);
-        }
+        return CommandPipeline.step("enabling PmFunction : " + neName,
+                "cmedit set NetworkElement=" + neName + ",PmFunction=1 pmEnabled=true --force");
     }
 
     private void deactivateSubscription() throws OperatorException
     {
-        String getSubstatus;
-        try
+        // the subscription created by this operator is read by id, only one left from elsewhere is looked up by name
+        final PmSubscriptionHandle handle;
+        if (subscription != null)
         {
-            getSubstatus = genericGet(GET_SUBSCRIPTION);
-            LOGGER.info("output from get API : " + getSubstatus);
-            String[] subscriptionData = getSubscriptionData(getSubstatus);
-            String persistenceTime = subscriptionData[0];
-            String id = subscriptionData[1];
-            String activatepaylod = "{\"persistenceTime\":" + persistenceTime + "}";
-            LOGGER.info("de-activate payload : "+activatepaylod+"id: "+id);
-            String deactivateResponse = deactivateSubsciption(activatepaylod, id);
-            LOGGER.info("output from  deactivateResponse : " + deactivateResponse);
-            deleteSubscription(id);
+            try
+            {
+                handle = subscription.refresh();
+            }
+            catch (OperatorException e)
+            {
+                // called from finally, so don't hide the failure that got us here
+                LOGGER.warn("Could not read subscription " + subscription.getName() + " (" + subscription.getId() + "), not deactivating it", e);
+                subscription = null;
+                return;
+            }
         }
-        catch (OperatorException e)
+        else
         {
-            LOGGER.error("Error in deactivateSubscription : ");
-            throw new OperatorException("Error in deactivateSubscription", e);
+            handle = PmSubscriptionHandle.find(SUBSCRIPTION_NAME, this::getIfExists);
         }
-        catch (IOException e)
+        if (handle == null)
         {
-            LOGGER.error("Error in deactivateSubscription : ");
-            throw new OperatorException("Error in deactivateSubscription", e);
+            LOGGER.info("No subscription " + SUBSCRIPTION_NAME + " to deactivate");
+            return;
         }
-
+        String activatepaylod = "{\"persistenceTime\":" + handle.getPersistenceTime() + "}";
+        LOGGER.info("de-activate payload : "+activatepaylod+"id: "+handle.getId());
+        String deactivateResponse = deactivateSubsciption(activatepaylod, handle.getId());
+        LOGGER.info("output from  deactivateResponse : " + deactivateResponse);
+        deleteSubscription(handle.getId());
+        subscription = null;
     }
 
     private void createAndActivateSubscription(String networkElementName, String neType) throws OperatorException
     {
-        try
-        {
-            String pmsdkSubscriptionJson = createSubscription(networkElementName, neType);
-            sendCommandForPm(pmsdkSubscriptionJson);
-            // give sometime for the subscription to save
-            Thread.currentThread().sleep(5000);
-            String getSubstatus = genericGet(GET_SUBSCRIPTION);
-            LOGGER.info("output from get API : " + getSubstatus);
-            String[] persistenceTime = getSubscriptionData(getSubstatus);
-            String activatepaylod = "{\"persistenceTime\":" + persistenceTime[0] + "}";
-            String activateresponse = sendCommandForPmactivate(activatepaylod);
-            LOGGER.info("output from  activateresponse : " + activateresponse);
-        }
-        catch (InterruptedException e)
-        {
-            LOGGER.error("Error in createAndActivateSubscription : ");
-            throw new OperatorException("Error in createAndActivateSubscription", e);
-        }
-        catch (IOException e)
-        {
-            LOGGER.error("Error in createAndActivateSubscription : ");
-            throw new OperatorException("Error in createAndActivateSubscription", e);
-        }
-
+        String pmsdkSubscriptionJson = createSubscription(networkElementName, neType);
+        // wait for the subscription to be saved
+        subscription = PmSubscriptionHandle.created(SUBSCRIPTION_NAME, sendCommandForPm(pmsdkSubscriptionJson), this::getIfExists).
+                awaitReady(TimeUnit.SECONDS.toMillis(Flags.pmSubscriptionTimeout()), new Backoff(250, 2000, 1.5, 0.2));
+        String activatepaylod = "{\"persistenceTime\":" + subscription.getPersistenceTime() + "}";
+        String activateresponse = sendCommandForPmactivate(activatepaylod);
+        LOGGER.info("output from  activateresponse : " + activateresponse);
     }
 
-    private String[] getSubscriptionData(String subscriptionData) throws IOException
+    private String createSubscription(String networkElementName, String neType) throws OperatorException
     {
-        String subData[] = new String[2];
-        PmsdkStatisticalSubscription[] pmsdkresonse = getObjectMapper().readValue(subscriptionData, PmsdkStatisticalSubscription[].class);
-        for (PmsdkStatisticalSubscription pmsdksubs : pmsdkresonse)
-        {
-            if (pmsdksubs.getName().equalsIgnoreCase(SUBSCRIPTION_NAME))
-            {
-                subData[0] = pmsdksubs.getPersistenceTime();
-                subData[1] = (String) pmsdksubs.getId();
-                break;
-            }
-        }
-        return subData;
+        return subscriptionBuilder().
+                name(SUBSCRIPTION_NAME).
+                neType(neType).
+                rop(Rop.valueOf(ROP)).
+                node(networkElementName).
+                toJson();
+    }
 
+    /**
+     * Create an inactive PM statistical subscription for a set of nodes, with the default counters
+     *
+     * @param subscriptionName Subscription name
+     * @param neType           NE type of all the nodes
+     * @param neNames          NetworkElement names, they must already exist with PmFunction enabled
+     * @return Handle on the subscription, once it can be read back
+     * @throws OperatorException Any errors
+     */
+    public PmSubscriptionHandle createPmSubscription(final String subscriptionName, final String neType, final Collection<String> neNames) throws OperatorException
+    {
+        final String payload = subscriptionBuilder().
+                name(subscriptionName).
+                neType(neType).
+                rop(Rop.valueOf(ROP)).
+                nodes(neNames).
+                toJson();
+        LOGGER.info("Creating subscription " + subscriptionName + " for " + neNames.size() + " nodes, payload " + payload.length() + " chars");
+        return PmSubscriptionHandle.created(subscriptionName, sendCommandForPm(payload), this::getIfExists).
+                awaitReady(TimeUnit.SECONDS.toMillis(Flags.pmSubscriptionTimeout()), new Backoff(250, 2000, 1.5, 0.2));
     }
 
-    private String createSubscription(String networkElementName, String neType) throws OperatorException
+    /**
+     * Get a builder for PM subscriptions whose nodes are looked up in this ENM
+     *
+     * @return builder
+     */
+    public PmSubscriptionBuilder subscriptionBuilder()
     {
-        PmsdkStatisticalSubscription pmsdkSubscription = new PmsdkStatisticalSubscription();
-        String subscription = null;
-        try
-        {
-            final Map<String, Object> map = getNeDetails(networkElementName);
-            Integer poId = (Integer) map.get("poId");
-            String fdn = (String) map.get("fdn");
-            String neVersion = (String) map.get("neVersion");
-
-            pmsdkSubscription.setType(STATISTICAL);
-            pmsdkSubscription.setName(SUBSCRIPTION_NAME);
-            pmsdkSubscription.setDescription(SUBSCRIPTION_NAME);
-            pmsdkSubscription.setAdministrationState(ADMINISTRATIONSTATE);
-            pmsdkSubscription.setOwner(ADMINISTRATOR);
-            pmsdkSubscription.setNodeFilter(NODE_TYPE);
-            ArrayList<String> selectedNeTypes = new ArrayList<String>();
-            selectedNeTypes.add(neType);
-            pmsdkSubscription.setSelectedNeTypes(selectedNeTypes);
-
-            ArrayList<Node> nodes = new ArrayList<Node>();
-            Node node = new Node();
-            node.setFdn(fdn);
-            node.setId(poId.toString());
-            node.setPmFunction(PM_FUNCTION);
-            node.setOssPrefix("MeContext=" + networkElementName);
-            node.setNeType(neType);
-            node.setOssModelIdentity(neVersion);
-            nodes.add(node);
-            pmsdkSubscription.setNodes(nodes);
-
-            pmsdkSubscription.setNumberOfNodes(1);
-            pmsdkSubscription.setClasss(CLASS);
-            pmsdkSubscription.setUserType(USERTYPE);
-            pmsdkSubscription.setTaskStatus(TASKSTATUS);
-            pmsdkSubscription.setRop(ROP);
-            pmsdkSubscription.setPnpEnabled(false);
-            pmsdkSubscription.setFilterOnManagedElement(false);
-            pmsdkSubscription.setFilterOnManagedFunction(false);
-            pmsdkSubscription.setCbs(false);
-
-            ObjectMapper objectMapper = getObjectMapper();
-
-            InputStream in = getClass().getResourceAsStream("/defaultcounter.json");
-            Counter[] counter = (Counter[]) objectMapper.readValue(in, Counter[].class);
-            List<Counter> counterList = Arrays.asList(counter);
-            ArrayList<Counter> listOfCounters = new ArrayList<Counter>(counterList);
-            pmsdkSubscription.setCounters(listOfCounters);
-            subscription = objectMapper.writeValueAsString(pmsdkSubscription);
-        }
-        catch (IOException e)
-        {
-            LOGGER.error("Error in create and activate subscription");
-            throw new OperatorException("Error in create and activate subscription : " + networkElementName + " Error:" + e.getMessage());
-        }
-        return subscription;
+        return new PmSubscriptionBuilder(poCache);
+    }
 
+    /**
+     * Get the NetworkElement persistent object attributes looked up by this operator, e.g. to prefetch a large node
+     * set before building several subscriptions for it
+     *
+     * @return cache, entries are dropped when this operator deletes the NE
+     */
+    public NePoCache getPoCache()
+    {
+        return poCache;
     }
 
     private ObjectMapper getObjectMapper()
     {
-        ObjectMapper objectMapper = new ObjectMapper();
-        objectMapper.configure(SerializationConfig.Feature.FAIL_ON_EMPTY_BEANS, false);
-        objectMapper.configure(DeserializationConfig.Feature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-        objectMapper.setSerializationInclusion(Inclusion.NON_NULL);
-        return objectMapper;
+        return ScriptEngineResponseReader.getMapper();
     }
 
-    private Map getNeDetails(String networkElementName) throws OperatorException
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> getNeDetails(String networkElementName) throws OperatorException
     {
         try
         {
             String fdnResult = getFdn(GET_PO_ID + networkElementName + "?includeNonPersistent=true");
-            ObjectMapper om = new ObjectMapper();
-            final Map<String, Object> map = om.readValue(fdnResult, Map.class);
-            return map;
+            return getObjectMapper().readValue(fdnResult, Map.class);
         }
         catch (IOException e)
         {
@@ -842,8 +985,7 @@ public class SdkEnmCliOperator {
 
     private String getFdn(final String command) throws OperatorException
     {
-        RequestBuilder requestBuilder = getHttpTool().request();
-        HttpResponse response = requestBuilder.get(command);
+        HttpResponse response = enm.execute(httpTool -> httpTool.request().get(command));
         final HttpStatus responseCode = response.getResponseCode();
         if (responseCode != HttpStatus.OK && responseCode != HttpStatus.CREATED)
         {
@@ -854,49 +996,28 @@ public class SdkEnmCliOperator {
 
     private String[] fetchNetsimsDetails() throws OperatorException
     {
-        List<NetSimCommand> commandsToExecute = new ArrayList<NetSimCommand>();
-        List<String> dgTwoSimuations = new ArrayList<>();
         String netsimDetails[] = new String[3];
 
-        final Host netsimHost = netSimsList.get(0);
-        LOGGER.info("Using NetSim host " + netsimHost);
-        netsimHost.setUser("netsim");
-        netsimHost.setPass("netsim");
         // Getting a random host
-        NetSimSession handler = NetSimCommandHandler.getSession(netsimHost);
-        commandsToExecute.add(NetSimCommands.showSimulations());
-        NetSimResult simesrsult = handler.exec(commandsToExecute);
-        CommandOutput[] result = simesrsult.getOutput();
-        LOGGER.info("show simulations --> {} : ", result[0].asColumns());
-        List<Map<String, String>> simulations = result[0].asColumns();
-        for (Map<String, String> simulationEntry : simulations)
-        {
-            for (Map.Entry<String, String> entry : simulationEntry.entrySet())
-            {
-                String value = simulationEntry.get(entry.getKey());
-                if (value.contains("DG2"))
-                {
-                    LOGGER.info("Dg2 simumations --> {} : ", value);
-                    dgTwoSimuations.add(value);
-                }
-            }
+        final NetSimInventory inventory = NetSimInventory.forHost(getNetSim());
+        final List<String> dgTwoSimuations = inventory.getSimulationsContaining("DG2");
+        if (dgTwoSimuations.isEmpty())
+        {
+            throw new OperatorException("No DG2 simulation on " + getNetSim().getHostname());
         }
         /* use any on of DG2 simulation as of now using last index */
-        LOGGER.info("DG2 simulation : " + dgTwoSimuations.get(dgTwoSimuations.size() - 1));
-        commandsToExecute.add(NetSimCommands.open(dgTwoSimuations.get(dgTwoSimuations.size() - 1)));
-        handler.exec(commandsToExecute);
-
-        commandsToExecute.add(NetSimCommands.showSimnes());
-        NetSimResult simnessResult = handler.exec(commandsToExecute);
-        LOGGER.info("show simness : " + simnessResult.getRawOutput());
-        CommandOutput[] simNessCommandResult = simnessResult.getOutput();
-        List<Map<String, String>> simNessList = simNessCommandResult[simNessCommandResult.length - 1].asColumns();
-
-        String neName = simNessList.get(2).get("NE Name");
-        String neIpAddress = simNessList.get(2).get("In Address").split("\\s+")[0];
-        netsimDetails[0] = neName;
-        netsimDetails[1] = neIpAddress;
-        netsimDetails[2] = dgTwoSimuations.get(dgTwoSimuations.size() - 1);
+        final String simulation = dgTwoSimuations.get(dgTwoSimuations.size() - 1);
+        LOGGER.info("DG2 simulation : " + simulation);
+        final List<NetSimNe> simNes = inventory.getNes(simulation);
+        if (simNes.size() < 3)
+        {
+            throw new OperatorException("Simulation " + simulation + " has only " + simNes.size() + " NEs");
+        }
+
+        final NetSimNe ne = simNes.get(2);
+        netsimDetails[0] = ne.getName();
+        netsimDetails[1] = ne.getIpAddress();
+        netsimDetails[2] = simulation;
 
         return netsimDetails;
 
@@ -904,11 +1025,8 @@ public class SdkEnmCliOperator {
 
     private String sendCommandForPm(final String command) throws OperatorException
     {
-        final RequestBuilder requestBuilder = getHttpTool().request();
-
-        requestBuilder.contentType(ContentType.APPLICATION_JSON).body(command);
-
-        final HttpResponse response = requestBuilder.post(CREATE_SUBSCRIPTION);
+        final HttpResponse response = enm.execute(httpTool -> httpTool.request().
+                contentType(ContentType.APPLICATION_JSON).body(command).post(CREATE_SUBSCRIPTION));
         final HttpStatus responseCode = response.getResponseCode();
         if (responseCode != HttpStatus.ACCEPTED)
         {
@@ -920,12 +1038,10 @@ public class SdkEnmCliOperator {
 
     private String deactivateSubsciption(final String command, String subscriptionId) throws OperatorException
     {
-        final RequestBuilder requestBuilder = getHttpTool().request();
-
-        requestBuilder.contentType(ContentType.APPLICATION_JSON).body(command);
         String deactivateSubscription = DEACTIVATE_SUBSCRIPTION.replace("{ID}", subscriptionId);
 
-        final HttpResponse response = requestBuilder.post(deactivateSubscription);
+        final HttpResponse response = enm.execute(httpTool -> httpTool.request().
+                contentType(ContentType.APPLICATION_JSON).body(command).post(deactivateSubscription));
         final HttpStatus responseCode = response.getResponseCode();
         if (responseCode != HttpStatus.OK)
         {
@@ -938,13 +1054,12 @@ public class SdkEnmCliOperator {
     private void deleteSubscription(String subscriptionId) throws OperatorException
     {
         String deleteSubscription = DELETE_SUBSCRIPTION.replace("{ID}", subscriptionId);
-        getHttpTool().delete(deleteSubscription);
+        enm.execute(httpTool -> httpTool.delete(deleteSubscription));
     }
 
     private String genericGet(final String command) throws OperatorException
     {
-        RequestBuilder requestBuilder = getHttpTool().request();
-        HttpResponse response = requestBuilder.get(command);
+        HttpResponse response = enm.execute(httpTool -> httpTool.request().get(command));
         final HttpStatus responseCode = response.getResponseCode();
         if (responseCode != HttpStatus.OK && responseCode != HttpStatus.CREATED)
         {
@@ -953,11 +1068,30 @@ public class SdkEnmCliOperator {
         return response.getBody().toString();
     }
 
+    /**
+     * GET that treats a missing resource as a result, for polling until it exists
+     *
+     * @return body, {@code null} for 404
+     */
+    private String getIfExists(final String command) throws OperatorException
+    {
+        HttpResponse response = enm.execute(httpTool -> httpTool.request().get(command));
+        final HttpStatus responseCode = response.getResponseCode();
+        if (responseCode == HttpStatus.NOT_FOUND)
+        {
+            return null;
+        }
+        if (responseCode != HttpStatus.OK)
+        {
+            throw new OperatorException("Invalid HTTP status: " + response.getStatusLine());
+        }
+        return response.getBody().toString();
+    }
+
     private String sendCommandForPmactivate(final String command) throws OperatorException
     {
-        final RequestBuilder requestBuilder = getHttpTool().request();
-        requestBuilder.contentType(ContentType.APPLICATION_JSON).body(command);
-        final HttpResponse response = requestBuilder.post(ACT_SUBSCRIPTION);
+        final HttpResponse response = enm.execute(httpTool -> httpTool.request().
+                contentType(ContentType.APPLICATION_JSON).body(command).post(ACT_SUBSCRIPTION));
         final HttpStatus responseCode = response.getResponseCode();
         if (responseCode != HttpStatus.OK && responseCode != HttpStatus.CREATED)
         {
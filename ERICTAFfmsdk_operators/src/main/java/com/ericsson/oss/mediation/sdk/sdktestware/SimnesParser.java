@@ -0,0 +1,255 @@
+package com.ericsson.oss.mediation.sdk.sdktestware;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Streaming parser for the raw output of 'show simnes'.
+ * <p>
+ * The raw output is read a line at a time and each table row is turned into a {@link NetSimNe} only when it's asked
+ * for, so a caller looking for one NE stops reading at that NE and no row maps are built for the rest of the table.
+ * <pre>
+ * &gt;&gt; .open LTE19-Q3-V10x40-RV-DG2-LTE26
+ * OK
+ * &gt;&gt; .show simnes
+ * NE Name                  Type                     Server              In Address         Default dest.
+ * LTE26dg2ERBS00001        LTE MSRBS-V2 19-Q3-V10   ieatnetsimv18082    30.16.149.215 161  public v3+v2+v1 ...
+ * OK
+ * </pre>
+ * Columns are cut at the positions of the titles in the header line. The simulation of each table is taken from the
+ * '.open' before it, or from a list of expected simulations when the output doesn't echo the commands. Without the
+ * echo a simulation that prints no table would shift the NEs of every later table to the wrong simulation, so once
+ * the output is read {@link #isSimulationMismatch()} tells if the number of tables differed from the number of
+ * expected simulations.
+ */
+public class SimnesParser implements Iterator<NetSimNe>, AutoCloseable {
+    private static final String COMMAND_PREFIX = ">>";
+    private static final String OPEN_COMMAND = ".open ";
+    private static final String NE_NAME = "NE Name";
+    private static final String TYPE = "Type";
+    private static final String ADDRESS = "In Address";
+    private static final String DEFAULT_DESTINATION = "Default dest.";
+    private static final String[] COLUMNS = {NE_NAME, TYPE, "Server", ADDRESS, DEFAULT_DESTINATION};
+
+    private final String hostname;
+    private final BufferedReader reader;
+    private Iterator<String> expectedSimulations = Collections.<String>emptyList().iterator();
+
+    private String simulation;
+    private boolean openSeen;
+    private boolean expectedUsed;
+    private boolean simulationMismatch;
+    private int[] starts;
+    private String[] titles;
+    private NetSimNe next;
+    private boolean done;
+
+    /**
+     * @param hostname NetSim host the output came from
+     * @param raw      Raw NetSim output
+     */
+    public SimnesParser(final String hostname, final Reader raw) {
+        this.hostname = hostname;
+        this.reader = raw instanceof BufferedReader ? (BufferedReader) raw : new BufferedReader(raw);
+    }
+
+    /**
+     * Find an NE, reading no further than its row
+     *
+     * @param hostname NetSim host the output came from
+     * @param raw      Raw NetSim output
+     * @param neName   NE to find
+     * @return The NE, {@code null} if it isn't in the output
+     */
+    public static NetSimNe find(final String hostname, final String raw, final String neName) {
+        try (SimnesParser parser = new SimnesParser(hostname, new StringReader(raw))) {
+            while (parser.hasNext()) {
+                final NetSimNe ne = parser.next();
+                if (ne.getName().equals(neName)) {
+                    return ne;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Read every NE in the output
+     *
+     * @param hostname    NetSim host the output came from
+     * @param raw         Raw NetSim output
+     * @param simulations Simulations in the order their tables appear, used if the output doesn't echo '.open'
+     * @return NEs in output order
+     * @throws OperatorException The output doesn't echo '.open' and has a different number of tables than simulations
+     */
+    public static List<NetSimNe> parseAll(final String hostname, final String raw, final List<String> simulations)
+            throws OperatorException {
+        final List<NetSimNe> nes = new ArrayList<>();
+        try (SimnesParser parser = new SimnesParser(hostname, new StringReader(raw)).withSimulations(simulations)) {
+            while (parser.hasNext()) {
+                nes.add(parser.next());
+            }
+            if (parser.isSimulationMismatch()) {
+                throw new OperatorException("'show simnes' output on " + hostname + " doesn't have one table for each of " +
+                        simulations.size() + " simulations " + simulations);
+            }
+        }
+        return nes;
+    }
+
+    /**
+     * @param simulations Simulations in the order their tables appear, used if the output doesn't echo '.open'
+     * @return this parser
+     */
+    public SimnesParser withSimulations(final List<String> simulations) {
+        this.expectedSimulations = simulations.iterator();
+        return this;
+    }
+
+    /**
+     * Tell if a table had to be given an expected simulation and the number of tables didn't match the number of
+     * expected simulations, so the NEs of some tables were given the wrong simulation
+     *
+     * @return {@code true} on a mismatch, only final once all the NEs have been read
+     */
+    public boolean isSimulationMismatch() {
+        return simulationMismatch;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null && !done) {
+            next = readNext();
+            done = next == null;
+        }
+        return next != null;
+    }
+
+    @Override
+    public NetSimNe next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        final NetSimNe ne = next;
+        next = null;
+        return ne;
+    }
+
+    @Override
+    public void close() {
+        done = true;
+        try {
+            reader.close();
+        } catch (IOException e) {
+            // nothing left to read
+        }
+    }
+
+    private NetSimNe readNext() {
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final String trimmed = line.trim();
+                if (trimmed.startsWith(COMMAND_PREFIX)) {
+                    starts = null;
+                    final String command = trimmed.substring(COMMAND_PREFIX.length()).trim();
+                    if (command.startsWith(OPEN_COMMAND)) {
+                        simulation = command.substring(OPEN_COMMAND.length()).trim();
+                        openSeen = true;
+                    }
+                } else if (trimmed.startsWith(NE_NAME)) {
+                    readHeader(line);
+                } else if (starts != null) {
+                    if (trimmed.isEmpty() || trimmed.equals("OK")) {
+                        starts = null;
+                    } else {
+                        final NetSimNe ne = readRow(line);
+                        if (ne != null) {
+                            return ne;
+                        }
+                    }
+                }
+            }
+            if (expectedUsed && expectedSimulations.hasNext()) {
+                simulationMismatch = true;
+            }
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error reading NetSim output", e);
+        }
+    }
+
+    private void readHeader(final String header) {
+        final List<Integer> positions = new ArrayList<>();
+        final List<String> found = new ArrayList<>();
+        for (String column : COLUMNS) {
+            final int position = header.indexOf(column);
+            if (position >= 0) {
+                int index = 0;
+                while (index < positions.size() && positions.get(index) < position) {
+                    index++;
+                }
+                positions.add(index, position);
+                found.add(index, column);
+            }
+        }
+        starts = new int[positions.size()];
+        for (int i = 0; i < starts.length; i++) {
+            starts[i] = positions.get(i);
+        }
+        titles = found.toArray(new String[0]);
+        final String expected = expectedSimulations.hasNext() ? expectedSimulations.next() : null;
+        if (!openSeen) {
+            if (expected != null) {
+                simulation = expected;
+                expectedUsed = true;
+            } else if (expectedUsed) {
+                simulationMismatch = true;
+            }
+        }
+        openSeen = false;
+    }
+
+    private NetSimNe readRow(final String line) {
+        String neName = null;
+        String type = null;
+        String address = null;
+        String destination = null;
+        for (int i = 0; i < starts.length; i++) {
+            final int start = starts[i];
+            if (start >= line.length()) {
+                break;
+            }
+            final int end = i + 1 < starts.length ? Math.min(starts[i + 1], line.length()) : line.length();
+            final String value = line.substring(start, end).trim();
+            switch (titles[i]) {
+                case NE_NAME:
+                    neName = value;
+                    break;
+                case TYPE:
+                    type = value;
+                    break;
+                case ADDRESS:
+                    address = value.isEmpty() ? null : value.split("\\s+")[0];
+                    break;
+                case DEFAULT_DESTINATION:
+                    destination = value;
+                    break;
+                default:
+                    break;
+            }
+        }
+        if (neName == null || neName.isEmpty()) {
+            return null;
+        }
+        return new NetSimNe(hostname, simulation, neName, type, address, destination);
+    }
+}
@@ -0,0 +1,49 @@
+package com.ericsson.oss.mediation.sdk.sdktestware;
+
+import com.ericsson.cifwk.taf.data.Host;
+import com.ericsson.cifwk.taf.handlers.netsim.NetSimCommand;
+import com.ericsson.cifwk.taf.handlers.netsim.NetSimCommandHandler;
+import com.ericsson.cifwk.taf.handlers.netsim.NetSimResult;
+import com.ericsson.cifwk.taf.handlers.netsim.NetSimSession;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs NetSim commands on a NetSim host through the TAF NetSim handler
+ */
+public class TafNetSimBackend implements NetSimBackend {
+    private final Host host;
+    private NetSimSession session;
+
+    /**
+     * @param host NetSim host, with the user and password already set
+     */
+    public TafNetSimBackend(final Host host) {
+        this.host = host;
+    }
+
+    @Override
+    public synchronized String exec(final List<NetSimStep> steps) throws OperatorException {
+        if (session == null) {
+            session = NetSimCommandHandler.getSession(host);
+        }
+        final List<NetSimCommand> commands = new ArrayList<>(steps.size());
+        for (NetSimStep step : steps) {
+            commands.add(step.getCommand());
+        }
+        final NetSimResult result = session.exec(commands);
+        if (result == null) {
+            throw new OperatorException("No result from NetSim " + host.getHostname() + " for " + steps);
+        }
+        return result.getRawOutput();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (session != null) {
+            session.close();
+            session = null;
+        }
+    }
+}
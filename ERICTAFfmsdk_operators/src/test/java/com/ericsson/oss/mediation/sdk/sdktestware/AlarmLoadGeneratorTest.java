@@ -0,0 +1,25 @@
+package com.ericsson.oss.mediation.sdk.sdktestware;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class AlarmLoadGeneratorTest {
+
+    @Test
+    public void negativeLatencyIsCountedNotRanked() {
+        final AlarmLoadGenerator.AlarmLoadReport report = new AlarmLoadGenerator.AlarmLoadReport("run");
+        report.sent(1000);
+        report.sent(1100);
+        report.sent(1200);
+
+        report.received(200, 1200);
+        report.received(-150, 950);
+        report.received(400, 1600);
+
+        assertEquals(3, report.getReceived());
+        assertEquals(1, report.getNegativeLatencies());
+        assertEquals(2, report.getLatency().count());
+        assertEquals(200, report.getLatency().min());
+    }
+}
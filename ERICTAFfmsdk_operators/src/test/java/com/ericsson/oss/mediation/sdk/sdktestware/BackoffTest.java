@@ -0,0 +1,45 @@
+package com.ericsson.oss.mediation.sdk.sdktestware;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BackoffTest {
+
+    @Test
+    public void delayGrowsUpToMaximum() {
+        final Backoff backoff = new Backoff(100, 1000, 2.0, 0);
+        final long[] expected = {100, 200, 400, 800, 1000, 1000};
+        for (long delay : expected) {
+            assertEquals(delay, backoff.nextDelayMillis());
+        }
+    }
+
+    @Test
+    public void jitterStaysWithinFraction() {
+        final Backoff backoff = new Backoff(1000, 1000, 1.5, 0.2);
+        for (int i = 0; i < 1000; i++) {
+            final long delay = backoff.nextDelayMillis();
+            assertTrue(String.valueOf(delay), delay >= 800 && delay <= 1200);
+        }
+    }
+
+    @Test
+    public void copyStartsFromInitialDelay() {
+        final Backoff backoff = new Backoff(100, 1000, 2.0, 0);
+        backoff.nextDelayMillis();
+        backoff.nextDelayMillis();
+        assertEquals(100, backoff.copy().nextDelayMillis());
+        assertEquals(400, backoff.nextDelayMillis());
+    }
+
+    @Test
+    public void settingsAreClamped() {
+        final Backoff backoff = new Backoff(0, 0, 0.5, 5);
+        for (int i = 0; i < 100; i++) {
+            final long delay = backoff.nextDelayMillis();
+            assertTrue(String.valueOf(delay), delay >= 1 && delay <= 2);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.ericsson.oss.mediation.sdk.sdktestware;
+
+import com.ericsson.cifwk.taf.tools.http.constants.HttpStatus;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class EnmClientPoolTest {
+    private EnmStandIn enm;
+    private List<EnmSession> sessions;
+    private EnmClientPool pool;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() throws OperatorException {
+        enm = EnmStandIn.start();
+        sessions = Arrays.asList(enm.newSession("taf_user_1", 1), enm.newSession("taf_user_2", 1));
+        pool = new EnmClientPool(sessions, 1);
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        pool.close();
+        enm.close();
+    }
+
+    @Test
+    public void requestsTakeTurnsAcrossUsers() throws OperatorException {
+        pool.connect();
+        for (int i = 0; i < 4; i++) {
+            assertEquals(HttpStatus.OK, pool.execute(httpTool -> httpTool.request().get("/pm-service/rest/subscription/findByType")).getResponseCode());
+        }
+
+        final List<EnmClientPool.UserStats> stats = pool.getStats();
+        assertEquals("taf_user_1", stats.get(0).getUserName());
+        assertEquals("taf_user_2", stats.get(1).getUserName());
+        assertEquals(2, stats.get(0).getRequests());
+        assertEquals(2, stats.get(1).getRequests());
+        assertEquals(2, pool.getConcurrency());
+    }
+
+    @Test
+    public void busyUserIsSkipped() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final Future<EnmSession> busy = hold(release);
+
+        // user 2's turn, then user 1's turn again, but it has no room so user 2 takes it
+        assertSame(sessions.get(1), pool.withUser(session -> session));
+        assertSame(sessions.get(1), pool.withUser(session -> session));
+
+        release.countDown();
+        assertSame(sessions.get(0), busy.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void requestWaitsForItsUserWhenAllAreBusy() throws Exception {
+        final CountDownLatch releaseFirst = new CountDownLatch(1);
+        final CountDownLatch releaseSecond = new CountDownLatch(1);
+        final Future<EnmSession> first = hold(releaseFirst);
+        final Future<EnmSession> second = hold(releaseSecond);
+
+        // its turn is user 1, so it waits for user 1 even though user 2 may be freed first
+        final Future<EnmSession> waiting = executor.submit(() -> pool.withUser(session -> session));
+        Thread.sleep(200);
+        assertFalse(waiting.isDone());
+
+        releaseFirst.countDown();
+        assertSame(sessions.get(0), first.get(5, TimeUnit.SECONDS));
+        assertSame(sessions.get(0), waiting.get(5, TimeUnit.SECONDS));
+        releaseSecond.countDown();
+        assertSame(sessions.get(1), second.get(5, TimeUnit.SECONDS));
+        assertEquals(2, pool.getStats().get(0).getRequests());
+        assertEquals(1, pool.getStats().get(1).getRequests());
+    }
+
+    @Test
+    public void failuresAndBusyTimeAreCountedPerUser() throws OperatorException {
+        try {
+            pool.withUser(session -> {
+                throw new OperatorException("Command failed");
+            });
+            fail("The work failed");
+        } catch (OperatorException e) {
+            assertEquals("Command failed", e.getMessage());
+        }
+        pool.withUser(session -> {
+            sleep(50);
+            return null;
+        });
+        // the failed request gave its user back
+        pool.withUser(session -> null);
+
+        final List<EnmClientPool.UserStats> stats = pool.getStats();
+        assertEquals(2, stats.get(0).getRequests());
+        assertEquals(1, stats.get(0).getFailures());
+        assertEquals(1, stats.get(1).getRequests());
+        assertEquals(0, stats.get(1).getFailures());
+        assertTrue(stats.get(1).toString(), stats.get(1).getBusyMillis() >= 50);
+        assertTrue(stats.get(0).toString(), stats.get(0).getThroughput() > 0);
+    }
+
+    /**
+     * Start work that keeps its user busy until released, returns once it has a user
+     */
+    private Future<EnmSession> hold(final CountDownLatch release) throws InterruptedException {
+        final CountDownLatch started = new CountDownLatch(1);
+        final Future<EnmSession> held = executor.submit(() -> pool.withUser(session -> {
+            started.countDown();
+            await(release);
+            return session;
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        return held;
+    }
+
+    private static void await(final CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(final long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.ericsson.oss.mediation.sdk.sdktestware;
+
+import org.junit.Test;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class EnmClockTest {
+    private static final long BASE = 1_700_000_000_000L;
+
+    private final EnmClock clock = new EnmClock();
+
+    @Test
+    public void noOffsetUntilSampled() {
+        clock.sample(null, BASE, BASE + 10);
+        clock.sample("not a date", BASE, BASE + 10);
+
+        assertEquals(0, clock.getOffsetMillis());
+        assertEquals(BASE, clock.toLocal(BASE));
+    }
+
+    @Test
+    public void synchronizedClocksAreNotCorrected() {
+        sample(BASE + 300, 0);
+        sample(BASE + 900, 0);
+
+        assertEquals(0, clock.getOffsetMillis());
+    }
+
+    @Test
+    public void offsetNarrowsWithEachResponse() {
+        sample(BASE + 300, 5000);
+        final long first = clock.getOffsetMillis();
+        sample(BASE + 900, 5000);
+        sample(BASE + 1050, 5000);
+
+        assertTrue(clock.toString(), first >= 4000 && first <= 5000);
+        assertTrue(clock.toString(), clock.getOffsetMillis() > first && clock.getOffsetMillis() <= 5000);
+        assertTrue(clock.toString(), clock.getOffsetMillis() >= 4900);
+    }
+
+    @Test
+    public void enmBehindIsCorrected() {
+        sample(BASE + 300, -3000);
+        sample(BASE + 950, -3000);
+
+        assertTrue(clock.toString(), clock.getOffsetMillis() <= -2900 && clock.getOffsetMillis() >= -3000);
+    }
+
+    @Test
+    public void steppedClockStartsAgain() {
+        sample(BASE + 300, 5000);
+        sample(BASE + 900, 5000);
+
+        sample(BASE + 2300, 0);
+
+        assertEquals(0, clock.getOffsetMillis());
+    }
+
+    /**
+     * A response received 50mSec after sending at {@code localMillis}, from an ENM clock {@code offsetMillis} ahead
+     */
+    private void sample(final long localMillis, final long offsetMillis) {
+        final String date = DateTimeFormatter.RFC_1123_DATE_TIME.format(
+                Instant.ofEpochMilli(localMillis + 25 + offsetMillis).atZone(ZoneOffset.UTC));
+        clock.sample(date, localMillis, localMillis + 50);
+    }
+}
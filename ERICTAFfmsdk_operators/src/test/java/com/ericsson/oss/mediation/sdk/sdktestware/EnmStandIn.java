@@ -0,0 +1,789 @@
+package com.ericsson.oss.mediation.sdk.sdktestware;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * In-process stand-in for the ENM REST endpoints used by {@link SdkEnmCliOperator}.
+ * <p>
+ * It serves the login/logout, script-engine command (POST, HEAD status, output), PM subscription,
+ * persistentObject, file and bulk CM import job APIs on a local port, keeping just enough state (NetworkElements, alarms,
+ * subscriptions, PM files) for the operator flows to work end to end. Responses can be scripted per command,
+ * and latency, slow commands, expired sessions and failed requests can be injected, so the operator logic and its
+ * polling/pipelining behaviour can be exercised and timed locally without a cENM.
+ * <pre>
+ * try (EnmStandIn enm = EnmStandIn.start()) {
+ *     enm.latency(20, 50).commandDuration(300);
+ *     final SdkEnmCliOperator operator = new SdkEnmCliOperator(enm.newSession(4));
+ *     ...
+ * }
+ * </pre>
+ */
+public class EnmStandIn implements AutoCloseable {
+    private final static Logger LOGGER = LoggerFactory.getLogger(EnmStandIn.class);
+
+    public static final String USER = "Administrator";
+    public static final String PASSWORD = "TestPassw0rd";
+
+    private static final String SESSION_COOKIE = "iPlanetDirectoryPro";
+    private static final String REQUEST_ID_KEY = "request_id";
+    private static final String COMMAND_URI = "/script-engine/services/command";
+    private static final String SUBSCRIPTION_URI = "/pm-service/rest/subscription";
+    private static final String PO_URI = "/persistentObject/fdn/NetworkElement=";
+    private static final String FILES_URI = "/file/v1/files";
+    private static final String IMPORT_URI = BulkCmImporter.JOBS_URI;
+    private static final Pattern IMPORT_NE = Pattern.compile(
+            "<es:networkElementId>([^<]+)</es:networkElementId><es:neType>([^<]+)</es:neType>");
+    private static final Pattern IMPORT_JOB_PATH = Pattern.compile("/(\\d+)(/files|/invocations)?");
+    private static final Pattern NE_CREATE = Pattern.compile("cmedit create NetworkElement=([^\\s,]+)\\s.*neType=([^\\s,]+)");
+    private static final Pattern NE_DELETE = Pattern.compile("cmedit delete NetworkElement=([^\\s,;]+)");
+    private static final Pattern ALARM_GET = Pattern.compile("alarm get (\\S+) -sp \"(.*)\"");
+
+    private final ObjectMapper mapper = ScriptEngineResponseReader.getMapper();
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    private final Set<String> sessions = ConcurrentHashMap.newKeySet();
+    private final Map<String, StandInCommand> commands = new ConcurrentHashMap<>();
+    private final Map<String, CommandResponder> responders = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, Object>> networkElements = new ConcurrentHashMap<>();
+    private final List<StandInAlarm> alarms = new CopyOnWriteArrayList<>();
+    private final Map<String, Map<String, Object>> subscriptions = new ConcurrentHashMap<>();
+    private final Map<String, String> subscriptionRequests = new ConcurrentHashMap<>();
+    private final Map<String, List<Map<String, Object>>> pmFiles = new ConcurrentHashMap<>();
+    private final Map<String, StandInImportJob> importJobs = new ConcurrentHashMap<>();
+    private final List<Fault> faults = new CopyOnWriteArrayList<>();
+    private final Map<String, AtomicInteger> requestCounts = new ConcurrentHashMap<>();
+    private final AtomicLong poIds = new AtomicLong(1000);
+
+    private volatile long minLatencyMillis;
+    private volatile long maxLatencyMillis;
+    private volatile long commandDurationMillis;
+    private volatile double importRate;
+    private volatile double failureRate;
+    private volatile int failureStatus = 503;
+
+    private EnmStandIn(final HttpServer server) {
+        this.server = server;
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            final Thread thread = new Thread(runnable, "enm-stand-in");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+    }
+
+    /**
+     * Start a stand-in on a free local port
+     *
+     * @return running stand-in
+     * @throws OperatorException The server could not be started
+     */
+    public static EnmStandIn start() throws OperatorException {
+        try {
+            final EnmStandIn standIn = new EnmStandIn(HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0));
+            standIn.server.start();
+            LOGGER.info("ENM stand-in listening on port {}", standIn.getPort());
+            return standIn;
+        } catch (IOException e) {
+            throw new OperatorException("Could not start ENM stand-in", e);
+        }
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Create a session logged in to this stand-in
+     *
+     * @param poolSize Number of pooled connections
+     * @return session
+     */
+    public EnmSession newSession(final int poolSize) {
+        return newSession(USER, poolSize);
+    }
+
+    /**
+     * Create a session logged in to this stand-in as a given user, any user name is accepted with the stand-in password
+     *
+     * @param userName User to log in as
+     * @param poolSize Number of pooled connections
+     * @return session
+     */
+    public EnmSession newSession(final String userName, final int poolSize) {
+        return new EnmSession("127.0.0.1", getPort(), false, userName, PASSWORD, poolSize);
+    }
+
+    /**
+     * Delay every response by a random time in a range
+     *
+     * @param minMillis Shortest delay
+     * @param maxMillis Longest delay
+     * @return this stand-in
+     */
+    public EnmStandIn latency(final long minMillis, final long maxMillis) {
+        this.minLatencyMillis = minMillis;
+        this.maxLatencyMillis = Math.max(minMillis, maxMillis);
+        return this;
+    }
+
+    /**
+     * @param millis How long each script-engine command reports RUNNING before it is COMPLETE
+     * @return this stand-in
+     */
+    public EnmStandIn commandDuration(final long millis) {
+        this.commandDurationMillis = millis;
+        return this;
+    }
+
+    /**
+     * @param operationsPerSecond How fast bulk CM import jobs execute, 0 to execute them straight away
+     * @return this stand-in
+     */
+    public EnmStandIn importRate(final double operationsPerSecond) {
+        this.importRate = operationsPerSecond;
+        return this;
+    }
+
+    /**
+     * Fail a fraction of all requests (except login) at random
+     *
+     * @param rate   0..1
+     * @param status HTTP status to fail with
+     * @return this stand-in
+     */
+    public EnmStandIn failureRate(final double rate, final int status) {
+        this.failureRate = rate;
+        this.failureStatus = status;
+        return this;
+    }
+
+    /**
+     * Fail the next requests to a path
+     *
+     * @param pathPrefix Path the request must start with, e.g. {@code /script-engine/services/command}
+     * @param status     HTTP status to fail with
+     * @param times      Number of requests to fail
+     * @return this stand-in
+     */
+    public EnmStandIn failNext(final String pathPrefix, final int status, final int times) {
+        faults.add(new Fault(pathPrefix, status, times));
+        return this;
+    }
+
+    /**
+     * Drop all logged in sessions, the next request on each connection gets 401
+     *
+     * @return this stand-in
+     */
+    public EnmStandIn expireSessions() {
+        sessions.clear();
+        return this;
+    }
+
+    /**
+     * Answer script-engine commands starting with a prefix, instead of the built in behaviour
+     *
+     * @param commandPrefix Command prefix, e.g. {@code cmedit describe}
+     * @param responder     Gives the output lines of the command
+     * @return this stand-in
+     */
+    public EnmStandIn onCommand(final String commandPrefix, final CommandResponder responder) {
+        responders.put(commandPrefix, responder);
+        return this;
+    }
+
+    /**
+     * Raise an alarm, as if a trap was received from the node
+     *
+     * @param neName          Node name
+     * @param specificProblem Alarm specific problem
+     * @return this stand-in
+     */
+    public EnmStandIn raiseAlarm(final String neName, final String specificProblem) {
+        alarms.add(new StandInAlarm(neName, specificProblem, System.currentTimeMillis()));
+        return this;
+    }
+
+    /**
+     * Add a PM file to the file API listing
+     *
+     * @param neName   Node name
+     * @param ropStart ROP start time
+     * @return this stand-in
+     */
+    public EnmStandIn addPmFile(final String neName, final long ropStart) {
+        final Map<String, Object> file = new LinkedHashMap<>();
+        file.put("nodeName", neName);
+        file.put("dataType", "PM_STATISTICAL");
+        file.put("startRopTimeInOss", ropStart);
+        file.put("fileCreationTimeInOss", System.currentTimeMillis());
+        file.put("fileLocation", "/ericsson/pmic1/XML/" + neName + "/A" + ropStart + "_" + neName + "_statsfile.xml");
+        pmFiles.computeIfAbsent(neName, name -> new CopyOnWriteArrayList<>()).add(file);
+        return this;
+    }
+
+    /**
+     * @return NetworkElements created through cmedit or bulk CM import, by name
+     */
+    public Set<String> getNetworkElements() {
+        return Collections.unmodifiableSet(networkElements.keySet());
+    }
+
+    /**
+     * @return Subscriptions created and not deleted, by id
+     */
+    public Map<String, Map<String, Object>> getSubscriptions() {
+        return Collections.unmodifiableMap(subscriptions);
+    }
+
+    /**
+     * Get the number of requests received for an endpoint
+     *
+     * @param key Method and path without query, e.g. {@code HEAD /script-engine/services/command/status}
+     * @return count
+     */
+    public int getRequestCount(final String key) {
+        final AtomicInteger count = requestCounts.get(key);
+        return count == null ? 0 : count.get();
+    }
+
+    /**
+     * @return Request counts by method and path
+     */
+    public Map<String, Integer> getRequestCounts() {
+        final Map<String, Integer> counts = new LinkedHashMap<>();
+        for (Map.Entry<String, AtomicInteger> entry : requestCounts.entrySet()) {
+            counts.put(entry.getKey(), entry.getValue().get());
+        }
+        return counts;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(final HttpExchange exchange) throws IOException {
+        try {
+            final String method = exchange.getRequestMethod();
+            final String path = exchange.getRequestURI().getPath();
+            requestCounts.computeIfAbsent(method + " " + path, key -> new AtomicInteger()).incrementAndGet();
+            delay();
+
+            if (path.equals("/login")) {
+                login(exchange);
+                return;
+            }
+            final Integer fault = fault(path);
+            if (fault != null) {
+                respond(exchange, fault, "Injected failure");
+                return;
+            }
+            if (path.equals("/logout")) {
+                sessions.remove(sessionCookie(exchange));
+                respond(exchange, 200, "");
+                return;
+            }
+            if (!sessions.contains(sessionCookie(exchange))) {
+                respond(exchange, 401, "Session expired");
+                return;
+            }
+
+            if (path.equals(COMMAND_URI) && "POST".equals(method)) {
+                submitCommand(exchange);
+            } else if (path.equals(COMMAND_URI + "/status")) {
+                commandStatus(exchange);
+            } else if (path.startsWith(COMMAND_URI + "/output/")) {
+                commandOutput(exchange);
+            } else if (path.startsWith(SUBSCRIPTION_URI)) {
+                subscription(exchange, method, path.substring(SUBSCRIPTION_URI.length()));
+            } else if (path.startsWith(PO_URI)) {
+                persistentObject(exchange, path.substring(PO_URI.length()));
+            } else if (path.equals(FILES_URI)) {
+                files(exchange);
+            } else if (path.startsWith(IMPORT_URI)) {
+                importJob(exchange, method, path.substring(IMPORT_URI.length()));
+            } else {
+                respond(exchange, 404, "No stand-in for " + method + " " + path);
+            }
+        } catch (RuntimeException e) {
+            LOGGER.error("ENM stand-in failed on " + exchange.getRequestURI(), e);
+            respond(exchange, 500, String.valueOf(e.getMessage()));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void delay() {
+        if (maxLatencyMillis > 0) {
+            try {
+                Thread.sleep(minLatencyMillis + ThreadLocalRandom.current().nextLong(maxLatencyMillis - minLatencyMillis + 1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private Integer fault(final String path) {
+        for (Fault fault : faults) {
+            if (path.startsWith(fault.pathPrefix) && fault.remaining.getAndDecrement() > 0) {
+                return fault.status;
+            }
+        }
+        if (failureRate > 0 && ThreadLocalRandom.current().nextDouble() < failureRate) {
+            return failureStatus;
+        }
+        return null;
+    }
+
+    private void login(final HttpExchange exchange) throws IOException {
+        final Map<String, String> form = form(exchange);
+        if (form.get("IDToken1") != null && PASSWORD.equals(form.get("IDToken2"))) {
+            final String token = UUID.randomUUID().toString();
+            sessions.add(token);
+            exchange.getResponseHeaders().add("Set-Cookie", SESSION_COOKIE + "=" + token + "; Path=/");
+            respond(exchange, 200, "");
+        } else {
+            respond(exchange, 401, "Authentication failed");
+        }
+    }
+
+    private String sessionCookie(final HttpExchange exchange) {
+        final List<String> cookies = exchange.getRequestHeaders().get("Cookie");
+        if (cookies != null) {
+            for (String header : cookies) {
+                for (String cookie : header.split(";")) {
+                    final String[] pair = cookie.trim().split("=", 2);
+                    if (pair.length == 2 && SESSION_COOKIE.equals(pair[0])) {
+                        return pair[1];
+                    }
+                }
+            }
+        }
+        return "";
+    }
+
+    private void submitCommand(final HttpExchange exchange) throws IOException {
+        final String command = form(exchange).get("command");
+        if (command == null) {
+            respond(exchange, 400, "No command");
+            return;
+        }
+        final String requestId = UUID.randomUUID().toString();
+        commands.put(requestId, new StandInCommand(command, System.currentTimeMillis() + commandDurationMillis));
+        exchange.getResponseHeaders().add(REQUEST_ID_KEY, requestId);
+        respond(exchange, 201, "");
+    }
+
+    private void commandStatus(final HttpExchange exchange) throws IOException {
+        final StandInCommand command = commands.get(String.valueOf(exchange.getRequestHeaders().getFirst(REQUEST_ID_KEY)));
+        if (command == null) {
+            respond(exchange, 404, "");
+            return;
+        }
+        if (System.currentTimeMillis() < command.completeAt) {
+            exchange.getResponseHeaders().add("CommandStatus", "RUNNING");
+        } else {
+            exchange.getResponseHeaders().add("CommandStatus", "COMPLETE");
+            exchange.getResponseHeaders().add("ResponseSize", "1");
+        }
+        exchange.sendResponseHeaders(200, -1);
+    }
+
+    private void commandOutput(final HttpExchange exchange) throws IOException {
+        final StandInCommand command = commands.remove(String.valueOf(exchange.getRequestHeaders().getFirst(REQUEST_ID_KEY)));
+        if (command == null) {
+            respond(exchange, 404, "");
+            return;
+        }
+        final List<Map<String, String>> elements = new ArrayList<>();
+        for (String line : run(command.command)) {
+            final Map<String, String> element = new LinkedHashMap<>();
+            element.put("dtoType", "line");
+            element.put("value", line);
+            elements.add(element);
+        }
+        final Map<String, Object> responseDto = new LinkedHashMap<>();
+        responseDto.put("dtoType", "ResponseDto");
+        responseDto.put("elements", elements);
+        final Map<String, Object> body = new LinkedHashMap<>();
+        body.put("nonCachableDtos", Collections.emptyList());
+        body.put("responseDto", responseDto);
+        respondJson(exchange, 200, body);
+    }
+
+    /**
+     * Built in command behaviour, just enough for the operator flows
+     */
+    private List<String> run(final String command) {
+        for (Map.Entry<String, CommandResponder> responder : responders.entrySet()) {
+            if (command.startsWith(responder.getKey())) {
+                return responder.getValue().lines(command);
+            }
+        }
+        Matcher matcher = NE_CREATE.matcher(command);
+        if (matcher.find()) {
+            final String neName = matcher.group(1);
+            final Map<String, Object> po = new LinkedHashMap<>();
+            po.put("poId", poIds.incrementAndGet());
+            po.put("fdn", "NetworkElement=" + neName);
+            po.put("neType", matcher.group(2));
+            po.put("neVersion", "1.0.0");
+            networkElements.put(neName, po);
+            return Collections.singletonList("1 instance(s) updated");
+        }
+        matcher = NE_DELETE.matcher(command);
+        if (matcher.find()) {
+            final boolean deleted = networkElements.remove(matcher.group(1)) != null;
+            return Collections.singletonList((deleted ? 1 : 0) + " instance(s) deleted");
+        }
+        matcher = ALARM_GET.matcher(command);
+        if (matcher.find()) {
+            return alarmGet(matcher.group(1), matcher.group(2));
+        }
+        return Collections.singletonList("1 instance(s) updated");
+    }
+
+    /**
+     * List matching alarms in the "attribute : value" layout of 'alarm get', a trailing '*' matches any ending
+     */
+    private List<String> alarmGet(final String nodes, final String specificProblem) {
+        final List<String> lines = new ArrayList<>();
+        int count = 0;
+        for (StandInAlarm alarm : alarms) {
+            if (matches(nodes, alarm.neName) && matches(specificProblem, alarm.specificProblem)) {
+                lines.add("NodeName : " + alarm.neName);
+                lines.add("SpecificProblem : " + alarm.specificProblem);
+                lines.add("InsertTime : " + Instant.ofEpochMilli(alarm.insertTime).atOffset(ZoneOffset.UTC));
+                count++;
+            }
+        }
+        lines.add(AlarmWaiter.TOTAL_ALARMS_PREFIX + count);
+        return lines;
+    }
+
+    private static boolean matches(final String pattern, final String value) {
+        return pattern.endsWith("*") ? value.startsWith(pattern.substring(0, pattern.length() - 1)) : pattern.equals(value);
+    }
+
+    private void subscription(final HttpExchange exchange, final String method, final String path) throws IOException {
+        if (path.isEmpty() && "POST".equals(method)) {
+            final Map<String, Object> subscription = mapper.readValue(exchange.getRequestBody(), Map.class);
+            final String id = String.valueOf(poIds.incrementAndGet());
+            subscription.put("id", id);
+            subscription.put("persistenceTime", String.valueOf(System.currentTimeMillis()));
+            subscriptions.put(id, subscription);
+            // like ENM, the create is answered with the id of the request and its status, not of the subscription
+            final String trackingId = UUID.randomUUID().toString();
+            subscriptionRequests.put(trackingId, id);
+            final Map<String, Object> body = new LinkedHashMap<>();
+            body.put("id", trackingId);
+            body.put("url", SUBSCRIPTION_URI + "/status/" + trackingId);
+            respondJson(exchange, 202, body);
+        } else if (path.startsWith("/status/") && "GET".equals(method)) {
+            final String id = subscriptionRequests.get(path.substring("/status/".length()));
+            if (id == null) {
+                respond(exchange, 404, "No subscription request " + path);
+                return;
+            }
+            final Map<String, Object> body = new LinkedHashMap<>();
+            body.put("id", id);
+            body.put("url", SUBSCRIPTION_URI + "/" + id);
+            respondJson(exchange, 200, body);
+        } else if (path.equals("/findByType")) {
+            final String type = query(exchange).get("Type");
+            final List<Map<String, Object>> found = new ArrayList<>();
+            for (Map<String, Object> subscription : subscriptions.values()) {
+                if (type == null || type.equals(subscription.get("type"))) {
+                    found.add(subscription);
+                }
+            }
+            respondJson(exchange, 200, found);
+        } else if (path.endsWith("/activate") && "POST".equals(method)) {
+            final String name = query(exchange).get("Name");
+            final Map<String, Object> subscription = byName(name);
+            if (subscription == null) {
+                respond(exchange, 404, "No subscription " + name);
+                return;
+            }
+            subscription.put("administrationState", "ACTIVE");
+            respondJson(exchange, 200, subscription);
+        } else if (path.endsWith("/deactivate") && "POST".equals(method)) {
+            final String id = path.substring(1, path.length() - "/deactivate".length());
+            final Map<String, Object> subscription = subscriptions.get(id);
+            if (subscription == null) {
+                respond(exchange, 404, "No subscription " + id);
+                return;
+            }
+            subscription.put("administrationState", "INACTIVE");
+            respondJson(exchange, 200, subscription);
+        } else if ("DELETE".equals(method)) {
+            respond(exchange, subscriptions.remove(path.substring(1)) == null ? 404 : 200, "");
+        } else if ("GET".equals(method) && subscriptions.containsKey(path.substring(1))) {
+            respondJson(exchange, 200, subscriptions.get(path.substring(1)));
+        } else {
+            respond(exchange, 404, "No stand-in for " + method + " " + SUBSCRIPTION_URI + path);
+        }
+    }
+
+    private Map<String, Object> byName(final String name) {
+        for (Map<String, Object> subscription : subscriptions.values()) {
+            if (String.valueOf(subscription.get("name")).equals(name)) {
+                return subscription;
+            }
+        }
+        return null;
+    }
+
+    private void persistentObject(final HttpExchange exchange, final String neName) throws IOException {
+        final Map<String, Object> po = networkElements.get(neName);
+        if (po == null) {
+            respond(exchange, 404, "NetworkElement=" + neName + " not found");
+        } else {
+            respondJson(exchange, 200, po);
+        }
+    }
+
+    private void files(final HttpExchange exchange) throws IOException {
+        String nodeName = null;
+        final String filter = query(exchange).get("filter");
+        if (filter != null) {
+            for (String term : filter.split(";")) {
+                if (term.startsWith("nodeName==")) {
+                    nodeName = term.substring("nodeName==".length());
+                }
+            }
+        }
+        final List<Map<String, Object>> files = new ArrayList<>();
+        for (Map.Entry<String, List<Map<String, Object>>> entry : pmFiles.entrySet()) {
+            if (nodeName == null || nodeName.equals(entry.getKey())) {
+                files.addAll(entry.getValue());
+            }
+        }
+        respondJson(exchange, 200, Collections.singletonMap("files", files));
+    }
+
+    private void importJob(final HttpExchange exchange, final String method, final String path) throws IOException {
+        if (path.isEmpty() && "POST".equals(method)) {
+            final Map<String, Object> request = mapper.readValue(exchange.getRequestBody(), Map.class);
+            final String id = String.valueOf(poIds.incrementAndGet());
+            importJobs.put(id, new StandInImportJob(String.valueOf(request.get("name"))));
+            respondJson(exchange, 201, importJobBody(id, importJobs.get(id)));
+            return;
+        }
+        final Matcher matcher = IMPORT_JOB_PATH.matcher(path);
+        final StandInImportJob job = matcher.matches() ? importJobs.get(matcher.group(1)) : null;
+        if (job == null) {
+            respond(exchange, 404, "No import job for " + path);
+        } else if ("/files".equals(matcher.group(2)) && "POST".equals(method)) {
+            final String file = form(exchange).get("file");
+            if (file == null) {
+                respond(exchange, 400, "No file");
+                return;
+            }
+            final Matcher ne = IMPORT_NE.matcher(file);
+            while (ne.find()) {
+                job.nes.put(ne.group(1), ne.group(2));
+            }
+            job.operations = file.split("modifier=\"create\"", -1).length - 1;
+            respond(exchange, 201, "");
+        } else if ("/invocations".equals(matcher.group(2)) && "POST".equals(method)) {
+            job.startedAt = System.currentTimeMillis();
+            respond(exchange, 201, "");
+        } else if (matcher.group(2) == null && "GET".equals(method)) {
+            respondJson(exchange, 200, importJobBody(matcher.group(1), job));
+        } else {
+            respond(exchange, 404, "No stand-in for " + method + " " + IMPORT_URI + path);
+        }
+    }
+
+    private Map<String, Object> importJobBody(final String id, final StandInImportJob job) {
+        int executed = 0;
+        String status = job.operations > 0 ? "PARSED" : "NEW";
+        if (job.startedAt > 0) {
+            final double elapsedSeconds = (System.currentTimeMillis() - job.startedAt) / 1000.0;
+            executed = importRate <= 0 ? job.operations : (int) Math.min(job.operations, elapsedSeconds * importRate);
+            status = executed < job.operations ? "EXECUTING" : "EXECUTED";
+            if (executed == job.operations && job.applied.compareAndSet(false, true)) {
+                for (Map.Entry<String, String> ne : job.nes.entrySet()) {
+                    final Map<String, Object> po = new LinkedHashMap<>();
+                    po.put("poId", poIds.incrementAndGet());
+                    po.put("fdn", "NetworkElement=" + ne.getKey());
+                    po.put("neType", ne.getValue());
+                    po.put("neVersion", "1.0.0");
+                    networkElements.put(ne.getKey(), po);
+                }
+            }
+        }
+        final Map<String, Object> total = new LinkedHashMap<>();
+        total.put("type", "total");
+        total.put("parsed", job.operations);
+        total.put("valid", job.operations);
+        total.put("invalid", 0);
+        total.put("executed", executed);
+        total.put("executionErrors", 0);
+        final Map<String, Object> body = new LinkedHashMap<>();
+        body.put("id", Long.parseLong(id));
+        body.put("name", job.name);
+        body.put("status", status);
+        body.put("summary", Collections.singletonMap("total", total));
+        return body;
+    }
+
+    private Map<String, String> query(final HttpExchange exchange) throws IOException {
+        return decode(exchange.getRequestURI().getRawQuery());
+    }
+
+    /**
+     * Read a urlencoded or multipart form body
+     */
+    private Map<String, String> form(final HttpExchange exchange) throws IOException {
+        final String contentType = String.valueOf(exchange.getRequestHeaders().getFirst("Content-Type"));
+        final String body = read(exchange.getRequestBody());
+        if (!contentType.startsWith("multipart/")) {
+            return decode(body);
+        }
+        final Map<String, String> fields = new LinkedHashMap<>();
+        final int boundaryAt = contentType.indexOf("boundary=");
+        if (boundaryAt < 0) {
+            return fields;
+        }
+        final String boundary = "--" + contentType.substring(boundaryAt + "boundary=".length()).replace("\"", "");
+        for (String part : body.split(Pattern.quote(boundary))) {
+            final int headerEnd = part.indexOf("\r\n\r\n");
+            final Matcher name = Pattern.compile("name=\"([^\"]+)\"").matcher(part);
+            if (headerEnd > 0 && name.find() && name.start() < headerEnd) {
+                String value = part.substring(headerEnd + 4);
+                if (value.endsWith("\r\n")) {
+                    value = value.substring(0, value.length() - 2);
+                }
+                fields.put(name.group(1), value);
+            }
+        }
+        return fields;
+    }
+
+    private static Map<String, String> decode(final String encoded) throws IOException {
+        final Map<String, String> values = new LinkedHashMap<>();
+        if (encoded != null && !encoded.isEmpty()) {
+            for (String pair : encoded.split("&")) {
+                final String[] keyValue = pair.split("=", 2);
+                values.put(URLDecoder.decode(keyValue[0], "UTF-8"),
+                        keyValue.length > 1 ? URLDecoder.decode(keyValue[1], "UTF-8") : "");
+            }
+        }
+        return values;
+    }
+
+    private static String read(final InputStream in) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) >= 0) {
+            out.write(buffer, 0, read);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private void respondJson(final HttpExchange exchange, final int status, final Object body) throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        respond(exchange, status, mapper.writeValueAsString(body));
+    }
+
+    private static void respond(final HttpExchange exchange, final int status, final String body) throws IOException {
+        final byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        if (bytes.length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+    }
+
+    /**
+     * Gives the output lines of a scripted command
+     */
+    public interface CommandResponder {
+        List<String> lines(String command);
+    }
+
+    private static final class StandInAlarm {
+        private final String neName;
+        private final String specificProblem;
+        private final long insertTime;
+
+        private StandInAlarm(final String neName, final String specificProblem, final long insertTime) {
+            this.neName = neName;
+            this.specificProblem = specificProblem;
+            this.insertTime = insertTime;
+        }
+    }
+
+    private static final class StandInCommand {
+        private final String command;
+        private final long completeAt;
+
+        private StandInCommand(final String command, final long completeAt) {
+            this.command = command;
+            this.completeAt = completeAt;
+        }
+    }
+
+    private static final class StandInImportJob {
+        private final String name;
+        private final Map<String, String> nes = new LinkedHashMap<>();
+        private volatile int operations;
+        private volatile long startedAt;
+        private final AtomicBoolean applied = new AtomicBoolean();
+
+        private StandInImportJob(final String name) {
+            this.name = name;
+        }
+    }
+
+    private static final class Fault {
+        private final String pathPrefix;
+        private final int status;
+        private final AtomicInteger remaining;
+
+        private Fault(final String pathPrefix, final int status, final int times) {
+            this.pathPrefix = pathPrefix;
+            this.status = status;
+            this.remaining = new AtomicInteger(times);
+        }
+    }
+}
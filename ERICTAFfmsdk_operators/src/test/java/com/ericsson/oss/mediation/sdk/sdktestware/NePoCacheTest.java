@@ -0,0 +1,153 @@
+package com.ericsson.oss.mediation.sdk.sdktestware;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class NePoCacheTest {
+    private final Map<String, AtomicInteger> lookups = new ConcurrentHashMap<>();
+    private final AtomicLong poIds = new AtomicLong(1000);
+
+    private final NePoCache cache = new NePoCache(this::lookup);
+
+    @Test
+    public void detailsAreLookedUpOnce() throws OperatorException {
+        final Map<String, Object> first = cache.details("NE01");
+        final Map<String, Object> second = cache.details("NE01");
+
+        assertEquals(first, second);
+        assertEquals(1, lookups("NE01"));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void prefetchOnlyLooksUpMissingNes() throws OperatorException {
+        cache.details("NE02");
+
+        final Map<String, Map<String, Object>> details = cache.prefetch(Arrays.asList("NE01", "NE02", "NE03", "NE01"), 4);
+
+        assertEquals(Arrays.asList("NE01", "NE02", "NE03"), new ArrayList<>(details.keySet()));
+        assertEquals(1, lookups("NE01"));
+        assertEquals(1, lookups("NE02"));
+        assertEquals(1, lookups("NE03"));
+        // NE02 from the cache and the repeated NE01, after the first NE02 lookup missed
+        assertEquals(2, cache.getHits());
+        assertEquals(3, cache.getMisses());
+        assertEquals(3, cache.size());
+    }
+
+    @Test
+    public void invalidatedNeIsLookedUpAgain() throws OperatorException {
+        final Object poId = cache.details("NE01").get("poId");
+
+        cache.invalidate("NE01");
+
+        assertNotEquals(poId, cache.details("NE01").get("poId"));
+        assertEquals(2, lookups("NE01"));
+    }
+
+    @Test
+    public void lookupInFlightDuringInvalidationIsNotCached() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch invalidated = new CountDownLatch(1);
+        final NePoCache slowCache = new NePoCache(neName -> {
+            started.countDown();
+            await(invalidated);
+            return lookup(neName);
+        });
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final Future<Map<String, Object>> inFlight = executor.submit(() -> slowCache.details("NE01"));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            // the NE may have been deleted and re-created after the lookup read it
+            slowCache.invalidate("NE01");
+            invalidated.countDown();
+
+            assertEquals("NE01", inFlight.get(5, TimeUnit.SECONDS).get("name"));
+            assertEquals(0, slowCache.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void prefetchInFlightDuringInvalidateAllIsNotCached() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch invalidated = new CountDownLatch(1);
+        final NePoCache slowCache = new NePoCache(neName -> {
+            started.countDown();
+            await(invalidated);
+            return lookup(neName);
+        });
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final Future<Map<String, Map<String, Object>>> inFlight =
+                    executor.submit(() -> slowCache.prefetch(Collections.singletonList("NE01"), 1));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            slowCache.invalidateAll();
+            invalidated.countDown();
+
+            assertEquals(1, inFlight.get(5, TimeUnit.SECONDS).size());
+            assertEquals(0, slowCache.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void prefetchReportsFailedLookups() {
+        final NePoCache failingCache = new NePoCache(neName -> {
+            if (neName.startsWith("BAD")) {
+                throw new OperatorException("No NetworkElement " + neName);
+            }
+            return lookup(neName);
+        });
+
+        try {
+            failingCache.prefetch(Arrays.asList("NE01", "BAD01", "NE02"), 2);
+            fail("A failed lookup should fail the prefetch");
+        } catch (OperatorException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("1 of 3"));
+            assertTrue(e.getMessage(), e.getMessage().contains("BAD01"));
+        }
+        assertEquals(2, failingCache.size());
+    }
+
+    private Map<String, Object> lookup(final String neName) {
+        lookups.computeIfAbsent(neName, name -> new AtomicInteger()).incrementAndGet();
+        final Map<String, Object> details = new ConcurrentHashMap<>();
+        details.put("name", neName);
+        details.put("poId", poIds.incrementAndGet());
+        return details;
+    }
+
+    private int lookups(final String neName) {
+        final AtomicInteger count = lookups.get(neName);
+        return count == null ? 0 : count.get();
+    }
+
+    private static void await(final CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.ericsson.oss.mediation.sdk.sdktestware;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class NetSimCommandSessionTest {
+    private final List<List<String>> execs = new ArrayList<>();
+    private int backendsOpened;
+    private NetSimCommandSession session;
+
+    @Before
+    public void setUp() {
+        session = new NetSimCommandSession("netsim", () -> {
+            backendsOpened++;
+            return new RecordingBackend();
+        });
+    }
+
+    @Test
+    public void queueSettingItsContextIsSentAsIs() throws OperatorException {
+        session.open("SIM1").select("NE01").add(NetSimStep.start()).flush();
+        assertEquals(Arrays.asList(".open SIM1", ".select NE01", ".start"), lastExec());
+    }
+
+    @Test
+    public void contextIsResentForLaterExecs() throws OperatorException {
+        session.open("SIM1").select("NE01").flush();
+        session.exec(NetSimStep.stop());
+        assertEquals(Arrays.asList(".open SIM1", ".select NE01", ".stop"), lastExec());
+        assertEquals(1, backendsOpened);
+        assertEquals(2, session.getExecCount());
+        assertEquals(5, session.getCommandsSent());
+    }
+
+    @Test
+    public void queueRunsInContextOfItsFirstCommand() throws OperatorException {
+        session.open("SIM1").select("NE01").flush();
+        session.add(NetSimStep.start()).select("NE02").add(NetSimStep.stop()).flush();
+        assertEquals(Arrays.asList(".open SIM1", ".select NE01", ".start", ".select NE02", ".stop"), lastExec());
+
+        session.exec(NetSimStep.setSave());
+        assertEquals(Arrays.asList(".open SIM1", ".select NE02", ".set save"), lastExec());
+    }
+
+    @Test
+    public void queueStartingWithSelectOnlyNeedsTheSimulation() throws OperatorException {
+        session.open("SIM1").select("NE01").flush();
+        session.select("NE02").add(NetSimStep.start()).open("SIM2").select("NE03").flush();
+        assertEquals(Arrays.asList(".open SIM1", ".select NE02", ".start", ".open SIM2", ".select NE03"), lastExec());
+
+        session.exec(NetSimStep.stop());
+        assertEquals(Arrays.asList(".open SIM2", ".select NE03", ".stop"), lastExec());
+    }
+
+    @Test
+    public void closeForgetsContext() throws OperatorException {
+        session.open("SIM1").select("NE01").flush();
+        session.close();
+        session.exec(NetSimStep.showSimulations());
+        assertEquals(Arrays.asList(".show simulations"), lastExec());
+        assertEquals(2, backendsOpened);
+    }
+
+    private List<String> lastExec() {
+        return execs.get(execs.size() - 1);
+    }
+
+    private final class RecordingBackend implements NetSimBackend {
+        @Override
+        public String exec(final List<NetSimStep> steps) {
+            final List<String> texts = new ArrayList<>();
+            for (NetSimStep step : steps) {
+                texts.add(step.getText());
+            }
+            execs.add(texts);
+            return "OK";
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,529 @@
+package com.ericsson.oss.mediation.sdk.sdktestware;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * In-process stand-in for a NetSim host.
+ * <p>
+ * It keeps simulations and NEs in memory and answers the netsim_pipe commands used by the operators ('.show
+ * simulations', '.open', '.select', '.start', '.stop', '.set external', '.config ...', '.show simnes' and
+ * 'sendalarm') with output in the layout NetSim uses, after a configurable delay per exec and per command. Alarms
+ * are recorded and can also be sent as SNMP v2c traps, either to the address configured for the NE's external
+ * destination or to a fixed local port, so NetSim orchestration can be run and profiled without a NetSim VM.
+ * <pre>
+ * final NetSimStandIn netsim = new NetSimStandIn("netsim-local").
+ *         addSimulation("LTE-DG2-01", "LTE MSRBS-V2 19-Q3-V10", "LTE01dg2ERBS", 50, "10.0.0.1").
+ *         latency(50, 2);
+ * NetSimCommandSession.share(netsim.session());
+ * </pre>
+ */
+public class NetSimStandIn {
+    private final static Logger LOGGER = LoggerFactory.getLogger(NetSimStandIn.class);
+
+    private static final String[] SIMNES_COLUMNS = {"NE Name", "Type", "Server", "In Address", "Default dest."};
+    private static final int[] SIMNES_WIDTHS = {25, 25, 20, 19, 0};
+    private static final String SYS_UP_TIME_OID = "1.3.6.1.2.1.1.3.0";
+    private static final String SNMP_TRAP_OID = "1.3.6.1.6.3.1.1.4.1.0";
+    // placeholder alarm notification and varbind OIDs, only used by the local trap receiver
+    private static final String ALARM_TRAP_OID = "1.3.6.1.4.1.193.183.4.2.0.1";
+    private static final String MANAGED_OBJECT_OID = "1.3.6.1.4.1.193.183.4.1.3.5.1.2";
+    private static final String SPECIFIC_PROBLEM_OID = "1.3.6.1.4.1.193.183.4.1.3.5.1.5";
+
+    private final String hostname;
+    private final long startTime = System.currentTimeMillis();
+    private final Map<String, List<SimulatedNe>> simulations = new LinkedHashMap<>();
+    private final Map<String, Destination> destinations = new LinkedHashMap<>();
+    private final List<SentAlarm> sentAlarms = new CopyOnWriteArrayList<>();
+    private final AtomicInteger execs = new AtomicInteger();
+    private final AtomicInteger trapRequestIds = new AtomicInteger();
+
+    private volatile long execLatencyMillis;
+    private volatile long commandLatencyMillis;
+    private volatile boolean emitTraps;
+    private volatile Consumer<SentAlarm> alarmListener;
+    private volatile String trapAddress;
+    private volatile int trapPort;
+    private DatagramSocket trapSocket;
+
+    /**
+     * @param hostname Name the stand-in reports as its NetSim server
+     */
+    public NetSimStandIn(final String hostname) {
+        this.hostname = hostname;
+    }
+
+    /**
+     * Add a simulation of NEs with consecutive names and addresses
+     *
+     * @param simulation Simulation name
+     * @param neType     NE type, e.g. LTE MSRBS-V2 19-Q3-V10
+     * @param namePrefix NE name prefix, the NEs are numbered from 00001
+     * @param neCount    Number of NEs
+     * @param firstIp    IPv4 address of the first NE
+     * @return this stand-in
+     */
+    public synchronized NetSimStandIn addSimulation(final String simulation, final String neType, final String namePrefix,
+                                                    final int neCount, final String firstIp) {
+        final String[] octets = firstIp.split("\\.");
+        long address = 0;
+        for (String octet : octets) {
+            address = (address << 8) | Integer.parseInt(octet);
+        }
+        final List<SimulatedNe> nes = new ArrayList<>();
+        for (int i = 1; i <= neCount; i++) {
+            final long ip = address + i - 1;
+            nes.add(new SimulatedNe(String.format("%s%05d", namePrefix, i), neType,
+                    ((ip >> 24) & 0xff) + "." + ((ip >> 16) & 0xff) + "." + ((ip >> 8) & 0xff) + "." + (ip & 0xff)));
+        }
+        simulations.put(simulation, nes);
+        return this;
+    }
+
+    /**
+     * @param perExecMillis    Delay for each exec, like opening a netsim_pipe
+     * @param perCommandMillis Additional delay for each command in the exec
+     * @return this stand-in
+     */
+    public NetSimStandIn latency(final long perExecMillis, final long perCommandMillis) {
+        this.execLatencyMillis = perExecMillis;
+        this.commandLatencyMillis = perCommandMillis;
+        return this;
+    }
+
+    /**
+     * Send an SNMP v2c trap for each alarm to the address of the NE's external destination
+     *
+     * @return this stand-in
+     */
+    public NetSimStandIn emitTraps() {
+        this.emitTraps = true;
+        return this;
+    }
+
+    /**
+     * Send an SNMP v2c trap for each alarm to a fixed address, whatever the NE's external destination is
+     *
+     * @param address Trap receiver address
+     * @param port    Trap receiver port
+     * @return this stand-in
+     */
+    public NetSimStandIn emitTrapsTo(final String address, final int port) {
+        this.emitTraps = true;
+        this.trapAddress = address;
+        this.trapPort = port;
+        return this;
+    }
+
+    /**
+     * Pass each alarm to a listener as it's sent, e.g. to raise it in an ENM stand-in
+     *
+     * @param listener Called for each alarm, on the thread running the exec
+     * @return this stand-in
+     */
+    public NetSimStandIn onAlarm(final Consumer<SentAlarm> listener) {
+        this.alarmListener = listener;
+        return this;
+    }
+
+    public String getHostname() {
+        return hostname;
+    }
+
+    /**
+     * @return Alarms sent by NEs, in the order they were sent
+     */
+    public List<SentAlarm> getSentAlarms() {
+        return Collections.unmodifiableList(sentAlarms);
+    }
+
+    /**
+     * @return Number of execs received
+     */
+    public int getExecCount() {
+        return execs.get();
+    }
+
+    /**
+     * @return A new connection to the stand-in
+     */
+    public NetSimBackend newBackend() {
+        return new NetSimBackend() {
+            @Override
+            public String exec(final List<NetSimStep> steps) {
+                return NetSimStandIn.this.exec(steps);
+            }
+
+            @Override
+            public void close() {
+                // nothing to release, the stand-in is shared
+            }
+        };
+    }
+
+    /**
+     * @return A command session to the stand-in, see {@link NetSimCommandSession#share}
+     */
+    public NetSimCommandSession session() {
+        return new NetSimCommandSession(hostname, this::newBackend);
+    }
+
+    /**
+     * Stop sending traps
+     */
+    public synchronized void close() {
+        if (trapSocket != null) {
+            trapSocket.close();
+            trapSocket = null;
+        }
+    }
+
+    /**
+     * Run commands in a new pipe, the simulation and selection only last for this exec
+     */
+    String exec(final List<NetSimStep> steps) {
+        execs.incrementAndGet();
+        sleep(execLatencyMillis);
+        final Pipe pipe = new Pipe();
+        final StringBuilder output = new StringBuilder();
+        for (NetSimStep step : steps) {
+            // the commands of a pipe run one after the other
+            sleep(commandLatencyMillis);
+            output.append(">> ").append(step.getText()).append('\n');
+            synchronized (this) {
+                run(pipe, step.getText().trim(), output);
+            }
+        }
+        return output.toString();
+    }
+
+    private void run(final Pipe pipe, final String command, final StringBuilder output) {
+        final String[] words = command.split("\\s+");
+        if (command.equals(".show simulations")) {
+            for (String simulation : simulations.keySet()) {
+                output.append(simulation).append('\n');
+            }
+            output.append("OK\n");
+        } else if (command.startsWith(".open ")) {
+            final String simulation = command.substring(".open ".length()).trim();
+            if (simulations.containsKey(simulation)) {
+                pipe.simulation = simulation;
+                pipe.selected = Collections.emptyList();
+                pipe.configuration = false;
+                output.append("OK\n");
+            } else {
+                output.append("Error: Simulation ").append(simulation).append(" does not exist\n");
+            }
+        } else if (command.equals(".select configuration")) {
+            pipe.configuration = true;
+            output.append("OK\n");
+        } else if (command.startsWith(".select ")) {
+            select(pipe, Arrays.copyOfRange(words, 1, words.length), output);
+        } else if (command.equals(".start") || command.equals(".stop")) {
+            for (SimulatedNe ne : pipe.selected) {
+                ne.started = command.equals(".start");
+            }
+            output.append("OK\n");
+        } else if (command.startsWith(".set external ")) {
+            for (SimulatedNe ne : pipe.selected) {
+                ne.destination = words[2];
+            }
+            output.append("OK\n");
+        } else if (command.equals(".set save") || command.equals(".config save")) {
+            output.append("OK\n");
+        } else if (command.startsWith(".config ")) {
+            config(pipe, words, output);
+        } else if (command.equals(".show simnes")) {
+            showSimnes(pipe, output);
+        } else if (command.startsWith("sendalarm:")) {
+            sendAlarm(pipe, command, output);
+        } else {
+            output.append("Error: Unknown command ").append(command).append('\n');
+        }
+    }
+
+    private void select(final Pipe pipe, final String[] neNames, final StringBuilder output) {
+        if (pipe.simulation == null) {
+            output.append("Error: No simulation open\n");
+            return;
+        }
+        final List<SimulatedNe> selected = new ArrayList<>();
+        for (String neName : neNames) {
+            final SimulatedNe ne = find(pipe.simulation, neName);
+            if (ne == null) {
+                output.append("Error: NE ").append(neName).append(" does not exist in ").append(pipe.simulation).append('\n');
+                return;
+            }
+            selected.add(ne);
+        }
+        pipe.selected = selected;
+        pipe.configuration = false;
+        output.append("OK\n");
+    }
+
+    private SimulatedNe find(final String simulation, final String neName) {
+        for (SimulatedNe ne : simulations.get(simulation)) {
+            if (ne.name.equals(neName)) {
+                return ne;
+            }
+        }
+        return null;
+    }
+
+    private void config(final Pipe pipe, final String[] words, final StringBuilder output) {
+        if (!pipe.configuration) {
+            output.append("Error: Configuration not selected\n");
+        } else if (words.length >= 4 && words[1].equals("add") && words[2].equals("external")) {
+            destinations.put(words[3], new Destination());
+            output.append("OK\n");
+        } else if (words.length >= 5 && words[1].equals("external") && words[2].equals("servers")) {
+            output.append("OK\n");
+        } else if (words.length >= 6 && words[1].equals("external") && words[2].equals("address")) {
+            final Destination destination = destinations.get(words[3]);
+            if (destination == null) {
+                output.append("Error: External ").append(words[3]).append(" does not exist\n");
+                return;
+            }
+            destination.address = words[4];
+            destination.port = Integer.parseInt(words[5]);
+            output.append("OK\n");
+        } else {
+            output.append("Error: Unknown config command\n");
+        }
+    }
+
+    private void showSimnes(final Pipe pipe, final StringBuilder output) {
+        if (pipe.simulation == null) {
+            output.append("Error: No simulation open\n");
+            return;
+        }
+        row(output, SIMNES_COLUMNS);
+        for (SimulatedNe ne : simulations.get(pipe.simulation)) {
+            final Destination destination = ne.destination == null ? null : destinations.get(ne.destination);
+            final String defaultDestination = destination == null ? "" :
+                    "public v3+v2+v1 [TLS] " + destination.address + ":" + destination.port;
+            row(output, new String[]{ne.name, ne.type, hostname, ne.ipAddress + " 161", defaultDestination});
+        }
+        output.append("OK\n");
+    }
+
+    private static void row(final StringBuilder output, final String[] values) {
+        final StringBuilder line = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            line.append(values[i]);
+            for (int pad = values[i].length(); pad < SIMNES_WIDTHS[i]; pad++) {
+                line.append(' ');
+            }
+            if (values[i].length() >= SIMNES_WIDTHS[i] && i < values.length - 1) {
+                line.append(' ');
+            }
+        }
+        output.append(line.toString().replaceAll("\\s+$", "")).append('\n');
+    }
+
+    private void sendAlarm(final Pipe pipe, final String command, final StringBuilder output) {
+        final int start = command.indexOf("specificProblem=\"");
+        final int end = command.lastIndexOf('"');
+        final String specificProblem = start < 0 || end <= start ? "" : command.substring(start + "specificProblem=\"".length(), end);
+        if (pipe.selected.isEmpty()) {
+            output.append("Error: No NE selected\n");
+            return;
+        }
+        for (SimulatedNe ne : pipe.selected) {
+            if (!ne.started) {
+                output.append("Error: NE ").append(ne.name).append(" is not started\n");
+                return;
+            }
+        }
+        for (SimulatedNe ne : pipe.selected) {
+            final SentAlarm alarm = new SentAlarm(pipe.simulation, ne.name, specificProblem, System.currentTimeMillis());
+            sentAlarms.add(alarm);
+            final Consumer<SentAlarm> listener = alarmListener;
+            if (listener != null) {
+                listener.accept(alarm);
+            }
+            if (emitTraps) {
+                sendTrap(ne, specificProblem);
+            }
+        }
+        output.append("OK\n");
+    }
+
+    private void sendTrap(final SimulatedNe ne, final String specificProblem) {
+        String address = trapAddress;
+        int port = trapPort;
+        if (address == null) {
+            final Destination destination = ne.destination == null ? null : destinations.get(ne.destination);
+            if (destination == null || destination.address == null) {
+                return;
+            }
+            address = destination.address;
+            port = destination.port;
+        }
+        try {
+            if (trapSocket == null) {
+                trapSocket = new DatagramSocket();
+            }
+            final byte[] trap = trap(ne.name, specificProblem);
+            trapSocket.send(new DatagramPacket(trap, trap.length, InetAddress.getByName(address), port));
+        } catch (IOException e) {
+            LOGGER.warn("Could not send trap for " + ne.name + " to " + address + ":" + port, e);
+        }
+    }
+
+    /**
+     * Encode an SNMP v2c trap with the NE name and specific problem as varbinds
+     */
+    private byte[] trap(final String neName, final String specificProblem) throws IOException {
+        final ByteArrayOutputStream varbinds = new ByteArrayOutputStream();
+        varbinds.write(tlv(0x30, concat(oid(SYS_UP_TIME_OID), tlv(0x43, integer((System.currentTimeMillis() - startTime) / 10)))));
+        varbinds.write(tlv(0x30, concat(oid(SNMP_TRAP_OID), oid(ALARM_TRAP_OID))));
+        varbinds.write(tlv(0x30, concat(oid(MANAGED_OBJECT_OID), tlv(0x04, neName.getBytes(StandardCharsets.UTF_8)))));
+        varbinds.write(tlv(0x30, concat(oid(SPECIFIC_PROBLEM_OID), tlv(0x04, specificProblem.getBytes(StandardCharsets.UTF_8)))));
+        final byte[] pdu = tlv(0xA7, concat(tlv(0x02, integer(trapRequestIds.incrementAndGet())), tlv(0x02, integer(0)),
+                tlv(0x02, integer(0)), tlv(0x30, varbinds.toByteArray())));
+        return tlv(0x30, concat(tlv(0x02, integer(1)), tlv(0x04, "public".getBytes(StandardCharsets.US_ASCII)), pdu));
+    }
+
+    private static byte[] tlv(final int tag, final byte[] value) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(value.length + 4);
+        out.write(tag);
+        if (value.length < 0x80) {
+            out.write(value.length);
+        } else if (value.length < 0x100) {
+            out.write(0x81);
+            out.write(value.length);
+        } else {
+            out.write(0x82);
+            out.write(value.length >> 8);
+            out.write(value.length & 0xff);
+        }
+        out.write(value, 0, value.length);
+        return out.toByteArray();
+    }
+
+    private static byte[] integer(final long value) {
+        int length = 1;
+        while (length < 8 && (value >> (length * 8 - 1)) != 0 && (value >> (length * 8 - 1)) != -1) {
+            length++;
+        }
+        final byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[length - 1 - i] = (byte) (value >> (i * 8));
+        }
+        return bytes;
+    }
+
+    private static byte[] oid(final String oid) {
+        final String[] arcs = oid.split("\\.");
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(Integer.parseInt(arcs[0]) * 40 + Integer.parseInt(arcs[1]));
+        for (int i = 2; i < arcs.length; i++) {
+            final long arc = Long.parseLong(arcs[i]);
+            for (int shift = 28; shift > 0; shift -= 7) {
+                if (arc >= (1L << shift)) {
+                    out.write((int) ((arc >> shift) & 0x7f) | 0x80);
+                }
+            }
+            out.write((int) (arc & 0x7f));
+        }
+        return tlv(0x06, out.toByteArray());
+    }
+
+    private static byte[] concat(final byte[]... parts) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.write(part, 0, part.length);
+        }
+        return out.toByteArray();
+    }
+
+    private static void sleep(final long millis) {
+        if (millis > 0) {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * An alarm sent by a simulated NE
+     */
+    public static class SentAlarm {
+        private final String simulation;
+        private final String neName;
+        private final String specificProblem;
+        private final long sentAt;
+
+        SentAlarm(final String simulation, final String neName, final String specificProblem, final long sentAt) {
+            this.simulation = simulation;
+            this.neName = neName;
+            this.specificProblem = specificProblem;
+            this.sentAt = sentAt;
+        }
+
+        public String getSimulation() {
+            return simulation;
+        }
+
+        public String getNeName() {
+            return neName;
+        }
+
+        public String getSpecificProblem() {
+            return specificProblem;
+        }
+
+        public long getSentAt() {
+            return sentAt;
+        }
+
+        @Override
+        public String toString() {
+            return simulation + "/" + neName + " '" + specificProblem + "'";
+        }
+    }
+
+    private static final class SimulatedNe {
+        private final String name;
+        private final String type;
+        private final String ipAddress;
+        private boolean started = true;
+        private String destination;
+
+        private SimulatedNe(final String name, final String type, final String ipAddress) {
+            this.name = name;
+            this.type = type;
+            this.ipAddress = ipAddress;
+        }
+    }
+
+    private static final class Destination {
+        private String address;
+        private int port;
+    }
+
+    private static final class Pipe {
+        private String simulation;
+        private List<SimulatedNe> selected = Collections.emptyList();
+        private boolean configuration;
+    }
+}
@@ -0,0 +1,111 @@
+package com.ericsson.oss.mediation.sdk.sdktestware;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PmFileWatcherTest {
+    private static final long ROP = Rop.ONE_MIN.getMillis();
+
+    // a ROP that ended a few minutes ago, so nothing waits for the ROP end
+    private final long ropStart = System.currentTimeMillis() / ROP * ROP - 4 * ROP;
+    private final long ropEnd = ropStart + ROP;
+    private final List<Map<String, Object>> files = new ArrayList<>();
+
+    @Test
+    public void fileForAwaitedRopIsFound() throws OperatorException {
+        files.add(file("NE01", ropStart, ropEnd + 5000));
+
+        final PmFileWatcher.PmFileArrival arrival = watcher(10 * ROP).await("NE01", ropStart, 1).get(0);
+
+        assertEquals(ropStart, arrival.getRopStartMillis());
+    }
+
+    @Test
+    public void laterRopIsAcceptedAndReported() throws OperatorException {
+        files.add(file("NE01", ropStart + 2 * ROP, ropEnd + 2 * ROP + 5000));
+        files.add(file("NE01", ropStart + ROP, ropEnd + ROP + 5000));
+
+        final PmFileWatcher.PmFileArrival arrival = watcher(10 * ROP).await("NE01", ropStart, 1).get(0);
+
+        assertEquals(ropStart + ROP, arrival.getRopStartMillis());
+    }
+
+    @Test
+    public void nextRopIsAwaitedAfterTheOneFound() throws OperatorException {
+        files.add(file("NE01", ropStart + ROP, ropEnd + ROP + 5000));
+        files.add(file("NE01", ropStart + 2 * ROP, ropEnd + 2 * ROP + 5000));
+
+        final List<PmFileWatcher.PmFileArrival> arrivals = watcher(10 * ROP).await("NE01", ropStart, 2);
+
+        assertEquals(ropStart + ROP, arrivals.get(0).getRopStartMillis());
+        assertEquals(ropStart + 2 * ROP, arrivals.get(1).getRopStartMillis());
+    }
+
+    @Test
+    public void earlierRopAndOtherNodeAreIgnored() {
+        files.add(file("NE01", ropStart - ROP, ropEnd));
+        files.add(file("NE02", ropStart, ropEnd + 5000));
+
+        try {
+            watcher(0).await("NE01", ropStart, 1);
+            fail("No file for the ROP should time out");
+        } catch (OperatorException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("Timed out"));
+        }
+    }
+
+    @Test
+    public void creationTimeWithinCollectionDelayIsAccepted() throws OperatorException {
+        files.add(file("NE01", null, ropEnd + 2 * ROP + 5000));
+
+        final PmFileWatcher.PmFileArrival arrival = watcher(5 * ROP).await("NE01", ropStart, 1).get(0);
+
+        assertEquals(ropStart + 2 * ROP, arrival.getRopStartMillis());
+    }
+
+    @Test
+    public void creationTimeBeforeRopEndIsRejected() {
+        files.add(file("NE01", null, ropEnd - 1000));
+
+        try {
+            watcher(0).await("NE01", ropStart, 1);
+            fail("A file created before the ROP ended should not count");
+        } catch (OperatorException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("Timed out"));
+        }
+    }
+
+    /**
+     * @param maxCollectionDelayMillis 0 polls once and times out
+     */
+    private PmFileWatcher watcher(final long maxCollectionDelayMillis) {
+        return new PmFileWatcher(uri -> {
+            try {
+                return ScriptEngineResponseReader.getMapper().writeValueAsString(Collections.singletonMap("files", files));
+            } catch (IOException e) {
+                throw new OperatorException(e);
+            }
+        }, Rop.ONE_MIN, maxCollectionDelayMillis);
+    }
+
+    private static Map<String, Object> file(final String neName, final Long ropStart, final long created) {
+        final Map<String, Object> file = new LinkedHashMap<>();
+        file.put("nodeName", neName);
+        if (ropStart != null) {
+            file.put("startRopTimeInOss", ropStart);
+        }
+        file.put("fileCreationTimeInOss", created);
+        file.put("fileLocation", "/ericsson/pmic1/XML/" + neName + "/A" + ropStart + "_statsfile.xml");
+        return file;
+    }
+}
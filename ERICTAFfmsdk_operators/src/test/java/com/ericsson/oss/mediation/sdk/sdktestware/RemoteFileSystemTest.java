@@ -0,0 +1,174 @@
+package com.ericsson.oss.mediation.sdk.sdktestware;
+
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.SftpATTRS;
+import com.jcraft.jsch.SftpException;
+import org.junit.Test;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RemoteFileSystemTest {
+    private static final int S_IFDIR = 0040000;
+    private static final int S_IFREG = 0100000;
+
+    private final RemoteFileSystem directories = new RemoteFileSystem();
+    private final Director director = new Director();
+    private final Sftp sftp = new Sftp();
+
+    @Test
+    public void missingDirectoryIsCreatedOnce() throws OperatorException {
+        directories.mkdirs(director, sftp, "/ericsson/sdk/build");
+        directories.mkdirs(director, sftp, "/ericsson/sdk/build");
+
+        assertEquals(Collections.singletonList("mkdir -p '/ericsson/sdk/build'"), director.commands);
+        assertEquals(Collections.singletonList("/ericsson/sdk/build"), sftp.stats);
+    }
+
+    @Test
+    public void parentsAreKnownOnceChildExists() throws OperatorException {
+        sftp.directories.add("/ericsson/sdk/build");
+
+        directories.mkdirs(director, sftp, "/ericsson/sdk/build");
+        directories.mkdirs(director, sftp, "/ericsson/sdk");
+        directories.mkdirs(director, sftp, "/ericsson");
+
+        assertEquals(Collections.singletonList("/ericsson/sdk/build"), sftp.stats);
+        assertTrue(director.commands.isEmpty());
+    }
+
+    @Test
+    public void pathsAreNormalized() throws OperatorException {
+        sftp.directories.add("/ericsson/sdk");
+
+        directories.mkdirs(director, sftp, "/ericsson//sdk/");
+        directories.mkdirs(director, sftp, "/ericsson/sdk");
+        directories.mkdirs(director, sftp, "/");
+
+        assertEquals(Collections.singletonList("/ericsson/sdk"), sftp.stats);
+    }
+
+    @Test
+    public void fileInTheWayFails() {
+        sftp.files.add("/ericsson/sdk");
+
+        try {
+            directories.mkdirs(director, sftp, "/ericsson/sdk");
+            fail("A file is not a directory");
+        } catch (OperatorException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("not a directory"));
+        }
+        assertTrue(director.commands.isEmpty());
+    }
+
+    @Test
+    public void failedMkdirIsNotRemembered() {
+        director.exitCode = 1;
+
+        for (int attempt = 0; attempt < 2; attempt++) {
+            try {
+                directories.mkdirs(director, sftp, "/ericsson/sdk");
+                fail("mkdir failed");
+            } catch (OperatorException e) {
+                assertTrue(e.getMessage(), e.getMessage().contains("Failed to create /ericsson/sdk"));
+            }
+        }
+        assertEquals(2, director.commands.size());
+    }
+
+    @Test
+    public void forgetDropsPathAndChildrenOnly() throws OperatorException {
+        sftp.directories.addAll(Arrays.asList("/ericsson/sdk/build", "/ericsson/sdkx"));
+        directories.mkdirs(director, sftp, "/ericsson/sdk/build");
+        directories.mkdirs(director, sftp, "/ericsson/sdkx");
+        sftp.stats.clear();
+
+        directories.forget("/ericsson/sdk/");
+        directories.mkdirs(director, sftp, "/ericsson/sdkx");
+        directories.mkdirs(director, sftp, "/ericsson");
+        directories.mkdirs(director, sftp, "/ericsson/sdk/build");
+
+        assertEquals(Collections.singletonList("/ericsson/sdk/build"), sftp.stats);
+    }
+
+    @Test
+    public void forgetPatternOrRelativePathDropsEverything() throws OperatorException {
+        sftp.directories.addAll(Arrays.asList("/ericsson/sdk", "/var/tmp"));
+        for (String forgotten : Arrays.asList("/ericsson/*.tgz", "build", "/ericsson/sdk /var/tmp")) {
+            directories.mkdirs(director, sftp, "/ericsson/sdk");
+            directories.mkdirs(director, sftp, "/var/tmp");
+            sftp.stats.clear();
+
+            directories.forget(forgotten);
+            directories.mkdirs(director, sftp, "/ericsson/sdk");
+            directories.mkdirs(director, sftp, "/var/tmp");
+
+            assertEquals(forgotten, Arrays.asList("/ericsson/sdk", "/var/tmp"), sftp.stats);
+        }
+    }
+
+    /**
+     * Records the commands run on the director
+     */
+    private static final class Director extends RemoteAccessOperator {
+        private final List<String> commands = new ArrayList<>();
+        private int exitCode;
+
+        @Override
+        public int execute(final String command, final int timeoutSeconds, final StringBuilder stdout,
+                           final StringBuilder stderr) {
+            commands.add(command);
+            if (exitCode != 0 && stderr != null) {
+                stderr.append("mkdir: Permission denied");
+            }
+            return exitCode;
+        }
+    }
+
+    /**
+     * Answers stat from a set of directories and files, recording the paths
+     */
+    private static final class Sftp extends ChannelSftp {
+        private final Set<String> directories = new HashSet<>();
+        private final Set<String> files = new HashSet<>();
+        private final List<String> stats = new ArrayList<>();
+
+        @Override
+        public SftpATTRS stat(final String path) throws SftpException {
+            stats.add(path);
+            if (directories.contains(path)) {
+                return attrs(S_IFDIR | 0755);
+            }
+            if (files.contains(path)) {
+                return attrs(S_IFREG | 0644);
+            }
+            throw new SftpException(SSH_FX_NO_SUCH_FILE, "No such file");
+        }
+
+        private static SftpATTRS attrs(final int permissions) {
+            try {
+                final Constructor<SftpATTRS> constructor = SftpATTRS.class.getDeclaredConstructor();
+                constructor.setAccessible(true);
+                final SftpATTRS attrs = constructor.newInstance();
+                // setPERMISSIONS only takes the mode bits, not the file type
+                attrs.setPERMISSIONS(permissions);
+                final Field type = SftpATTRS.class.getDeclaredField("permissions");
+                type.setAccessible(true);
+                type.setInt(attrs, permissions);
+                return attrs;
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
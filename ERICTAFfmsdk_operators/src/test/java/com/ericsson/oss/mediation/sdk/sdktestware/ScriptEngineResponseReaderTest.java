@@ -0,0 +1,61 @@
+package com.ericsson.oss.mediation.sdk.sdktestware;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ScriptEngineResponseReaderTest {
+    private static final String RESPONSE = "{ \"nonCachableDtos\": [{\"value\": \"ignored\"}], \"responseDto\": { \"dtoType\": \"ResponseDto\", " +
+            "\"elements\": [ { \"dtoType\": \"line\", \"value\": \"FDN : SubNetwork=LTE26dg2ERBS00001\" }, " +
+            "{ \"dtoType\": \"table\", \"columns\": [{\"value\": \"nested\"}] }, " +
+            "{ \"dtoType\": \"line\", \"value\": \"SubNetworkId : LTE26dg2ERBS00001\" }, " +
+            "{ \"dtoType\": \"line\", \"value\": \"1 instance(s) updated\" } ] } }";
+
+    @Test
+    public void readsElementsInOrder() throws OperatorException {
+        final List<String> values = new ArrayList<>();
+        ScriptEngineResponseReader.readLines(RESPONSE, (dtoType, value) -> values.add(dtoType + "=" + value));
+        assertEquals(Arrays.asList("line=FDN : SubNetwork=LTE26dg2ERBS00001", "table=null",
+                "line=SubNetworkId : LTE26dg2ERBS00001", "line=1 instance(s) updated"), values);
+    }
+
+    @Test
+    public void stopsWhenHandlerReturnsFalse() throws OperatorException {
+        final List<String> values = new ArrayList<>();
+        ScriptEngineResponseReader.readLines(RESPONSE, (dtoType, value) -> {
+            values.add(value);
+            return false;
+        });
+        assertEquals(1, values.size());
+    }
+
+    @Test
+    public void lastValueIsResultLine() throws OperatorException {
+        assertEquals("1 instance(s) updated", ScriptEngineResponseReader.lastValue(RESPONSE));
+        assertEquals("", ScriptEngineResponseReader.lastValue("{\"responseDto\": {\"elements\": []}}"));
+    }
+
+    @Test
+    public void findsLinesByPrefixAndText() throws OperatorException {
+        assertEquals("SubNetworkId : LTE26dg2ERBS00001", ScriptEngineResponseReader.lastLineStartingWith(RESPONSE, "SubNetworkId"));
+        assertEquals("", ScriptEngineResponseReader.lastLineStartingWith(RESPONSE, "Error"));
+        assertTrue(ScriptEngineResponseReader.anyValueContains(RESPONSE, "instance(s)"));
+        assertFalse(ScriptEngineResponseReader.anyValueContains(RESPONSE, "nested"));
+    }
+
+    @Test(expected = OperatorException.class)
+    public void rejectsNonObject() throws OperatorException {
+        ScriptEngineResponseReader.lastValue("[]");
+    }
+
+    @Test(expected = OperatorException.class)
+    public void rejectsTruncatedOutput() throws OperatorException {
+        ScriptEngineResponseReader.lastValue(RESPONSE.substring(0, RESPONSE.length() / 2));
+    }
+}
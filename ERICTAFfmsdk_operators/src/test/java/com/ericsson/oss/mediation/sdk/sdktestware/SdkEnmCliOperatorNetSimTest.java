@@ -0,0 +1,129 @@
+package com.ericsson.oss.mediation.sdk.sdktestware;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SdkEnmCliOperatorNetSimTest {
+    private static final String NE_TYPE = "LTE MSRBS-V2 19-Q3-V10";
+    private static final AtomicInteger HOSTS = new AtomicInteger();
+
+    private EnmStandIn enm;
+    private NetSimStandIn first;
+    private NetSimStandIn second;
+    private SdkEnmCliOperator operator;
+
+    @Before
+    public void setUp() throws OperatorException {
+        enm = EnmStandIn.start();
+        // inventories are cached per host name, every test gets its own hosts
+        first = new NetSimStandIn("netsim-" + HOSTS.incrementAndGet()).
+                addSimulation("LTE-DG2-01", NE_TYPE, "LTE01dg2ERBS", 6, "10.0.1.1").
+                addSimulation("LTE-CORE-01", "CORE", "CORE01", 2, "10.0.2.1");
+        second = new NetSimStandIn("netsim-" + HOSTS.incrementAndGet()).
+                addSimulation("LTE-DG2-02", NE_TYPE, "LTE02dg2ERBS", 6, "10.0.3.1");
+        operator = new SdkEnmCliOperator(enm.newSession(4), new NetSimAllocator(Arrays.asList(first.session(), second.session())));
+        operator.login();
+    }
+
+    @After
+    public void tearDown() {
+        operator.logout();
+        first.close();
+        second.close();
+        enm.close();
+    }
+
+    @Test
+    public void allocatesNesAcrossHosts() throws OperatorException {
+        final NetSimAllocator allocator = operator.getNetSimAllocator();
+
+        final List<NetSimNe> nes = allocator.allocate(8, "DG2");
+
+        assertEquals(8, nes.size());
+        final Set<String> hosts = new HashSet<>();
+        for (NetSimNe ne : nes) {
+            assertTrue(ne.toString(), ne.getSimulation().contains("DG2"));
+            hosts.add(ne.getHostname());
+        }
+        assertEquals(2, hosts.size());
+        assertEquals(8, allocator.getInUseCount());
+        allocator.release(nes);
+        assertEquals(0, allocator.getInUseCount());
+    }
+
+    @Test
+    public void configuresDefaultDestinationOnEveryNe() throws OperatorException {
+        final NetSimAllocator allocator = operator.getNetSimAllocator();
+        final List<NetSimNe> nes = allocator.allocate(12, "DG2");
+
+        final List<NeProvisioningResult> results = operator.configureNetsimNes(nes, "10.9.9.9");
+
+        assertEquals(12, results.size());
+        for (NeProvisioningResult result : results) {
+            assertTrue(result.toString(), result.isSuccess());
+        }
+        for (NetSimNe ne : nes) {
+            final NetSimNe configured = NetSimInventory.forHost(allocator.getSession(ne.getHostname())).findByName(ne.getName());
+            assertTrue(configured.toString(), configured.getDefaultDestination().contains("10.9.9.9:162"));
+        }
+        allocator.release(nes);
+    }
+
+    @Test
+    public void alarmLoadReachesEnm() throws OperatorException {
+        first.onAlarm(alarm -> enm.raiseAlarm(alarm.getNeName(), alarm.getSpecificProblem()));
+        second.onAlarm(alarm -> enm.raiseAlarm(alarm.getNeName(), alarm.getSpecificProblem()));
+        final NetSimAllocator allocator = operator.getNetSimAllocator();
+        final List<NetSimNe> nes = allocator.allocate(4, "DG2");
+
+        final AlarmLoadGenerator.AlarmLoadReport report = operator.runAlarmLoad(nes, 20, 1);
+
+        assertEquals(20, report.getSent());
+        assertEquals(20, report.getReceived());
+        assertTrue(report.getLostAlarms().isEmpty());
+        assertEquals(20, first.getSentAlarms().size() + second.getSentAlarms().size());
+        allocator.release(nes);
+    }
+
+    @Test
+    public void alarmLatencyLeavesOutNetSimTimeOfEarlierAlarmsInTheBatch() throws OperatorException {
+        first.latency(0, 30).onAlarm(alarm -> enm.raiseAlarm(alarm.getNeName(), alarm.getSpecificProblem()));
+        second.latency(0, 30).onAlarm(alarm -> enm.raiseAlarm(alarm.getNeName(), alarm.getSpecificProblem()));
+        final NetSimAllocator allocator = operator.getNetSimAllocator();
+        final List<NetSimNe> nes = allocator.allocate(4, "DG2");
+
+        final AlarmLoadGenerator.AlarmLoadReport report = operator.runAlarmLoad(nes, 40, 1);
+
+        assertEquals(40, report.getReceived());
+        assertTrue(report.toString(), report.getLatency().max() < 90);
+        allocator.release(nes);
+    }
+
+    @Test
+    public void lostAlarmsAreReported() throws OperatorException {
+        System.setProperty("fm.alarm.timeout", "1");
+        try {
+            first.onAlarm(alarm -> enm.raiseAlarm(alarm.getNeName(), alarm.getSpecificProblem()));
+            final NetSimAllocator allocator = operator.getNetSimAllocator();
+            final List<NetSimNe> nes = allocator.allocate(4, "DG2");
+
+            final AlarmLoadGenerator.AlarmLoadReport report = operator.runAlarmLoad(nes, 20, 1);
+
+            assertEquals(second.getSentAlarms().size(), report.getLostAlarms().size());
+            assertEquals(first.getSentAlarms().size(), report.getReceived());
+            allocator.release(nes);
+        } finally {
+            System.clearProperty("fm.alarm.timeout");
+        }
+    }
+}
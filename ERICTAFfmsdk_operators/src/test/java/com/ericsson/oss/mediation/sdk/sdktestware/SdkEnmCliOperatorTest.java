@@ -0,0 +1,181 @@
+package com.ericsson.oss.mediation.sdk.sdktestware;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SdkEnmCliOperatorTest {
+    private static final String STATUS = "HEAD /script-engine/services/command/status";
+
+    private EnmStandIn enm;
+    private SdkEnmCliOperator operator;
+
+    @Before
+    public void setUp() throws OperatorException {
+        enm = EnmStandIn.start();
+        operator = new SdkEnmCliOperator(enm.newSession(4));
+        operator.login();
+    }
+
+    @After
+    public void tearDown() {
+        operator.logout();
+        enm.close();
+    }
+
+    @Test
+    public void pipelineRunsStagesInOrder() throws OperatorException {
+        final CommandPipeline.Step create = CommandPipeline.step("create", "cmedit create NetworkElement=NE01 networkElementId=NE01,neType=RadioNode");
+        final CommandPipeline.Step set = CommandPipeline.step("set", "cmedit set NetworkElement=NE01,FmAlarmSupervision=1 active=true");
+
+        final Map<CommandPipeline.Step, String> results = operator.pipeline().stage(create).stage(set).execute();
+
+        assertEquals(Arrays.asList(create, set), Arrays.asList(results.keySet().toArray()));
+        assertEquals("1 instance(s) updated", results.get(create));
+        assertEquals(Collections.singleton("NE01"), enm.getNetworkElements());
+    }
+
+    @Test
+    public void pipelineStopsAtFailedStage() {
+        enm.onCommand("cmedit create", command -> Collections.singletonList("Error 1009 : An incorrect value"));
+        final CommandPipeline.Step later = CommandPipeline.step("set", "cmedit set NetworkElement=NE01,FmAlarmSupervision=1 active=true");
+        try {
+            operator.pipeline().
+                    stage(CommandPipeline.step("create", "cmedit create NetworkElement=NE01 networkElementId=NE01,neType=RadioNode")).
+                    stage(later).
+                    execute();
+            fail("Error output should fail the pipeline");
+        } catch (OperatorException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("Error 1009"));
+        }
+        assertEquals(1, enm.getRequestCount("POST /script-engine/services/command"));
+    }
+
+    @Test
+    public void completionActionRunsWhenCommandFails() {
+        enm.failNext("/script-engine/services/command", 500, 10);
+        final AtomicBoolean completed = new AtomicBoolean();
+        try {
+            operator.pipeline().
+                    stage(CommandPipeline.step("delete", "cmedit delete NetworkElement=NE01 -ALL --force").
+                            onCompletion(() -> completed.set(true))).
+                    execute();
+            fail("HTTP 500 should fail the pipeline");
+        } catch (OperatorException e) {
+            assertTrue(completed.get());
+        }
+    }
+
+    @Test
+    public void slowCommandsArePolledUntilComplete() throws OperatorException {
+        enm.commandDuration(600);
+
+        operator.pipeline().stage(CommandPipeline.step("set", "cmedit set NetworkElement=NE01,CmFunction=1 active=true")).execute();
+
+        final List<CommandTiming> timings = operator.getCommandTimings();
+        assertEquals(1, timings.size());
+        assertTrue(timings.get(0).toString(), timings.get(0).getPolls() > 1);
+        assertEquals(timings.get(0).getPolls(), enm.getRequestCount(STATUS));
+        assertTrue(timings.get(0).toString(), timings.get(0).getTotalMillis() >= 600);
+        assertEquals(1, operator.getCommandTimingStats().getCount());
+    }
+
+    @Test
+    public void removeNesDeletesEachNe() throws OperatorException {
+        operator.pipeline().stage(
+                CommandPipeline.step("create", "cmedit create NetworkElement=NE01 networkElementId=NE01,neType=RadioNode"),
+                CommandPipeline.step("create", "cmedit create NetworkElement=NE02 networkElementId=NE02,neType=RadioNode")).
+                execute();
+
+        final List<NeProvisioningResult> results = operator.removeNEs(Arrays.asList("NE01", "NE02"), 8);
+
+        assertEquals(2, results.size());
+        for (NeProvisioningResult result : results) {
+            assertTrue(result.toString(), result.isSuccess());
+        }
+        assertTrue(enm.getNetworkElements().isEmpty());
+    }
+
+    @Test
+    public void nrmDataIsDeletedAfterSupervisionIsOff() throws OperatorException {
+        final List<String> sent = new CopyOnWriteArrayList<>();
+        enm.onCommand("cmedit set", command -> {
+            sleep(100);
+            sent.add(command);
+            return Collections.singletonList("1 instance(s) updated");
+        }).onCommand("cmedit action", command -> {
+            sent.add(command);
+            return Collections.singletonList("1 instance(s) updated");
+        });
+
+        operator.removeNEs(Collections.singletonList("NE01"), 1);
+
+        assertEquals(4, sent.size());
+        assertTrue(sent.toString(), sent.get(3).endsWith("deleteNrmDataFromEnm"));
+    }
+
+    @Test
+    public void alarmLatencyComesFromEnmInsertTime() throws OperatorException {
+        final long sentAt = System.currentTimeMillis() - 5000;
+        enm.raiseAlarm("NE01", "TAF test 1");
+
+        final AlarmWaiter.AlarmArrival arrival = operator.getAlarmWaiter().await("NE01", "TAF test 1", 1, sentAt);
+
+        assertEquals(1, arrival.getCount());
+        assertTrue(arrival.toString(), arrival.getLatencyMillis() >= 5000 && arrival.getLatencyMillis() < 6000);
+    }
+
+    @Test
+    public void subscriptionIsReadByItsIdNotTheRequestId() throws OperatorException {
+        operator.pipeline().stage(CommandPipeline.step("create", "cmedit create NetworkElement=NE01 networkElementId=NE01,neType=RadioNode")).execute();
+
+        final PmSubscriptionHandle handle = operator.createPmSubscription("PM_TAF_TEST", "RadioNode", Collections.singletonList("NE01"));
+
+        assertEquals(Collections.singleton(handle.getId()), enm.getSubscriptions().keySet());
+        assertTrue(handle.getPersistenceTime() != null);
+        assertEquals(handle.getId(), handle.refresh().getId());
+        assertEquals(0, enm.getRequestCount("GET /pm-service/rest/subscription/findByType"));
+    }
+
+    @Test
+    public void logoutClosesOwnClient() throws OperatorException {
+        final SdkEnmCliOperator own = new SdkEnmCliOperator(enm.newSession(2));
+        final AtomicReference<Thread> commandThread = new AtomicReference<>();
+        own.pipeline().stage(CommandPipeline.step("set", "cmedit set NetworkElement=NE01,CmFunction=1 active=true").
+                onCompletion(() -> commandThread.set(Thread.currentThread()))).execute();
+        own.logout();
+        try {
+            commandThread.get().join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        assertFalse("Command threads should stop on logout", commandThread.get().isAlive());
+        try {
+            own.pipeline().stage(CommandPipeline.step("set", "cmedit set NetworkElement=NE01,CmFunction=1 active=true")).execute();
+            fail("Commands should fail once the client is closed");
+        } catch (OperatorException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("closed"));
+        }
+    }
+
+    private static void sleep(final long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
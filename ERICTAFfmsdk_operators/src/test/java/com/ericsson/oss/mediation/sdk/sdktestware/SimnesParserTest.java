@@ -0,0 +1,99 @@
+package com.ericsson.oss.mediation.sdk.sdktestware;
+
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SimnesParserTest {
+    private static final String HEADER =
+            "NE Name                  Type                     Server              In Address         Default dest.\n";
+
+    private static String row(final String neName, final String ip) {
+        return String.format("%-25s%-25s%-20s%-19s%s%n", neName, "LTE MSRBS-V2 19-Q3-V10", "netsim01", ip + " 161",
+                "public v3+v2+v1 10.0.0.1:162");
+    }
+
+    private static String table(final String... rows) {
+        return HEADER + String.join("", rows) + "OK\n";
+    }
+
+    @Test
+    public void readsRowsOfEchoedSimulations() throws OperatorException {
+        final String raw = ">> .open SIM1\nOK\n>> .show simnes\n" + table(row("NE01", "10.1.1.1"), row("NE02", "10.1.1.2")) +
+                ">> .open SIM2\nOK\n>> .show simnes\n" + table(row("NE03", "10.1.1.3"));
+
+        final List<NetSimNe> nes = SimnesParser.parseAll("netsim01", raw, Arrays.asList("SIM1", "SIM2"));
+
+        assertEquals(3, nes.size());
+        assertEquals("SIM1", nes.get(1).getSimulation());
+        assertEquals("NE03", nes.get(2).getName());
+        assertEquals("SIM2", nes.get(2).getSimulation());
+        assertEquals("10.1.1.3", nes.get(2).getIpAddress());
+        assertEquals("netsim01", nes.get(2).getHostname());
+    }
+
+    @Test
+    public void echoedOpenIsUsedWhenSimulationPrintsNoTable() throws OperatorException {
+        final String raw = ">> .open SIM1\nOK\n>> .show simnes\nOK\n" +
+                ">> .open SIM2\nOK\n>> .show simnes\n" + table(row("NE03", "10.1.1.3"));
+
+        final List<NetSimNe> nes = SimnesParser.parseAll("netsim01", raw, Arrays.asList("SIM1", "SIM2"));
+
+        assertEquals(1, nes.size());
+        assertEquals("SIM2", nes.get(0).getSimulation());
+    }
+
+    @Test
+    public void expectedSimulationsAreUsedWithoutEcho() throws OperatorException {
+        final String raw = "OK\n" + table(row("NE01", "10.1.1.1")) + "OK\n" + table(row("NE03", "10.1.1.3"));
+
+        final List<NetSimNe> nes = SimnesParser.parseAll("netsim01", raw, Arrays.asList("SIM1", "SIM2"));
+
+        assertEquals("SIM1", nes.get(0).getSimulation());
+        assertEquals("SIM2", nes.get(1).getSimulation());
+    }
+
+    @Test
+    public void missingTableWithoutEchoIsReported() {
+        final String raw = "OK\n" + table(row("NE03", "10.1.1.3"));
+        try (SimnesParser parser = new SimnesParser("netsim01", new StringReader(raw)).withSimulations(Arrays.asList("SIM1", "SIM2"))) {
+            assertTrue(parser.hasNext());
+            parser.next();
+            assertFalse(parser.isSimulationMismatch());
+            assertFalse(parser.hasNext());
+            assertTrue(parser.isSimulationMismatch());
+        }
+        try {
+            SimnesParser.parseAll("netsim01", raw, Arrays.asList("SIM1", "SIM2"));
+            fail("A missing table should be reported");
+        } catch (OperatorException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("SIM1"));
+        }
+    }
+
+    @Test
+    public void extraTableWithoutEchoIsReported() {
+        final String raw = table(row("NE01", "10.1.1.1")) + table(row("NE03", "10.1.1.3"));
+        try (SimnesParser parser = new SimnesParser("netsim01", new StringReader(raw)).withSimulations(Arrays.asList("SIM1"))) {
+            while (parser.hasNext()) {
+                parser.next();
+            }
+            assertTrue(parser.isSimulationMismatch());
+        }
+    }
+
+    @Test
+    public void findStopsAtTheNe() {
+        final String raw = ">> .open SIM1\n" + table(row("NE01", "10.1.1.1"), row("NE02", "10.1.1.2"));
+        assertEquals("10.1.1.2", SimnesParser.find("netsim01", raw, "NE02").getIpAddress());
+        assertNull(SimnesParser.find("netsim01", raw, "NE09"));
+    }
+}